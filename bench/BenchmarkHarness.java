@@ -0,0 +1,223 @@
+/*
+a small JMH-style harness for the benchmarks (the app has no build file, so JMH itself can't be pulled in).
+Every benchmark is an operation which is called in a loop for fixed time slices: first
+warmup iterations (not measured, they let the JIT compile the code), then measured iterations. For every
+measured iteration the harness records the time per operation, the bytes the benchmark thread allocated per
+operation (HotSpot's per-thread allocation counter, like JMH's -prof gc) and the amount of garbage collections.
+
+The median of the iterations is the score. Scores can be saved as a baseline file and a later run can be compared
+against it: a benchmark whose time or allocation per operation grew by more than the tolerance is flagged as a
+regression (see compare()), so e.g. a script can fail on the exit code of the benchmark.
+
+Baseline files are plain text, one benchmark per line: name<tab>ns/op<tab>bytes/op. Lines starting with # are
+comments.
+ */
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BenchmarkHarness {
+
+    private final static long ALLOCATION_SLACK = 16; //bytes/op which are noise (e.g. TLAB accounting)
+
+    private static long sink; //results of the operations are accumulated here so the JIT can't drop the work
+
+    //instance fields
+    private int warmupIterations;
+    private int iterations;
+    private long iterationNanos;
+    private List<Score> scores = new ArrayList<>();
+
+    /*
+    Constructor
+     */
+    public BenchmarkHarness(int warmupIterations, int iterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+    }
+
+    /*
+    Constructor - 3 warmup and 5 measured iterations of half a second
+     */
+    public BenchmarkHarness() {
+        this(3, 5, 500);
+    }
+
+    /*
+    measures operation and prints its score. operation is called until the time of an iteration is over (at least
+    once), its result is consumed so the work can't be optimized away
+     */
+    public Score measure(String name, Operation operation) throws Exception {
+        return this.measure(name, 1, operation);
+    }
+
+    /*
+    same as measure() for an operation which performs batch operations per call, e.g. looks up batch dates. Cheap
+    operations have to be batched, otherwise the harness itself (reading the clock) is measured
+     */
+    public Score measure(String name, int batch, Operation operation) throws Exception {
+        for (int i = 0; i < this.warmupIterations; i++) {
+            this.iterate(operation, batch, new double[3]);
+        }
+        double[] nanos = new double[this.iterations];
+        double[] bytes = new double[this.iterations];
+        long collections = 0;
+        for (int i = 0; i < this.iterations; i++) {
+            double[] result = new double[3];
+            this.iterate(operation, batch, result);
+            nanos[i] = result[0];
+            bytes[i] = result[1];
+            collections += (long) result[2];
+        }
+        Score score = new Score(name, median(nanos), median(bytes), (double) collections / this.iterations);
+        this.scores.add(score);
+        System.out.println(score);
+        return score;
+    }
+
+    //getter
+    public List<Score> getScores() {
+        return this.scores;
+    }
+
+    //writes the scores as a baseline file
+    public void save(Path path) throws IOException {
+        StringBuilder text = new StringBuilder("# name\tns/op\tbytes/op\n");
+        for (Score score : this.scores) {
+            text.append(score.name).append('\t').append(score.nanosPerOperation).append('\t')
+                    .append(score.bytesPerOperation).append('\n');
+        }
+        Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+    compares the scores with a baseline file and prints every benchmark with its change. Returns the amount of
+    regressions: benchmarks which got slower or allocate more by more than tolerance (e.g. 0.1 for 10%).
+    Benchmarks which aren't in the baseline are reported but not counted
+     */
+    public int compare(Path baselinePath, double tolerance) throws IOException {
+        Map<String, double[]> baseline = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(baselinePath, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (!line.startsWith("#") && fields.length == 3) {
+                baseline.put(fields[0], new double[]{Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+            }
+        }
+
+        int regressions = 0;
+        System.out.printf("%n%-36s %12s %12s %12s %12s  %s%n", "compared to " + baselinePath.getFileName(),
+                "ns/op", "baseline", "B/op", "baseline", "verdict");
+        for (Score score : this.scores) {
+            double[] base = baseline.get(score.name);
+            if (base == null) {
+                System.out.printf("%-36s %12.1f %12s %12.1f %12s  %s%n", score.name, score.nanosPerOperation, "-",
+                        score.bytesPerOperation, "-", "new");
+                continue;
+            }
+            boolean slower = score.nanosPerOperation > base[0] * (1 + tolerance);
+            boolean allocates = score.bytesPerOperation > base[1] * (1 + tolerance) + ALLOCATION_SLACK;
+            String verdict = slower || allocates ? "REGRESSION" + (slower ? " time" : "") + (allocates ? " alloc" : "")
+                    : score.nanosPerOperation < base[0] * (1 - tolerance) ? "faster" : "ok";
+            if (slower || allocates) {
+                regressions++;
+            }
+            System.out.printf("%-36s %12.1f %12.1f %12.1f %12.1f  %s %+.0f%%%n", score.name,
+                    score.nanosPerOperation, base[0], score.bytesPerOperation, base[1], verdict,
+                    (score.nanosPerOperation / base[0] - 1) * 100);
+        }
+        return regressions;
+    }
+
+    //runs one iteration, result gets ns/op, bytes/op and the amount of garbage collections
+    private void iterate(Operation operation, int batch, double[] result) throws Exception {
+        long collections = collections();
+        long allocated = allocatedBytes();
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink += operation.run();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < this.iterationNanos);
+        operations *= batch;
+        result[1] = (double) (allocatedBytes() - allocated) / operations;
+        result[0] = (double) elapsed / operations;
+        result[2] = collections() - collections;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    //bytes allocated by the current thread so far, 0 if the JVM can't tell
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    //returns the result so the harness can consume it, e.g. a size or a hash
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    /*
+    the result of a benchmark: medians of the measured iterations
+     */
+    public static class Score {
+        private final String name;
+        private final double nanosPerOperation;
+        private final double bytesPerOperation;
+        private final double collectionsPerIteration;
+
+        Score(String name, double nanosPerOperation, double bytesPerOperation, double collectionsPerIteration) {
+            this.name = name;
+            this.nanosPerOperation = nanosPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+            this.collectionsPerIteration = collectionsPerIteration;
+        }
+
+        //getters
+        public String getName() {
+            return this.name;
+        }
+
+        public double getNanosPerOperation() {
+            return this.nanosPerOperation;
+        }
+
+        public double getBytesPerOperation() {
+            return this.bytesPerOperation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-36s %14.1f ns/op %14.1f B/op %6.1f gc/iteration", this.name,
+                    this.nanosPerOperation, this.bytesPerOperation, this.collectionsPerIteration);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+measures the frames of the calendar panel (see CalendarPanel and CalendarTableModel) on a dense dataset: the panel
+is painted into an image on the EDT after every scroll step, like the screen would be, and the time of every frame
+is recorded. Two ways of scrolling are measured:
+- scroll: SCROLL_ROWS weeks further every frame, from the first year of the dataset to the last
+- jump: a random week of the calendar every frame (the page of the week is never cached)
+Besides the frame times it reports the frames which showed weeks which weren't read yet (CalendarTableModel.LOADING)
+and the pages cached in the end. Runs headless, e.g. java -Djava.awt.headless=true ...
+
+usage: java -cp <classes> CalendarBenchmark [reminders] [frames]
+ */
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CalendarBenchmark {
+
+    private final static int WIDTH = 700;
+    private final static int HEIGHT = 500;
+    private final static int SCROLL_ROWS = 2;
+    private final static int YEARS = 300; //the whole calendar, so the dataset has a reminder on almost every day
+
+    public static void main(String[] args) throws Exception {
+        int reminders = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        DatasetGenerator generator = new DatasetGenerator(reminders, 40, DatasetGenerator.TextLength.SKEWED, YEARS,
+                Utils.CALENDAR_FIRST_YEAR, 1);
+        Path path = Files.createTempDirectory("calendar-bench").resolve("calendar.rem");
+        generator.writeFile(path);
+        ReminderManager manager = new ReminderManager();
+        manager.mapRemindersFile(path.toString());
+        System.out.println(generator);
+
+        CalendarPanel[] panel = new CalendarPanel[1];
+        SwingUtilities.invokeAndWait(() -> {
+            panel[0] = new CalendarPanel(manager, date -> { });
+            panel[0].setSize(WIDTH, HEIGHT);
+            layout(panel[0]);
+            panel[0].start();
+        });
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        JTable table = panel[0].getTable();
+        int rows = table.getRowCount();
+        int firstRow = panel[0].getModel().getRowOf(Date.fromKey(generator.dates()[0]));
+
+        System.out.printf("%-8s %8s %10s %10s %10s %14s %8s%n", "scroll", "frames", "p50 ms", "p99 ms", "max ms",
+                "loading frames", "pages");
+        Random random = new Random(1);
+        for (String mode : new String[]{"scroll", "jump"}) {
+            long[] times = new long[frames];
+            int[] loadingFrames = new int[1];
+            for (int frame = 0; frame < frames; frame++) {
+                int row = mode.equals("scroll") ? (firstRow + frame * SCROLL_ROWS) % rows : random.nextInt(rows);
+                int index = frame;
+                //a frame: scroll, lay out and paint on the EDT, the pages read meanwhile arrive between frames
+                SwingUtilities.invokeAndWait(() -> {
+                    long start = System.nanoTime();
+                    Rectangle cell = table.getCellRect(row, 0, true);
+                    table.scrollRectToVisible(new Rectangle(cell.x, cell.y, cell.width, table.getVisibleRect().height));
+                    layout(panel[0]);
+                    panel[0].paint(graphics);
+                    times[index] = System.nanoTime() - start;
+                    if (showsLoading(table)) {
+                        loadingFrames[0]++;
+                    }
+                });
+            }
+            Arrays.sort(times);
+            int[] pages = new int[1];
+            SwingUtilities.invokeAndWait(() -> pages[0] = panel[0].getModel().getCachedPages());
+            System.out.printf("%-8s %8d %10.3f %10.3f %10.3f %14d %8d%n", mode, frames, times[frames / 2] / 1e6,
+                    times[(int) (frames * 0.99)] / 1e6, times[frames - 1] / 1e6, loadingFrames[0], pages[0]);
+        }
+        Metrics.Histogram paint = Metrics.histogram("calendar.paint");
+        System.out.printf("table paints: %d, p50 %.3f ms, p99 %.3f ms (Metrics \"calendar.paint\")%n",
+                paint.getCount(), paint.getPercentileMillis(50), paint.getPercentileMillis(99));
+        SwingUtilities.invokeAndWait(() -> panel[0].stop());
+    }
+
+    //checks if a visible cell of table wasn't read yet
+    private static boolean showsLoading(JTable table) {
+        Rectangle visible = table.getVisibleRect();
+        int first = table.rowAtPoint(visible.getLocation());
+        int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        for (int row = first; row <= (last < 0 ? table.getRowCount() - 1 : last); row++) {
+            for (int column = 0; column < table.getColumnCount(); column++) {
+                if (table.getModel().getValueAt(row, column) == CalendarTableModel.LOADING) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //lays out component and its children, there's no window which would do it
+    private static void layout(Component component) {
+        component.doLayout();
+        if (component instanceof Container) {
+            for (Component child : ((Container) component).getComponents()) {
+                layout(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+measures the throughput of ReminderManager when several threads read and write at the same time, from one thread
+up to the amount of processors, with different read/write ratios. A synchronized Hashtable<Date, String> (what
+ReminderManager used to wrap) is measured the same way for comparison.
+
+usage: java -cp <classes> ConcurrencyBenchmark [max threads] [milliseconds per run]
+ */
+
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrencyBenchmark {
+
+    private final static int ENTRIES = 200_000;
+    private final static int[] READ_PERCENTS = {100, 90, 50};
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long duration = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+
+        Date[] dates = new Date[ENTRIES];
+        Hashtable<Date, String> hashtable = new Hashtable<>();
+        ReminderManager manager = new ReminderManager();
+        for (int i = 0; i < ENTRIES; i++) {
+            dates[i] = new Date(i % 28 + 1, i / 28 % 12 + 1, 1000 + i / (28 * 12));
+            hashtable.put(dates[i], "reminder " + i);
+            manager.putReminder(dates[i], "reminder " + i);
+        }
+
+        System.out.printf("%-16s %-7s %-8s %16s%n", "implementation", "reads", "threads", "ops/s");
+        for (int readPercent : READ_PERCENTS) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double table = run(threads, duration, readPercent, dates,
+                        date -> hashtable.get(date), (date, text) -> hashtable.put(date, text));
+                System.out.printf("%-16s %-7s %-8d %16.0f%n", "Hashtable", readPercent + "%", threads, table);
+                double concurrent = run(threads, duration, readPercent, dates,
+                        manager::getReminder, manager::putReminder);
+                System.out.printf("%-16s %-7s %-8d %16.0f%n", "ReminderManager", readPercent + "%", threads,
+                        concurrent);
+            }
+        }
+    }
+
+    //runs threads threads for duration milliseconds (after a warmup of the same length) and returns ops/s
+    private static double run(int threads, long duration, int readPercent, Date[] dates, Reader reader,
+                              Writer writer) throws InterruptedException {
+        run(threads, duration, readPercent, dates, reader, writer, new LongAdder());
+        LongAdder operations = new LongAdder();
+        run(threads, duration, readPercent, dates, reader, writer, operations);
+        return operations.sum() / (duration / 1000.0);
+    }
+
+    private static void run(int threads, long duration, int readPercent, Date[] dates, Reader reader,
+                            Writer writer, LongAdder operations) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (running.get()) {
+                    Date date = dates[random.nextInt(dates.length)];
+                    if (random.nextInt(100) < readPercent) {
+                        reader.get(date);
+                    } else {
+                        writer.put(date, "updated");
+                    }
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(duration);
+        running.set(false);
+        done.await();
+    }
+
+    private interface Reader {
+        String get(Date date);
+    }
+
+    private interface Writer {
+        void put(Date date, String text);
+    }
+}
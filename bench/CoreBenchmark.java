@@ -0,0 +1,134 @@
+/*
+baseline benchmark of the core operations on a generated dataset (see DatasetGenerator), run by BenchmarkHarness:
+Date.hashCode()/equals(), ReminderManager.getReminder()/putReminder() on the heap table and saving/reading a whole
+.rem file. Prints time and allocation per operation.
+
+--save <file> stores the scores as a baseline, --baseline <file> compares them with an earlier baseline and exits
+with 1 if a benchmark regressed by more than the tolerance (--tolerance, default 0.15 = 15%). --quick runs fewer
+and shorter iterations, which is enough to spot a large regression.
+
+usage: java -cp <classes> CoreBenchmark [reminders] [mean text length] [FIXED|UNIFORM|SKEWED] [--quick]
+                                        [--save <file>] [--baseline <file>] [--tolerance <fraction>]
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+public class CoreBenchmark {
+
+    private final static int BATCH = 1024; //dates per call of the cheap operations
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        Path save = null;
+        Path baseline = null;
+        double tolerance = 0.15;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--save":
+                    save = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                default:
+                    positional.add(args[i]);
+            }
+        }
+        int reminders = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : 200_000;
+        int textLength = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 40;
+        DatasetGenerator.TextLength distribution = positional.size() > 2
+                ? DatasetGenerator.TextLength.valueOf(positional.get(2).toUpperCase(Locale.ROOT))
+                : DatasetGenerator.TextLength.SKEWED;
+
+        DatasetGenerator generator = new DatasetGenerator(reminders, textLength, distribution, 1, 1900, 1);
+        System.out.println(generator);
+        DateIndexMap table = generator.generate();
+        int[] keys = table.sortedKeys();
+        Random random = new Random(2);
+        Date[] dates = new Date[BATCH];
+        Date[] copies = new Date[BATCH];
+        Date[] missing = new Date[BATCH];
+        String[] texts = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            int key = keys[random.nextInt(keys.length)];
+            dates[i] = Date.fromKey(key);
+            copies[i] = Date.fromKey(key);
+            missing[i] = new Date(29 + random.nextInt(2), 1 + random.nextInt(12), 1900); //never generated
+            texts[i] = table.get(keys[random.nextInt(keys.length)]);
+        }
+        ReminderManager manager = new ReminderManager();
+        manager.setReminderTable(table);
+        Path directory = Files.createTempDirectory("core-bench");
+        String path = directory.resolve("bench.rem").toString();
+        manager.saveToFile(path);
+
+        BenchmarkHarness harness = quick ? new BenchmarkHarness(2, 3, 200) : new BenchmarkHarness();
+        harness.measure("Date.hashCode", BATCH, () -> {
+            long sum = 0;
+            for (Date date : dates) {
+                sum += date.hashCode();
+            }
+            return sum;
+        });
+        harness.measure("Date.equals", BATCH, () -> {
+            long equal = 0;
+            for (int i = 0; i < BATCH; i++) {
+                equal += dates[i].equals(copies[i]) ? 1 : 0;
+                equal += dates[i].equals(copies[(i + 1) & (BATCH - 1)]) ? 1 : 0;
+            }
+            return equal;
+        });
+        harness.measure("ReminderManager.getReminder", BATCH, () -> {
+            long length = 0;
+            for (Date date : dates) {
+                length += manager.getReminder(date).length();
+            }
+            return length;
+        });
+        harness.measure("ReminderManager.getReminder miss", BATCH, () -> {
+            long found = 0;
+            for (Date date : missing) {
+                found += manager.getReminder(date) == null ? 0 : 1;
+            }
+            return found;
+        });
+        int[] next = {0};
+        harness.measure("ReminderManager.putReminder", BATCH, () -> {
+            int offset = next[0]++;
+            for (int i = 0; i < BATCH; i++) {
+                manager.putReminder(dates[i], texts[(i + offset) & (BATCH - 1)]);
+            }
+            return offset;
+        });
+        harness.measure("ReminderManager.saveToFile", () -> {
+            manager.saveToFile(path);
+            return Files.size(Paths.get(path));
+        });
+        harness.measure("ReminderManager.readRemindersFromFile", () -> manager.readRemindersFromFile(path).size());
+
+        if (save != null) {
+            harness.save(save);
+            System.out.println("baseline saved to " + save);
+        }
+        if (baseline != null) {
+            int regressions = harness.compare(baseline, tolerance);
+            if (regressions > 0) {
+                System.out.println(regressions + " regression(s)");
+                System.exit(1);
+            }
+        }
+    }
+}
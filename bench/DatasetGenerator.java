@@ -0,0 +1,159 @@
+/*
+generates synthetic reminder tables and .rem files for the benchmarks. A dataset is described by:
+- the amount of reminders (at most one per day, like in the app)
+- the text length distribution: FIXED (every text has the mean length), UNIFORM (1 to twice the mean) or
+  SKEWED (exponential: mostly short texts and a few long ones, which is what real reminders look like)
+- the date spread: the reminders are scattered over the days of years years starting at firstYear. A spread
+  which has fewer days than reminders is widened
+- optionally a line length (see setLineLength()): long texts are broken into several lines like notes
+The texts are words of a fixed vocabulary picked with a probability of about 1/rank (like natural language), so
+the search index gets a realistic amount of terms. The same arguments and seed always give the same dataset.
+
+usage: java -cp <classes> DatasetGenerator <output.rem> [reminders] [mean text length] [FIXED|UNIFORM|SKEWED]
+                                           [years] [first year] [seed]
+ */
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+public class DatasetGenerator {
+
+    private final static int VOCABULARY = 20_000;
+    private final static int DAYS_PER_YEAR = 28 * 12; //only day 1-28 of every month, every year has them all
+    private final static String[] WORDS = new String[VOCABULARY];
+
+    static {
+        for (int i = 0; i < VOCABULARY; i++) {
+            WORDS[i] = "w" + Integer.toString(i, 36);
+        }
+    }
+
+    public enum TextLength { FIXED, UNIFORM, SKEWED }
+
+    //instance fields
+    private int reminders;
+    private int meanTextLength;
+    private TextLength textLength;
+    private int years;
+    private int firstYear;
+    private long seed;
+    private int lineLength; //0 if texts are a single line
+
+    /*
+    Constructor
+     */
+    public DatasetGenerator(int reminders, int meanTextLength, TextLength textLength, int years, int firstYear,
+                            long seed) {
+        this.reminders = reminders;
+        this.meanTextLength = Math.max(1, meanTextLength);
+        this.textLength = textLength;
+        this.years = Math.max(years, (reminders + DAYS_PER_YEAR - 1) / DAYS_PER_YEAR);
+        this.firstYear = firstYear;
+        this.seed = seed;
+    }
+
+    /*
+    Constructor - skewed texts of about 40 characters spread over as many years as the reminders need
+     */
+    public DatasetGenerator(int reminders) {
+        this(reminders, 40, TextLength.SKEWED, 1, 1900, 1);
+    }
+
+    /*
+    setter - texts longer than lineLength characters are broken into lines of at most about lineLength characters,
+    0 (the default) keeps every text on a single line
+     */
+    public void setLineLength(int lineLength) {
+        this.lineLength = lineLength;
+    }
+
+    //returns the packed dates of the dataset in ascending order
+    public int[] dates() {
+        //every day of the spread is taken with the same probability, in one pass and without duplicates
+        Random random = new Random(this.seed);
+        int days = this.years * DAYS_PER_YEAR;
+        int[] dates = new int[this.reminders];
+        int count = 0;
+        for (int day = 0; day < days && count < this.reminders; day++) {
+            if (random.nextInt(days - day) < this.reminders - count) {
+                dates[count++] = new Date(day % 28 + 1, day / 28 % 12 + 1, this.firstYear + day / DAYS_PER_YEAR)
+                        .getKey();
+            }
+        }
+        return dates;
+    }
+
+    //returns the dataset as a table
+    public DateIndexMap generate() {
+        Random random = new Random(this.seed + 1);
+        DateIndexMap table = new DateIndexMap(this.reminders);
+        for (int date : this.dates()) {
+            table.put(date, this.text(random));
+        }
+        return table;
+    }
+
+    //writes the dataset as a .rem file (and its search index next to it)
+    public void writeFile(Path path) {
+        ReminderManager manager = new ReminderManager();
+        manager.setTextCompression(false); //the reminders are only written, compressing them would be wasted time
+        manager.setReminderTable(this.generate());
+        manager.saveToFile(path.toString());
+    }
+
+    private String text(Random random) {
+        int length;
+        switch (this.textLength) {
+            case FIXED:
+                length = this.meanTextLength;
+                break;
+            case UNIFORM:
+                length = 1 + random.nextInt(2 * this.meanTextLength);
+                break;
+            default:
+                length = 1 + (int) (-Math.log(1 - random.nextDouble()) * this.meanTextLength);
+        }
+        StringBuilder text = new StringBuilder(length + 8);
+        int lineStart = 0;
+        while (text.length() < length) {
+            int word = (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+            if (text.length() > 0) {
+                if (this.lineLength > 0 && text.length() + 1 + WORDS[word].length() - lineStart > this.lineLength) {
+                    text.append('\n');
+                    lineStart = text.length();
+                } else {
+                    text.append(' ');
+                }
+            }
+            text.append(WORDS[word]);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d reminders, %s texts of %d characters%s, %d years from %d", this.reminders,
+                this.textLength.name().toLowerCase(Locale.ROOT), this.meanTextLength,
+                this.lineLength > 0 ? " in lines of " + this.lineLength : "", this.years, this.firstYear);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("usage: DatasetGenerator <output.rem> [reminders] [mean text length] "
+                    + "[FIXED|UNIFORM|SKEWED] [years] [first year] [seed]");
+            System.exit(Utils.BAD_EXIT);
+        }
+        DatasetGenerator generator = new DatasetGenerator(
+                args.length > 1 ? Integer.parseInt(args[1]) : 100_000,
+                args.length > 2 ? Integer.parseInt(args[2]) : 40,
+                args.length > 3 ? TextLength.valueOf(args[3].toUpperCase(Locale.ROOT)) : TextLength.SKEWED,
+                args.length > 4 ? Integer.parseInt(args[4]) : 1,
+                args.length > 5 ? Integer.parseInt(args[5]) : 1900,
+                args.length > 6 ? Long.parseLong(args[6]) : 1);
+        generator.writeFile(Paths.get(args[0]));
+        System.out.println(generator + " written to " + args[0]);
+    }
+}
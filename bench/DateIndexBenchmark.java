@@ -0,0 +1,130 @@
+/*
+compares lookups and puts per second and the bytes allocated per operation of:
+1) Hashtable keyed by Date with the old string based hash code (what ReminderManager used to do)
+2) Hashtable keyed by Date with the packed hash code
+3) DateIndexMap keyed by the packed date
+
+usage: java -cp <classes> DateIndexBenchmark [entries] [operations per round]
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+
+public class DateIndexBenchmark {
+
+    private final static int ROUNDS = 5; //the first round is a warmup
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        Date[] dates = new Date[entries];
+        for (int i = 0; i < entries; i++) {
+            dates[i] = new Date(i % 28 + 1, i / 28 % 12 + 1, 1000 + i / (28 * 12));
+        }
+
+        Hashtable<OldHashDate, String> oldTable = new Hashtable<>();
+        Hashtable<Date, String> table = new Hashtable<>();
+        DateIndexMap map = new DateIndexMap();
+
+        System.out.printf("%-22s %-5s %14s %14s%n", "implementation", "op", "ops/s", "bytes/op");
+        report("Hashtable, old hash", "put", operations, () -> {
+            for (int i = 0; i < operations; i++) {
+                Date date = dates[i % entries];
+                oldTable.put(new OldHashDate(date.getDay(), date.getMonth(), date.getYear()), "text");
+            }
+        });
+        report("Hashtable, old hash", "get", operations, () -> {
+            for (int i = 0; i < operations; i++) {
+                Date date = dates[(i * 7) % entries];
+                sink += oldTable.get(new OldHashDate(date.getDay(), date.getMonth(), date.getYear())).length();
+            }
+        });
+        report("Hashtable, packed hash", "put", operations, () -> {
+            for (int i = 0; i < operations; i++) {
+                Date date = dates[i % entries];
+                table.put(new Date(date.getDay(), date.getMonth(), date.getYear()), "text");
+            }
+        });
+        report("Hashtable, packed hash", "get", operations, () -> {
+            for (int i = 0; i < operations; i++) {
+                Date date = dates[(i * 7) % entries];
+                sink += table.get(new Date(date.getDay(), date.getMonth(), date.getYear())).length();
+            }
+        });
+        report("DateIndexMap", "put", operations, () -> {
+            for (int i = 0; i < operations; i++) {
+                map.put(dates[i % entries].getKey(), "text");
+            }
+        });
+        report("DateIndexMap", "get", operations, () -> {
+            for (int i = 0; i < operations; i++) {
+                sink += map.get(dates[(i * 7) % entries].getKey()).length();
+            }
+        });
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    //runs task ROUNDS times and prints the throughput and allocation of the best round
+    private static void report(String name, String operation, int operations, Runnable task) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bestTime = Long.MAX_VALUE;
+        long bestAllocated = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            task.run();
+            long time = System.nanoTime() - start;
+            allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+            if (round > 0) {
+                bestTime = Math.min(bestTime, time);
+                bestAllocated = Math.min(bestAllocated, allocated);
+            }
+        }
+        System.out.printf("%-22s %-5s %14.0f %14.1f%n", name, operation, operations / (bestTime / 1e9),
+                (double) bestAllocated / operations);
+    }
+
+    //a Date with the hash code it had before the packed key, built from toString()
+    private static class OldHashDate {
+        private int day;
+        private int month;
+        private int year;
+
+        OldHashDate(int day, int month, int year) {
+            this.day = day;
+            this.month = month;
+            this.year = year;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof OldHashDate)) {
+                return false;
+            }
+            OldHashDate d = (OldHashDate) o;
+            return this.day == d.day && this.month == d.month && this.year == d.year;
+        }
+
+        @Override
+        public String toString() {
+            String day = Utils.EMPTY_STR + this.day;
+            String month = Utils.EMPTY_STR + this.month;
+            if (this.day < Utils.TEN) {
+                day = Utils.ZERO_STR + this.day;
+            }
+            if (this.month < Utils.TEN) {
+                month = Utils.ZERO_STR + this.month;
+            }
+            return Utils.EMPTY_STR + day + month + this.year;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.toString().hashCode();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+compares the binary .rem format with Java serialization of Hashtable<Date, String>: save and load throughput
+(entries per second) and file size at 10k, 100k and 1M reminders.
+
+usage: java -cp <classes> FileFormatBenchmark [iterations per size]
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Hashtable;
+
+public class FileFormatBenchmark {
+
+    private final static int[] SIZES = {10_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Path dir = Files.createTempDirectory("format-bench");
+        Path serialized = dir.resolve("serialized.rem");
+        Path binary = dir.resolve("binary.rem");
+
+        System.out.printf("%-10s %-12s %14s %14s %12s%n", "entries", "format", "save entries/s", "load entries/s",
+                "file bytes");
+        for (int size : SIZES) {
+            Hashtable<Date, String> legacyTable = legacyTable(size);
+            DateIndexMap table = ReminderFileFormat.read(writeSerialized(legacyTable, serialized));
+
+            double[] serializedResult = measure(size, iterations, () -> writeSerialized(legacyTable, serialized),
+                    () -> readSerialized(serialized));
+            print(size, "serialized", serializedResult, Files.size(serialized));
+
+            double[] binaryResult = measure(size, iterations, () -> ReminderFileFormat.write(table, binary, true),
+                    () -> ReminderFileFormat.read(binary));
+            print(size, "binary", binaryResult, Files.size(binary));
+        }
+    }
+
+    //the first iteration is a warmup, the best of the rest is reported
+    private static double[] measure(int size, int iterations, Task save, Task load) throws Exception {
+        long bestSave = Long.MAX_VALUE;
+        long bestLoad = Long.MAX_VALUE;
+        for (int i = 0; i <= iterations; i++) {
+            long start = System.nanoTime();
+            save.run();
+            long saveTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            load.run();
+            long loadTime = System.nanoTime() - start;
+
+            if (i > 0) {
+                bestSave = Math.min(bestSave, saveTime);
+                bestLoad = Math.min(bestLoad, loadTime);
+            }
+        }
+        return new double[]{size / (bestSave / 1e9), size / (bestLoad / 1e9)};
+    }
+
+    private static void print(int size, String format, double[] result, long bytes) {
+        System.out.printf("%-10d %-12s %14.0f %14.0f %12d%n", size, format, result[0], result[1], bytes);
+    }
+
+    //the way .rem files were saved before ReminderFileFormat
+    private static Path writeSerialized(Hashtable<Date, String> table, Path path) throws IOException {
+        try (ObjectOutputStream output = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeObject(table);
+        }
+        return path;
+    }
+
+    //the way .rem files were read before ReminderFileFormat
+    private static Object readSerialized(Path path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return input.readObject();
+        }
+    }
+
+    //distinct dates, one per day starting at year 1000
+    private static Hashtable<Date, String> legacyTable(int size) {
+        Hashtable<Date, String> table = new Hashtable<>();
+        for (int i = 0; i < size; i++) {
+            table.put(new Date(i % 28 + 1, i / 28 % 12 + 1, 1000 + i / (28 * 12)), "reminder number " + i);
+        }
+        return table;
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+load generator for ReminderService: a closed loop of requests (90% GET of a random day, 10% PUT) from a rising
+number of concurrent clients. Reports requests per second and the p50/p99 latency for every concurrency level.
+Without a url a service is started in-process on a temporary .rem file with the given amount of reminders.
+
+usage: java -cp <classes> HttpLoadGenerator [max clients] [seconds per level] [url of a running service]
+ */
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class HttpLoadGenerator {
+
+    private final static int DAYS = 100_000; //requests go to the days after FIRST_DAY
+    private final static LocalDate FIRST_DAY = LocalDate.of(2000, 1, 1);
+    private final static int WRITE_PERCENT = 10;
+
+    public static void main(String[] args) throws Exception {
+        int maxClients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        long duration = (args.length > 1 ? Long.parseLong(args[1]) : 3) * 1000;
+
+        ReminderService service = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            Path path = Files.createTempDirectory("http-bench").resolve("bench.rem");
+            service = new ReminderService(path.toString(), 0);
+            for (int i = 0; i < DAYS; i += 2) {
+                LocalDate day = FIRST_DAY.plusDays(i);
+                service.getReminderManager().putReminder(
+                        new Date(day.getDayOfMonth(), day.getMonthValue(), day.getYear()), "reminder " + i);
+            }
+            service.start();
+            url = "http://localhost:" + service.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+        System.out.printf("%-8s %12s %10s %10s %8s%n", "clients", "requests/s", "p50 ms", "p99 ms", "errors");
+        for (int clients = 1; clients <= maxClients; clients *= 2) {
+            run(client, url, clients, duration / 2); //warmup
+            long[] errors = new long[1];
+            long[] latencies = run(client, url, clients, duration, errors);
+            Arrays.sort(latencies);
+            System.out.printf("%-8d %12.0f %10.3f %10.3f %8d%n", clients, latencies.length / (duration / 1000.0),
+                    percentile(latencies, 50), percentile(latencies, 99), errors[0]);
+        }
+        if (service != null) {
+            service.stop();
+        }
+        System.exit(0); //the client's threads would keep the JVM alive
+    }
+
+    private static void run(HttpClient client, String url, int clients, long duration) throws Exception {
+        run(client, url, clients, duration, new long[1]);
+    }
+
+    //runs clients clients for duration milliseconds and returns the latency of every request in nanoseconds
+    private static long[] run(HttpClient client, String url, int clients, long duration, long[] errors)
+            throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(clients);
+        List<long[]> perClient = new ArrayList<>();
+        long[] errorsPerClient = new long[clients];
+        ExecutorService threads = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            int clientIndex = c;
+            threads.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (running.get()) {
+                    String uri = url + "/reminders/" + FIRST_DAY.plusDays(random.nextInt(DAYS));
+                    HttpRequest request = random.nextInt(100) < WRITE_PERCENT
+                            ? HttpRequest.newBuilder(URI.create(uri))
+                                    .PUT(HttpRequest.BodyPublishers.ofString("updated " + count)).build()
+                            : HttpRequest.newBuilder(URI.create(uri)).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+                        if (status >= 500) {
+                            errorsPerClient[clientIndex]++;
+                        }
+                    } catch (Exception e) {
+                        errorsPerClient[clientIndex]++;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                synchronized (perClient) {
+                    perClient.add(Arrays.copyOf(latencies, count));
+                }
+                done.countDown();
+            });
+        }
+        Thread.sleep(duration);
+        running.set(false);
+        done.await();
+        threads.shutdown();
+
+        int total = 0;
+        for (long[] latencies : perClient) {
+            total += latencies.length;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] latencies : perClient) {
+            System.arraycopy(latencies, 0, all, position, latencies.length);
+            position += latencies.length;
+        }
+        for (long clientErrors : errorsPerClient) {
+            errors[0] += clientErrors;
+        }
+        return all;
+    }
+
+    //the p-th percentile of sorted latencies in milliseconds
+    private static double percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) ((long) sorted.length * p / 100))] / 1e6;
+    }
+}
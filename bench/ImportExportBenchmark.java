@@ -0,0 +1,110 @@
+/*
+measures ReminderImporter and ReminderExporter on a generated CSV file: importing it with one parser thread and
+with one per processor, then exporting the reminders as CSV and as iCalendar. Every import goes into a new .rem
+file with its journal, like "ReminderMain --import" does. The file is written row by row, so rows * text length
+may be far larger than the heap (e.g. 20000000 rows of 100 characters for 2 GB; the dates run out after about
+3 million rows, later rows are joined to the reminder of their date).
+
+usage: java -cp <classes> ImportExportBenchmark [rows] [text length]
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class ImportExportBenchmark {
+
+    private final static int FIRST_YEAR = 1000;
+    private final static int DATES = 28 * 12 * 9000; //day 1-28 of every month from FIRST_YEAR on
+    private final static int VOCABULARY = 20_000;
+    private final static int ROUNDS = 2; //the first round is a warmup
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int textLength = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+
+        Path directory = Files.createTempDirectory("import-bench");
+        Path csv = directory.resolve("input.csv");
+        generate(csv, rows, textLength);
+        long size = Files.size(csv);
+        System.out.printf("%d rows, %.1f MB%n", rows, size / 1e6);
+
+        System.out.printf("%-24s %16s %12s%n", "operation", "records/s", "MB/s");
+        int processors = Runtime.getRuntime().availableProcessors();
+        ReminderManager imported = null;
+        for (int threads : new int[]{1, processors}) {
+            double best = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                if (imported != null) {
+                    imported.closeJournal();
+                }
+                imported = new ReminderManager();
+                imported.openJournal(directory.resolve("import" + round + ".rem").toString(), false);
+                ReminderImporter.Result result = new ReminderImporter(imported, threads).importFile(csv);
+                sink += result.getRecords();
+                if (round > 0) {
+                    best = Math.min(best, size / 1e6 / result.getMegabytesPerSecond());
+                }
+            }
+            System.out.printf("%-24s %16.0f %12.1f%n", "import, " + threads + " thread" + (threads > 1 ? "s" : ""),
+                    rows / best, size / 1e6 / best);
+        }
+
+        for (String format : new String[]{"csv", "ics"}) {
+            Path output = directory.resolve("output." + format);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                sink += ReminderExporter.export(imported, output);
+                if (round > 0) {
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+            }
+            long reminders = Math.min(rows, DATES);
+            System.out.printf("%-24s %16.0f %12.1f%n", "export, " + format, reminders / (best / 1e9),
+                    Files.size(output) / 1e6 / (best / 1e9));
+        }
+        imported.closeJournal();
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    /*
+    rows lines of "yyyy-mm-dd,text". The texts are words of a vocabulary (picked like in SearchBenchmark, so the
+    search index gets a realistic amount of terms), every tenth text contains a comma and needs quotes
+     */
+    private static void generate(Path path, int rows, int textLength) throws IOException {
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = "w" + Integer.toString(i, 36);
+        }
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder();
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 1 << 20)) {
+            writer.write("date,text\n");
+            for (int i = 0; i < rows; i++) {
+                int date = i % DATES;
+                writer.write(String.format("%04d-%02d-%02d,", FIRST_YEAR + date / (28 * 12), date / 28 % 12 + 1,
+                        date % 28 + 1));
+                text.setLength(0);
+                while (text.length() < textLength) {
+                    int word = (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)));
+                    text.append(words[word]).append(i % 10 == 0 && text.length() == 0 ? ", " : " ");
+                }
+                if (i % 10 == 0) {
+                    writer.write('"');
+                    writer.append(text);
+                    writer.write('"');
+                } else {
+                    writer.append(text);
+                }
+                writer.write('\n');
+            }
+        }
+    }
+}
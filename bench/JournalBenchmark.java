@@ -0,0 +1,87 @@
+/*
+compares saving a single reminder through the journal with the old approach of rewriting the whole .rem file,
+and measures how long it takes to recover (read the snapshot and replay the journal) after a restart.
+
+usage: java -cp <classes> JournalBenchmark [reminders in table] [measured puts]
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class JournalBenchmark {
+
+    private final static int FULL_REWRITE_PUTS = 20; //full rewrites are slow, a few samples are enough
+
+    public static void main(String[] args) throws IOException {
+        int reminders = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int puts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Path dir = Files.createTempDirectory("journal-bench");
+        String path = dir.resolve("bench.rem").toString();
+        Random random = new Random(42);
+
+        //initial snapshot of the requested size
+        ReminderManager manager = new ReminderManager();
+        manager.setReminderTable(randomTable(random, reminders));
+        manager.saveToFile(path);
+
+        //1) full rewrite after every put - what calling saveToFile more often would cost
+        long[] rewrite = new long[FULL_REWRITE_PUTS];
+        for (int i = 0; i < rewrite.length; i++) {
+            long start = System.nanoTime();
+            manager.putReminder(randomDate(random), "rewrite " + i);
+            manager.saveToFile(path);
+            rewrite[i] = System.nanoTime() - start;
+        }
+        report("full rewrite put", rewrite);
+
+        //2) journaled put
+        manager.openJournal(path, true);
+        long[] journaled = new long[puts];
+        for (int i = 0; i < journaled.length; i++) {
+            long start = System.nanoTime();
+            manager.putReminder(randomDate(random), "journal " + i);
+            journaled[i] = System.nanoTime() - start;
+        }
+        report("journaled put", journaled);
+        manager.closeJournal();
+
+        //3) recovery: snapshot + journal replay
+        long start = System.nanoTime();
+        ReminderManager recovered = new ReminderManager();
+        recovered.setReminderTable(recovered.readRemindersFromFile(path));
+        recovered.openJournal(path, true);
+        long recovery = System.nanoTime() - start;
+        recovered.closeJournal();
+        System.out.printf("recovery (snapshot + %d journal records): %.1f ms%n", puts, recovery / 1e6);
+
+        //4) recovery from a fully rewritten file, as the app did before the journal
+        manager.saveToFile(path);
+        start = System.nanoTime();
+        new ReminderManager().readRemindersFromFile(path);
+        System.out.printf("recovery (full file): %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+
+    private static DateIndexMap randomTable(Random random, int size) {
+        DateIndexMap table = new DateIndexMap(size);
+        for (int i = 0; i < size; i++) {
+            table.put(randomDate(random).getKey(), "reminder number " + i);
+        }
+        return table;
+    }
+
+    //dates are spread over many years so the table can actually hold size reminders
+    private static Date randomDate(Random random) {
+        return new Date(1 + random.nextInt(28), 1 + random.nextInt(12), 1000 + random.nextInt(9000));
+    }
+
+    private static void report(String name, long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        double average = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%s: avg %.1f us, p50 %.1f us, p99 %.1f us (%d samples)%n", name, average / 1e3,
+                sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3, sorted.length);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+compares opening a .rem file by memory-mapping it with loading it into the hash table: startup latency, heap
+retained after startup and the cost of a lookup.
+
+usage: java -cp <classes> MappedStoreBenchmark [entries...]
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class MappedStoreBenchmark {
+
+    private final static int LOOKUPS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {100_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Path dir = Files.createTempDirectory("mapped-bench");
+
+        System.out.printf("%-10s %-8s %12s %14s %14s%n", "entries", "backend", "startup ms", "retained MB",
+                "lookup ns");
+        for (int size : sizes) {
+            Path path = dir.resolve("bench" + size + ".rem");
+            ReminderFileFormat.write(table(size), path, true);
+
+            for (String backend : new String[]{"heap", "mapped"}) {
+                long before = usedHeap();
+                long start = System.nanoTime();
+                ReminderManager manager = new ReminderManager();
+                if (backend.equals("heap")) {
+                    manager.setReminderTable(manager.readRemindersFromFile(path.toString()));
+                } else {
+                    manager.mapRemindersFile(path.toString());
+                }
+                long startup = System.nanoTime() - start;
+                long retained = usedHeap() - before;
+
+                System.out.printf("%-10d %-8s %12.1f %14.1f %14.0f%n", size, backend, startup / 1e6,
+                        retained / (1024.0 * 1024.0), lookup(manager, size));
+            }
+        }
+    }
+
+    //average time of a random lookup in nanoseconds
+    private static double lookup(ReminderManager manager, int size) {
+        Random random = new Random(7);
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int n = random.nextInt(size);
+            if (manager.getReminder(date(n)) != null) {
+                found++;
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (found != LOOKUPS) {
+            throw new IllegalStateException("missing reminders");
+        }
+        return (double) time / LOOKUPS;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    //distinct dates, one per day starting at year 1000
+    private static Date date(int i) {
+        return new Date(i % 28 + 1, i / 28 % 12 + 1, 1000 + i / (28 * 12));
+    }
+
+    private static DateIndexMap table(int size) {
+        DateIndexMap table = new DateIndexMap(size);
+        for (int i = 0; i < size; i++) {
+            table.put(date(i).getKey(), "reminder number " + i);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+runs several processes (child JVMs) which save reminders to the same .rem file at the same time, like several
+windows of the app or an app and a ReminderService opened on a shared file. Measures the put throughput of each
+process while they compete for the journal (compare with JournalBenchmark) and how long it takes until a reminder
+saved by one process shows up in another one (half the round trip of a ping answered by the other process). That no
+update is lost is checked by test/MultiProcessTest.
+
+usage: java -cp <classes> MultiProcessBenchmark [processes] [puts per process] [pings]
+ */
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class MultiProcessBenchmark {
+
+    private final static String CHILD_ARG = "--child";
+    private final static int SHARED_DATES = 100; //dates every process saves reminders for
+    private final static int SHARED_EVERY = 10; //every 10th put goes to a shared date
+    private final static int COMPACT_EVERY = 5000; //puts between two compactions forced by each process
+    private final static int SHARED_YEAR = 9000;
+    private final static int PING_YEAR = 9100; //up to 300 years of pings
+    private final static int PONG_YEAR = 9500;
+    private final static int DONE_YEAR = 9990; //each process saves a reminder there once all its puts are done
+    private final static long WAIT_S = 60; //the benchmark fails if a reminder of another process takes longer
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD_ARG)) {
+            child(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                    Integer.parseInt(args[5]));
+            return;
+        }
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int puts = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int pings = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        Path dir = Files.createTempDirectory("multi-process-bench");
+        String path = dir.resolve("bench.rem").toString();
+
+        //an empty .rem file all processes open
+        ReminderManager manager = new ReminderManager();
+        manager.openJournal(path, false);
+        manager.closeJournal();
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> children = new ArrayList<>();
+        for (int id = 0; id < processes; id++) {
+            children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    MultiProcessBenchmark.class.getName(), CHILD_ARG, path, Integer.toString(id),
+                    Integer.toString(processes), Integer.toString(puts), Integer.toString(pings))
+                    .redirectErrorStream(true).start());
+        }
+        boolean failed = false;
+        for (Process child : children) {
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    System.out.println(line);
+                }
+            }
+            failed |= child.waitFor() != 0;
+        }
+        if (failed) {
+            System.out.println("FAILED: a process didn't see the reminders of the others");
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+
+    private static void child(String path, int id, int processes, int puts, int pings) throws Exception {
+        ReminderManager manager = new ReminderManager();
+        if (!manager.mapRemindersFile(path)) {
+            manager.setReminderTable(manager.readRemindersFromFile(path));
+        }
+        manager.openJournal(path, true);
+        //wakes up the waits below, a reload after a missed compaction doesn't tell which reminders changed
+        BlockingQueue<Object> changed = new LinkedBlockingQueue<>();
+        manager.addChangeListener(new ReminderManager.ChangeListener() {
+            @Override
+            public void reminderChanged(Date date, String text) {
+                if (date.getYear() >= PING_YEAR) {
+                    changed.add(date);
+                }
+            }
+
+            @Override
+            public void reloaded() {
+                changed.add(path);
+            }
+        });
+
+        //1) all processes put at the same time, every put reaches the journal before it returns
+        long start = System.nanoTime();
+        for (int i = 0; i < puts; i++) {
+            manager.putReminder(ownDate(id, i), "process " + id + " reminder " + i);
+            if (i % SHARED_EVERY == 0) {
+                manager.putReminder(sharedDate(i / SHARED_EVERY % SHARED_DATES), "process " + id + " shared " + i);
+            }
+            if (i % COMPACT_EVERY == COMPACT_EVERY - 1) {
+                manager.compactJournal();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        int written = puts + (puts + SHARED_EVERY - 1) / SHARED_EVERY;
+        System.out.printf("process %d: %d puts in %.1f ms, %.0f puts/s%n", id, written, elapsed / 1e6,
+                written / (elapsed / 1e9));
+
+        //2) wait until the others are done
+        manager.putReminder(day(DONE_YEAR, id), "done");
+        for (int other = 0; other < processes; other++) {
+            await(manager, changed, day(DONE_YEAR, other));
+        }
+
+        //3) latency: process 0 pings, process 1 answers
+        if (processes > 1 && id < 2) {
+            long[] latencies = new long[pings];
+            for (int i = 0; i < pings; i++) {
+                if (id == 0) {
+                    long sent = System.nanoTime();
+                    manager.putReminder(day(PING_YEAR, i), "ping " + i);
+                    await(manager, changed, day(PONG_YEAR, i));
+                    latencies[i] = (System.nanoTime() - sent) / 2;
+                } else {
+                    await(manager, changed, day(PING_YEAR, i));
+                    manager.putReminder(day(PONG_YEAR, i), "pong " + i);
+                }
+            }
+            if (id == 0) {
+                report("process 0: reminder visible in another process", latencies);
+            }
+        }
+        Metrics.Histogram reload = Metrics.histogram("journal.reload");
+        System.out.printf("process %d: %s%n", id, reload);
+        manager.closeJournal();
+        System.exit(Utils.NORMAL_EXIT);
+    }
+
+    //waits until manager has a reminder for date, checks again whenever the listener reports a change
+    private static void await(ReminderManager manager, BlockingQueue<Object> changed, Date date)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_S);
+        while (manager.getReminder(date) == null) {
+            if (changed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) == null) {
+                throw new IllegalStateException("no reminder for " + date.getKey());
+            }
+        }
+    }
+
+    //each process saves its reminders to its own 1000 years
+    private static Date ownDate(int id, int i) {
+        return day(1000 + id * 1000, i);
+    }
+
+    private static Date sharedDate(int i) {
+        return day(SHARED_YEAR, i);
+    }
+
+    //the i-th date from the first of January of year on, only using the days every month has
+    private static Date day(int year, int i) {
+        return new Date(1 + i % 28, 1 + i / 28 % 12, year + i / (28 * 12));
+    }
+
+    private static void report(String name, long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        double average = Arrays.stream(sorted).average().orElse(0);
+        System.out.printf("%s: avg %.2f ms, p50 %.2f ms, p99 %.2f ms (%d samples)%n", name, average / 1e6,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6, sorted.length);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+measures the scheduling overhead of ReminderNotifier with many future reminders:
+1) starting the notifier, compared to building a PriorityQueue of all future dates (the textbook approach)
+2) a tick: moving the clock one day forward and firing the reminders of that day
+3) putReminder() with the notifier listening, compared to putReminder() without it
+
+usage: java -cp <classes> NotifierBenchmark [reminders] [ticks]
+ */
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.PriorityQueue;
+
+public class NotifierBenchmark {
+
+    private final static LocalDate FIRST_DAY = LocalDate.of(2000, 1, 1);
+    private final static int PUTS = 1_000_000;
+    private final static int ROUNDS = 4; //the first round is a warmup
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) {
+        int reminders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        //a reminder on every day starting at FIRST_DAY
+        DateIndexMap table = new DateIndexMap(reminders);
+        Date[] dates = new Date[reminders];
+        LocalDate day = FIRST_DAY;
+        for (int i = 0; i < reminders; i++) {
+            dates[i] = new Date(day.getDayOfMonth(), day.getMonthValue(), day.getYear());
+            table.put(dates[i].getKey(), "reminder " + i);
+            day = day.plusDays(1);
+        }
+        ReminderManager manager = new ReminderManager();
+        manager.setReminderTable(table);
+
+        System.out.printf("%-32s %14s%n", "operation", "us/op");
+        double queue = best(() -> {
+            PriorityQueue<Integer> pending = new PriorityQueue<>();
+            for (Date date : dates) {
+                pending.add(date.getKey());
+            }
+            sink += pending.peek();
+        }, 1);
+        System.out.printf("%-32s %14.2f%n", "PriorityQueue of all dates", queue);
+
+        MutableClock clock = new MutableClock(FIRST_DAY.atStartOfDay(ZoneOffset.UTC).toInstant());
+        ReminderNotifier[] notifier = new ReminderNotifier[1];
+        double start = best(() -> {
+            if (notifier[0] != null) {
+                notifier[0].stop();
+            }
+            clock.instant = FIRST_DAY.atStartOfDay(ZoneOffset.UTC).toInstant();
+            notifier[0] = new ReminderNotifier(manager, clock, reminder -> sink += reminder.getText().length());
+            notifier[0].start();
+        }, 1);
+        System.out.printf("%-32s %14.2f%n", "ReminderNotifier.start()", start);
+
+        double tick = best(() -> {
+            for (int i = 0; i < ticks; i++) {
+                clock.instant = clock.instant.plusSeconds(24 * 60 * 60);
+                notifier[0].fireDue();
+            }
+        }, ticks);
+        System.out.printf("%-32s %14.2f%n", "tick (one day, one reminder)", tick);
+
+        //puts land on future dates, so the notifier only compares them with the next due date
+        double withNotifier = best(() -> {
+            for (int i = 0; i < PUTS; i++) {
+                manager.putReminder(dates[reminders - 1 - i % (reminders / 2)], "updated");
+            }
+        }, PUTS);
+        notifier[0].stop();
+        double withoutNotifier = best(() -> {
+            for (int i = 0; i < PUTS; i++) {
+                manager.putReminder(dates[reminders - 1 - i % (reminders / 2)], "updated");
+            }
+        }, PUTS);
+        System.out.printf("%-32s %14.3f%n", "putReminder() with notifier", withNotifier);
+        System.out.printf("%-32s %14.3f%n", "putReminder() without notifier", withoutNotifier);
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    //microseconds per operation of the best round, task performs operations operations per round
+    private static double best(Runnable task, int operations) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.run();
+            long time = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, time);
+            }
+        }
+        return best / 1e3 / operations;
+    }
+
+    //a clock which only moves when the benchmark moves it
+    private static class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return this.instant;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+compares a partitioned .rem file (one segment per year, see PartitionedReminderStore) with a single memory-mapped
+.rem file: opening the file (mostly reading the search index, which both have), the first lookup after opening it
+(the partitioned file loads the year of the date) and what saving a single changed reminder costs (the single file
+is rewritten completely, the partitioned file only rewrites the year of the change).
+
+usage: java -cp <classes> PartitionBenchmark [reminders]
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PartitionBenchmark {
+
+    private final static int ROUNDS = 5; //the best round is reported
+
+    public static void main(String[] args) throws Exception {
+        int reminders = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        DatasetGenerator generator = new DatasetGenerator(reminders);
+        int[] dates = generator.dates();
+        Date middle = Date.fromKey(dates[dates.length / 2]);
+
+        Path dir = Files.createTempDirectory("partition-bench");
+        Path single = dir.resolve("single.rem");
+        generator.writeFile(single);
+        Path partitioned = dir.resolve("partitioned.rem");
+        Files.copy(single, partitioned);
+        ReminderManager converter = new ReminderManager();
+        converter.mapRemindersFile(partitioned.toString());
+        converter.openJournal(partitioned.toString(), true); //converts the file
+        converter.closeJournal();
+
+        System.out.println(generator);
+        System.out.printf("%-12s %10s %14s %10s %16s%n", "file", "open ms", "first get ms", "save ms",
+                "bytes per save");
+        //the files take turns so that both see the same heap and JIT state
+        Path[] paths = {single, partitioned};
+        long[] open = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] get = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] save = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] bytes = new long[2];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < paths.length; i++) {
+                boolean isPartitioned = paths[i] == partitioned;
+                System.gc(); //the previous round left a lot of garbage
+                long start = System.nanoTime();
+                ReminderManager manager = new ReminderManager();
+                manager.mapRemindersFile(paths[i].toString());
+                open[i] = Math.min(open[i], System.nanoTime() - start);
+                start = System.nanoTime();
+                manager.getReminder(middle);
+                get[i] = Math.min(get[i], System.nanoTime() - start);
+
+                if (isPartitioned) {
+                    manager.openJournal(paths[i].toString(), true);
+                }
+                manager.putReminder(middle, "edited " + round);
+                start = System.nanoTime();
+                if (isPartitioned) {
+                    manager.compactJournal();
+                } else {
+                    manager.saveToFile(paths[i].toString());
+                }
+                save[i] = Math.min(save[i], System.nanoTime() - start);
+                bytes[i] = manager.getSaveMetrics().getLastSaveBytes();
+                manager.closeJournal();
+            }
+        }
+        for (int i = 0; i < paths.length; i++) {
+            System.out.printf("%-12s %10.1f %14.3f %10.1f %16d%n", paths[i] == partitioned ? "partitioned" : "single",
+                    open[i] / 1e6, get[i] / 1e6, save[i] / 1e6, bytes[i]);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+compares fetching the reminders of a week, a month and a year with getRemindersBetween() against probing every
+day of the period with getReminder() (which is what the agenda and weekly views had to do), on the heap backend
+and on the memory-mapped backend.
+
+usage: java -cp <classes> RangeQueryBenchmark [years of data]
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+
+public class RangeQueryBenchmark {
+
+    private final static int FIRST_YEAR = 1900;
+    private final static int QUERIES = 20_000;
+    private final static int ROUNDS = 4; //the first round is a warmup
+    private final static int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) throws Exception {
+        int years = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        //a reminder on every second day
+        DateIndexMap table = new DateIndexMap();
+        for (int year = FIRST_YEAR; year < FIRST_YEAR + years; year++) {
+            for (int month = 1; month <= 12; month++) {
+                for (int day = 1; day <= DAYS_IN_MONTH[month - 1]; day += 2) {
+                    table.put(new Date(day, month, year).getKey(), "reminder " + day + "/" + month + "/" + year);
+                }
+            }
+        }
+        ReminderManager heap = new ReminderManager();
+        heap.setReminderTable(table);
+        Path path = Files.createTempDirectory("range-bench").resolve("bench.rem");
+        heap.saveToFile(path.toString());
+        ReminderManager mapped = new ReminderManager();
+        mapped.mapRemindersFile(path.toString());
+
+        System.out.printf("%-8s %-7s %16s %16s%n", "backend", "period", "range us/query", "probes us/query");
+        for (String backend : new String[]{"heap", "mapped"}) {
+            ReminderManager manager = backend.equals("heap") ? heap : mapped;
+            for (String period : new String[]{"week", "month", "year"}) {
+                double range = measure(manager, period, years, true);
+                double probes = measure(manager, period, years, false);
+                System.out.printf("%-8s %-7s %16.2f %16.2f%n", backend, period, range, probes);
+            }
+        }
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    //average microseconds per query over the best round
+    private static double measure(ReminderManager manager, String period, int years, boolean range) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            Random random = new Random(round);
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                int year = FIRST_YEAR + random.nextInt(years);
+                int month = period.equals("year") ? 1 : 1 + random.nextInt(12);
+                int day = period.equals("week") ? 1 + random.nextInt(DAYS_IN_MONTH[month - 1] - 6) : 1;
+                Date from = new Date(day, month, year);
+                Date to = period.equals("week") ? new Date(day + 6, month, year)
+                        : period.equals("month") ? new Date(DAYS_IN_MONTH[month - 1], month, year)
+                        : new Date(31, 12, year);
+                sink += range ? scan(manager, from, to) : probe(manager, from, to);
+            }
+            if (round > 0) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        return best / 1e3 / QUERIES;
+    }
+
+    private static int scan(ReminderManager manager, Date from, Date to) {
+        int length = 0;
+        Iterator<Reminder> reminders = manager.getRemindersBetween(from, to);
+        while (reminders.hasNext()) {
+            length += reminders.next().getText().length();
+        }
+        return length;
+    }
+
+    //one getReminder() (and one Date) per day of the period
+    private static int probe(ReminderManager manager, Date from, Date to) {
+        int length = 0;
+        for (int month = from.getMonth(); month <= to.getMonth(); month++) {
+            int firstDay = month == from.getMonth() ? from.getDay() : 1;
+            int lastDay = month == to.getMonth() ? to.getDay() : DAYS_IN_MONTH[month - 1];
+            for (int day = firstDay; day <= lastDay; day++) {
+                String reminder = manager.getReminder(new Date(day, month, from.getYear()));
+                if (reminder != null) {
+                    length += reminder.length();
+                }
+            }
+        }
+        return length;
+    }
+}
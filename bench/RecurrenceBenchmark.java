@@ -0,0 +1,145 @@
+/*
+compares recurring reminders stored as rules (see RecurrenceRule and RecurrenceIndex) with materializing every
+occurrence as a reminder of its own, the way a recurring reminder had to be saved before: heap retained, size on
+disk and the cost of getReminder() for random dates. The occurrences are materialized for a horizon of HORIZON
+years, rules which don't end would need an endless amount of them.
+
+The rules are a mix of 50% weekly, 30% monthly, 15% yearly and 5% daily rules with random intervals of 1-2.
+
+usage: java -cp <classes> RecurrenceBenchmark [rules...]
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+
+public class RecurrenceBenchmark {
+
+    private final static int FIRST_YEAR = 2020;
+    private final static int HORIZON = 10; //years
+    private final static int LOOKUPS = 200_000;
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10, 100, 1000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Path dir = Files.createTempDirectory("recurrence-bench");
+
+        System.out.printf("%-7s %-13s %12s %12s %14s %12s%n", "rules", "storage", "entries", "retained MB",
+                "file KB", "lookup ns");
+        for (int size : sizes) {
+            for (String storage : new String[]{"rules", "materialized"}) {
+                measure(size, storage, dir);
+            }
+        }
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    /*
+    prints one line of the table. A method of its own so that nothing of the previous storage is left on the stack
+    when the heap is measured
+     */
+    private static void measure(int size, String storage, Path dir) throws Exception {
+        long before = usedHeap();
+        ReminderManager manager = new ReminderManager();
+        int entries;
+        if (storage.equals("rules")) {
+            for (RecurrenceRule rule : rules(size)) {
+                manager.addRule(rule);
+            }
+            entries = size;
+        } else {
+            DateIndexMap table = materialize(rules(size));
+            manager.setReminderTable(table);
+            entries = table.size();
+        }
+        long heap = usedHeap() - before;
+
+        Path path = dir.resolve(storage + size + ".rem");
+        manager.saveToFile(path.toString());
+        long bytes = Files.size(path) + Files.size(dir.resolve(path.getFileName() + "."
+                + Utils.RULES_FILE_EXTENSION)) + Files.size(dir.resolve(path.getFileName() + "."
+                + Utils.INDEX_FILE_EXTENSION));
+
+        System.out.printf("%-7d %-13s %12d %12.2f %14.1f %12.0f%n", size, storage, entries,
+                heap / (1024.0 * 1024.0), bytes / 1024.0, lookup(manager));
+    }
+
+    //the same rules for every storage, see the mix above
+    private static RecurrenceRule[] rules(int size) {
+        Random random = new Random(size);
+        RecurrenceRule[] rules = new RecurrenceRule[size];
+        for (int i = 0; i < size; i++) {
+            rules[i] = rule(random, i);
+        }
+        return rules;
+    }
+
+    private static RecurrenceRule rule(Random random, int i) {
+        int kind = random.nextInt(100);
+        RecurrenceRule.Frequency frequency = kind < 50 ? RecurrenceRule.Frequency.WEEKLY
+                : kind < 80 ? RecurrenceRule.Frequency.MONTHLY
+                : kind < 95 ? RecurrenceRule.Frequency.YEARLY : RecurrenceRule.Frequency.DAILY;
+        Date start = new Date(1 + random.nextInt(28), 1 + random.nextInt(12), FIRST_YEAR);
+        return new RecurrenceRule(frequency, 1 + random.nextInt(2), start, null, "recurring reminder number " + i);
+    }
+
+    //every occurrence within the horizon as a reminder, occurrences of the same date joined like in RecurrenceIndex
+    private static DateIndexMap materialize(RecurrenceRule[] rules) {
+        RecurrenceIndex index = RecurrenceIndex.EMPTY;
+        for (RecurrenceRule rule : rules) {
+            index = index.with(rule);
+        }
+        DateIndexMap table = new DateIndexMap();
+        RecurrenceIndex.Occurrences occurrences = index.occurrences(new Date(1, 1, FIRST_YEAR).getKey(),
+                new Date(31, 12, FIRST_YEAR + HORIZON - 1).getKey());
+        for (; occurrences.hasKey(); occurrences.next()) {
+            table.put(occurrences.key(), occurrences.text());
+        }
+        return table;
+    }
+
+    //average time of getReminder() for random dates of the horizon in nanoseconds, best of three rounds
+    private static double lookup(ReminderManager manager) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            Random random = new Random(round);
+            Date[] dates = new Date[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                dates[i] = new Date(1 + random.nextInt(28), 1 + random.nextInt(12),
+                        FIRST_YEAR + random.nextInt(HORIZON));
+            }
+            long start = System.nanoTime();
+            for (Date date : dates) {
+                String text = manager.getReminder(date);
+                sink += text == null ? 0 : text.length();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        //a range read resolves the occurrences too, run one so the rules take part in the same code paths
+        Iterator<Reminder> reminders = manager.getRemindersBetween(new Date(1, 1, FIRST_YEAR),
+                new Date(31, 1, FIRST_YEAR));
+        while (reminders.hasNext()) {
+            sink += reminders.next().getText().length();
+        }
+        return (double) best / LOOKUPS;
+    }
+
+    //the heap in use after collecting the garbage. Some of it (e.g. of saved files) is only freed after a cleaner ran,
+    //so the collections pause in between
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+compares ReminderManager.search() (inverted index) with a linear scan over all reminder texts, for queries of one
+and two words. The index is timed twice: fetching the first Utils.MAX_SEARCH_RESULTS reminders (what the GUI
+shows) and fetching every match, where the lookup of the texts dominates for frequent words. Also measures how
+long indexing all reminders and reading the saved index back takes.
+
+usage: java -cp <classes> SearchBenchmark [reminders] [queries]
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+public class SearchBenchmark {
+
+    private final static int VOCABULARY = 20_000;
+    private final static int WORDS_PER_REMINDER = 6;
+    private final static int SCAN_QUERIES = 5; //a scan is slow, only a few of them are timed
+    private final static int ROUNDS = 4; //the first round is a warmup
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) throws Exception {
+        int reminders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        //word i is picked with a probability of about 1/i, like in natural language
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = "w" + Integer.toString(i, 36);
+        }
+        Random random = new Random(1);
+        DateIndexMap table = new DateIndexMap(reminders);
+        for (int i = 0; i < reminders; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_REMINDER; w++) {
+                text.append(words[zipf(random)]).append(' ');
+            }
+            table.put(new Date(i % 28 + 1, i / 28 % 12 + 1, 1000 + i / (28 * 12)).getKey(), text.toString());
+        }
+
+        ReminderManager manager = new ReminderManager();
+        long start = System.nanoTime();
+        manager.setReminderTable(table);
+        System.out.printf("indexing %d reminders: %.0f ms%n", reminders, (System.nanoTime() - start) / 1e6);
+        Path path = Files.createTempDirectory("search-bench").resolve("bench.rem");
+        manager.saveToFile(path.toString());
+        start = System.nanoTime();
+        TextIndex index = TextIndex.read(path);
+        System.out.printf("reading the saved index (%d terms, %d bytes): %.0f ms%n", index.termCount(),
+                Files.size(Path.of(path + "." + Utils.INDEX_FILE_EXTENSION)), (System.nanoTime() - start) / 1e6);
+
+        System.out.printf("%-10s %16s %16s %16s %12s%n", "query", "first page us", "all matches us", "scan us",
+                "avg matches");
+        for (int terms = 1; terms <= 2; terms++) {
+            String[] sample = new String[queries];
+            Random queryRandom = new Random(terms);
+            for (int i = 0; i < queries; i++) {
+                sample[i] = words[zipf(queryRandom)];
+                if (terms == 2) {
+                    sample[i] += " " + words[zipf(queryRandom)];
+                }
+            }
+            long[] results = new long[1];
+            double firstPage = best(() -> {
+                for (String query : sample) {
+                    sink += count(manager.search(query), Utils.MAX_SEARCH_RESULTS);
+                }
+            }, queries);
+            double all = best(() -> {
+                results[0] = 0;
+                for (String query : sample) {
+                    results[0] += count(manager.search(query), Integer.MAX_VALUE);
+                }
+            }, queries);
+            double scanned = best(() -> {
+                for (int i = 0; i < SCAN_QUERIES; i++) {
+                    sink += scan(manager, sample[i]);
+                }
+            }, SCAN_QUERIES);
+            System.out.printf("%-10s %16.2f %16.2f %16.2f %12.1f%n", terms + " word" + (terms > 1 ? "s" : ""),
+                    firstPage, all, scanned, (double) results[0] / queries);
+        }
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    //a word index between 0 and VOCABULARY - 1, small ones are much more likely
+    private static int zipf(Random random) {
+        return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+    }
+
+    //up to limit results are resolved to texts, like the GUI does
+    private static int count(Iterator<Reminder> reminders, int limit) {
+        int count = 0;
+        while (count < limit && reminders.hasNext()) {
+            sink += reminders.next().getText().length();
+            count++;
+        }
+        return count;
+    }
+
+    //what searching took without the index: every text is split into words and compared
+    private static int scan(ReminderManager manager, String query) {
+        List<String> terms = TextIndex.terms(query.toLowerCase(Locale.ROOT));
+        int count = 0;
+        Iterator<Reminder> reminders = manager.getRemindersBetween(new Date(1, 1, 1), new Date(31, 12, 9999));
+        while (reminders.hasNext()) {
+            if (TextIndex.terms(reminders.next().getText()).containsAll(terms)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //microseconds per operation of the best round, task performs operations operations per round
+    private static double best(Runnable task, int operations) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.run();
+            long time = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, time);
+            }
+        }
+        return best / 1e3 / operations;
+    }
+}
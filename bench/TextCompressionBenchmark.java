@@ -0,0 +1,139 @@
+/*
+compares reminders kept as Strings in the table with reminders whose texts are compressed (see CompressedTexts and
+CompressedReminderStore): heap retained by the reminders, the cost of getReminder() and the heap the decoded blocks
+take in the cache afterwards. getReminder() is measured twice:
+- hot: the same HOT_DATES dates over and over, like the calendar repainting the weeks on the screen
+- cold: random dates of the whole dataset, most of their blocks aren't cached (unless the cache holds them all)
+Besides it measures range reads (getRemindersBetween()) of RANGE_DAYS days from random dates, per reminder read, which
+is how the calendar reads its pages: neighbouring dates share their blocks, so a decoded block serves many of them.
+Two datasets are measured: short single-line texts of the given mean length, and long notes of LONG_TEXT_LENGTH
+characters on average broken into lines of LINE_LENGTH characters, where compression saves the most heap (the long
+one needs about 2 GB of heap for the default amount of reminders, e.g. -Xmx3g).
+The budget of the cache is Utils.TEXT_CACHE_BUDGET unless -Dreminders.text.cache=<bytes> is given.
+
+usage: java -cp <classes> TextCompressionBenchmark [reminders] [mean text length]
+ */
+
+import java.util.Iterator;
+import java.util.Random;
+
+public class TextCompressionBenchmark {
+
+    private final static int HOT_DATES = 512;
+    private final static int LOOKUPS = 500_000;
+    private final static int RANGE_DAYS = 56; //a page of the calendar
+    private final static int RANGES = 20_000;
+    private final static int LONG_TEXT_LENGTH = 400;
+    private final static int LINE_LENGTH = 60;
+
+    private static long sink; //results are accumulated here so the JIT can't drop the work
+
+    public static void main(String[] args) throws Exception {
+        int reminders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int meanLength = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        DatasetGenerator texts = new DatasetGenerator(reminders, meanLength, DatasetGenerator.TextLength.SKEWED, 1,
+                1900, 1);
+        DatasetGenerator notes = new DatasetGenerator(reminders, LONG_TEXT_LENGTH, DatasetGenerator.TextLength.SKEWED,
+                1, 1900, 1);
+        notes.setLineLength(LINE_LENGTH);
+
+        for (DatasetGenerator generator : new DatasetGenerator[]{texts, notes}) {
+            System.out.println(generator);
+            System.out.printf("%-11s %12s %10s %10s %10s %10s%n", "storage", "retained MB", "hot ns", "cold ns",
+                    "range ns", "cache MB");
+            for (String storage : new String[]{"strings", "compressed"}) {
+                measure(generator, storage);
+            }
+        }
+        Metrics.Histogram decode = Metrics.histogram("texts.decode");
+        System.out.printf("blocks decoded: %d, p50 %.3f ms, p99 %.3f ms (Metrics \"texts.decode\"), evicted: %d%n",
+                decode.getCount(), decode.getPercentileMillis(50), decode.getPercentileMillis(99),
+                Metrics.counter("texts.evictions").get());
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    /*
+    prints one line of the table. A method of its own so that nothing of the previous storage is left on the stack
+    when the heap is measured
+     */
+    private static void measure(DatasetGenerator generator, String storage) throws Exception {
+        Date[] dates = dates(generator.dates());
+        long before = usedHeap();
+        DateIndexMap table = generator.generate();
+        ReminderManager manager = new ReminderManager();
+        manager.setTextCompression(storage.equals("compressed"));
+        manager.setReminderTable(table);
+        table = null;
+        double cold = lookup(manager, dates, dates.length);
+        long heap = usedHeap() - before;
+        double hot = lookup(manager, dates, HOT_DATES);
+        cold = Math.min(cold, lookup(manager, dates, dates.length));
+        double range = range(manager, dates);
+        long cache = manager.getTextCacheBytes();
+
+        //the retained heap includes the decoded blocks cached by the first cold round, like an app in use would
+        System.out.printf("%-11s %12.2f %10.0f %10.0f %10.0f %10.2f%n", storage, heap / (1024.0 * 1024.0), hot, cold,
+                range, cache / (1024.0 * 1024.0));
+    }
+
+    private static Date[] dates(int[] keys) {
+        Date[] dates = new Date[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            dates[i] = Date.fromKey(keys[i]);
+        }
+        return dates;
+    }
+
+    /*
+    average time of getReminder() in nanoseconds for random dates of the first range dates, best of three rounds
+     */
+    private static double lookup(ReminderManager manager, Date[] dates, int range) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            Random random = new Random(round);
+            int[] picks = new int[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                picks[i] = random.nextInt(Math.min(range, dates.length));
+            }
+            long start = System.nanoTime();
+            for (int pick : picks) {
+                String text = manager.getReminder(dates[pick]);
+                sink += text == null ? 0 : text.length();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / LOOKUPS;
+    }
+
+    //average time per reminder of reading RANGES ranges of RANGE_DAYS days in nanoseconds, best of three rounds
+    private static double range(ReminderManager manager, Date[] dates) {
+        long best = Long.MAX_VALUE;
+        long reminders = 0;
+        for (int round = 0; round < 3; round++) {
+            Random random = new Random(round);
+            reminders = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < RANGES; i++) {
+                Date from = dates[random.nextInt(dates.length)];
+                Date to = Date.fromKey(Date.fromEpochDay(Date.epochDay(from.getKey()) + RANGE_DAYS - 1));
+                Iterator<Reminder> iterator = manager.getRemindersBetween(from, to);
+                while (iterator.hasNext()) {
+                    sink += iterator.next().getText().length();
+                    reminders++;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / Math.max(1, reminders);
+    }
+
+    //the heap in use after collecting the garbage
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
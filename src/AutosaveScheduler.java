@@ -0,0 +1,92 @@
+/*
+debounces saves: every change calls changed(), and the save only runs once no change came in for delay
+milliseconds. A burst of changes (e.g. clicking "Save reminder" many times in a row) therefore results in a single
+write. So that a steady stream of changes doesn't postpone the save forever, it runs at the latest maxDelay
+milliseconds after the first unsaved change. saveNow() skips the waiting.
+
+The save runs on a single background daemon thread, so saves never overlap and never block the caller.
+ */
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class AutosaveScheduler {
+
+    //instance fields
+    private ScheduledExecutorService executor;
+    private Runnable save;
+    private long delay; //milliseconds without changes before saving
+    private long maxDelay; //milliseconds after the first unsaved change at which we save anyway
+    private ScheduledFuture<?> pending; //the scheduled save, null if there are no unsaved changes
+    private long firstChangeTime; //System.nanoTime() of the first change since the last save
+
+    /*
+    Constructor
+    @param save - the save to run, e.g. a compaction of the journal
+     */
+    public AutosaveScheduler(Runnable save, long delay, long maxDelay) {
+        this.save = save;
+        this.delay = delay;
+        this.maxDelay = maxDelay;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true); //cancelled saves would pile up in the queue otherwise
+        this.executor = executor;
+    }
+
+    /*
+    reports a change. Pushes the save back by delay milliseconds unless it has already waited for maxDelay
+     */
+    public synchronized void changed() {
+        if (this.executor.isShutdown()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (this.pending == null) {
+            this.firstChangeTime = now;
+        } else {
+            this.pending.cancel(false);
+        }
+        long waited = TimeUnit.NANOSECONDS.toMillis(now - this.firstChangeTime);
+        long wait = Math.max(0, Math.min(this.delay, this.maxDelay - waited));
+        this.pending = this.executor.schedule(this::run, wait, TimeUnit.MILLISECONDS);
+    }
+
+    //saves as soon as possible
+    public synchronized void saveNow() {
+        if (this.executor.isShutdown()) {
+            return;
+        }
+        if (this.pending != null) {
+            this.pending.cancel(false);
+        }
+        this.pending = this.executor.schedule(this::run, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    stops scheduling saves. A save which is already running is waited for, a pending one is dropped.
+     */
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            if (this.pending != null) {
+                this.pending.cancel(false);
+                this.pending = null;
+            }
+            this.executor.shutdown();
+        }
+        this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        synchronized (this) {
+            //changes from now on belong to the next save
+            this.pending = null;
+        }
+        this.save.run();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+the calendar of ReminderGUI: a table with a row per week (see CalendarTableModel) in which the days with a reminder
+are highlighted and show the first line of the reminder. The table scrolls over all weeks of the calendar, but only
+the visible rows are ever painted or asked for their reminders, so dense years cost as much as empty ones. Clicking
+a day tells the listener given to the constructor.
+
+The time every paint of the table takes is recorded (Metrics histogram "calendar.paint" and the JFR event
+ReminderEvents.EdtHandler), it's the time the EDT needs for a frame of the calendar.
+ */
+
+import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+@SuppressWarnings("serial")
+public class CalendarPanel extends JPanel {
+
+    private final static Metrics.Histogram PAINT_TIME = Metrics.histogram("calendar.paint");
+    private final static Color REMINDER_COLOR = new Color(255, 236, 179);
+    private final static Color ODD_MONTH_COLOR = new Color(242, 242, 242); //every other month is shaded
+
+    //instance fields
+    private CalendarTableModel model;
+    private JTable table;
+    private JLabel monthLabel; //the month of the top visible row
+    private Consumer<Date> listener;
+
+    /*
+    Constructor
+    @param listener - called on the EDT with the day the user clicked
+     */
+    public CalendarPanel(ReminderManager reminderManager, Consumer<Date> listener) {
+        super(new BorderLayout());
+        this.listener = listener;
+        this.model = new CalendarTableModel(reminderManager);
+        this.table = new JTable(this.model) {
+            @Override
+            protected void paintComponent(Graphics graphics) {
+                ReminderEvents.EdtHandler event = new ReminderEvents.EdtHandler();
+                event.begin();
+                long start = System.nanoTime();
+                super.paintComponent(graphics);
+                PAINT_TIME.record(System.nanoTime() - start);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.handler = "calendarPaint";
+                    event.commit();
+                }
+            }
+        };
+        this.table.setRowHeight(Utils.CALENDAR_ROW_HEIGHT);
+        this.table.setCellSelectionEnabled(true);
+        this.table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        this.table.getTableHeader().setReorderingAllowed(false);
+        this.table.setDefaultRenderer(Object.class, new DayRenderer());
+        this.table.getSelectionModel().addListSelectionListener(this::selectionChanged);
+        this.table.getColumnModel().getSelectionModel().addListSelectionListener(this::selectionChanged);
+        this.monthLabel = new JLabel(Utils.EMPTY_STR, SwingConstants.CENTER);
+        JButton todayButton = new JButton(Utils.TODAY_BUTTON);
+        todayButton.addActionListener(e -> this.scrollTo(today()));
+
+        JScrollPane scrollPane = new JScrollPane(this.table);
+        scrollPane.getViewport().addChangeListener(e -> this.viewChanged());
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(this.monthLabel, BorderLayout.CENTER);
+        northPanel.add(todayButton, BorderLayout.EAST);
+        super.add(northPanel, BorderLayout.NORTH);
+        super.add(scrollPane, BorderLayout.CENTER);
+    }
+
+    //shows the reminders, should be called once they are loaded
+    public void start() {
+        this.model.start();
+        this.scrollTo(today());
+    }
+
+    public void stop() {
+        this.model.stop();
+    }
+
+    public CalendarTableModel getModel() {
+        return this.model;
+    }
+
+    public JTable getTable() {
+        return this.table;
+    }
+
+    //scrolls so that the week of date is the top visible row
+    public void scrollTo(Date date) {
+        int row = this.model.getRowOf(date);
+        if (row < 0) {
+            return;
+        }
+        Rectangle visible = this.table.getVisibleRect();
+        Rectangle cell = this.table.getCellRect(row, 0, true);
+        this.table.scrollRectToVisible(new Rectangle(cell.x, cell.y, cell.width, Math.max(visible.height, 1)));
+    }
+
+    private static Date today() {
+        LocalDate today = LocalDate.now();
+        return new Date(today.getDayOfMonth(), today.getMonthValue(), today.getYear());
+    }
+
+    private void selectionChanged(ListSelectionEvent event) {
+        int row = this.table.getSelectedRow();
+        int column = this.table.getSelectedColumn();
+        if (event.getValueIsAdjusting() || row < 0 || column < 0) {
+            return;
+        }
+        this.listener.accept(this.model.getDateAt(row, column));
+    }
+
+    //called when the table was scrolled or resized: updates the month label and reads the weeks around ahead
+    private void viewChanged() {
+        Rectangle visible = this.table.getVisibleRect();
+        int row = this.table.rowAtPoint(visible.getLocation());
+        if (row >= 0) {
+            Date date = this.model.getDateAt(row, 6); //the Sunday, the week belongs to its month
+            this.monthLabel.setText(Utils.MONTHS[date.getMonth() - 1] + " " + date.getYear());
+            this.model.prefetch(row, row + visible.height / Utils.CALENDAR_ROW_HEIGHT);
+        }
+    }
+
+    /*
+    paints a day: its number (with the month on the first of a month), and if it has a reminder the first line of
+    it on a highlighted background
+     */
+    private class DayRenderer extends DefaultTableCellRenderer {
+        DayRenderer() {
+            this.setVerticalAlignment(SwingConstants.TOP);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            Date date = CalendarPanel.this.model.getDateAt(row, column);
+            String label = Integer.toString(date.getDay());
+            if (date.getDay() == 1) {
+                label += " " + Utils.MONTHS[date.getMonth() - 1].substring(0, 3);
+                label += date.getMonth() == 1 ? " " + date.getYear() : Utils.EMPTY_STR;
+            }
+            String text = (String) value;
+            if (text != null) {
+                int lineBreak = text.indexOf('\n');
+                label += "  " + (lineBreak < 0 ? text : text.substring(0, lineBreak));
+            }
+            super.getTableCellRendererComponent(table, label, isSelected, hasFocus, row, column);
+            if (!isSelected) {
+                this.setBackground(text != null && text != CalendarTableModel.LOADING ? REMINDER_COLOR
+                        : date.getMonth() % 2 == 1 ? ODD_MONTH_COLOR : table.getBackground());
+            }
+            this.setForeground(text == CalendarTableModel.LOADING ? Color.GRAY
+                    : isSelected ? table.getSelectionForeground() : table.getForeground());
+            return this;
+        }
+    }
+}
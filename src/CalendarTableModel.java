@@ -0,0 +1,216 @@
+/*
+the table model of CalendarPanel: one row per week (Monday to Sunday) from Utils.CALENDAR_FIRST_YEAR to
+Utils.CALENDAR_LAST_YEAR, one column per day of the week. The value of a cell is the reminder of its day, null if
+it has none.
+
+JTable only asks for the cells it paints, so the model is virtual: nothing is read for the weeks out of sight.
+The weeks are read in pages of Utils.CALENDAR_PAGE_WEEKS with ReminderManager.getRemindersBetween(), which is a
+range read, so a page costs the reminders in it and never a walk over all reminders. A page which isn't cached yet
+is read by a background thread; meanwhile its cells are LOADING and the rows are repainted once the page arrives.
+Only the Utils.CALENDAR_CACHED_PAGES pages used last are kept, so scrolling across centuries keeps about a few
+screens of weeks in memory.
+
+The cache is only touched on the EDT. Changes of the reminders (see ReminderManager.ChangeListener) update the
+cached cell of their day, a removal reads the page again; a page read while a change came in is read again, it
+might have missed the change.
+A new or removed rule has occurrences everywhere, so every page is read again then.
+ */
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@SuppressWarnings("serial")
+public class CalendarTableModel extends AbstractTableModel implements ReminderManager.ChangeListener {
+
+    public final static String LOADING = new String("..."); //the value of the cells whose page isn't read yet
+    private final static int PAGE_DAYS = Utils.CALENDAR_PAGE_WEEKS * 7;
+
+    //instance fields
+    private final ReminderManager reminderManager;
+    private final long firstDay; //epoch day (see Date.epochDay()) of the Monday the first row starts with
+    private final int rows;
+    private final Map<Integer, String[]> pages; //page -> the reminders of its days, least recently used first
+    private final Map<Integer, Boolean> loading = new HashMap<>(); //page -> true if it has to be read again
+    private final ExecutorService loader;
+    private boolean started; //no page is read before start()
+
+    /*
+    Constructor
+     */
+    public CalendarTableModel(ReminderManager reminderManager) {
+        this.reminderManager = reminderManager;
+        long first = Date.epochDay(new Date(1, 1, Utils.CALENDAR_FIRST_YEAR).getKey());
+        this.firstDay = first - Date.dayOfWeek(new Date(1, 1, Utils.CALENDAR_FIRST_YEAR).getKey());
+        long last = Date.epochDay(new Date(31, 12, Utils.CALENDAR_LAST_YEAR).getKey());
+        this.rows = (int) ((last - this.firstDay) / 7 + 1);
+        this.pages = new LinkedHashMap<Integer, String[]>(Utils.CALENDAR_CACHED_PAGES * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return this.size() > Utils.CALENDAR_CACHED_PAGES;
+            }
+        };
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calendar-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+    starts reading the reminders, should be called on the EDT once they are loaded. The cells shown so far are
+    LOADING and get read now
+     */
+    public void start() {
+        this.started = true;
+        this.reminderManager.addChangeListener(this);
+        this.fireTableDataChanged();
+    }
+
+    //stops listening to the changes of the reminders and the background thread
+    public void stop() {
+        this.started = false;
+        this.reminderManager.removeChangeListener(this);
+        this.loader.shutdownNow();
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return Utils.CALENDAR_DAY_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return Utils.CALENDAR_DAY_NAMES[column];
+    }
+
+    /*
+    returns the reminder of the day of the cell, null if there's none or LOADING if it isn't read yet (the page of
+    the cell is requested then)
+     */
+    @Override
+    public String getValueAt(int row, int column) {
+        int day = row * 7 + column;
+        String[] page = this.pages.get(day / PAGE_DAYS);
+        if (page == null) {
+            this.request(day / PAGE_DAYS);
+            return LOADING;
+        }
+        return page[day % PAGE_DAYS];
+    }
+
+    //returns the date of the cell
+    public Date getDateAt(int row, int column) {
+        return Date.fromKey(Date.fromEpochDay(this.firstDay + row * 7 + column));
+    }
+
+    //returns the row of the week of date, -1 if it's not in the calendar
+    public int getRowOf(Date date) {
+        long days = Date.epochDay(date.getKey()) - this.firstDay;
+        return days < 0 || days / 7 >= this.rows ? -1 : (int) (days / 7);
+    }
+
+    //returns the amount of pages cached, see CalendarBenchmark
+    public int getCachedPages() {
+        return this.pages.size();
+    }
+
+    /*
+    reads the pages of the rows around the visible rows firstRow to lastRow ahead of time (a page before and a page
+    after them), so scrolling a bit doesn't show weeks which aren't read yet
+     */
+    public void prefetch(int firstRow, int lastRow) {
+        int first = Math.max(0, firstRow - Utils.CALENDAR_PAGE_WEEKS) / Utils.CALENDAR_PAGE_WEEKS;
+        int last = Math.min(this.rows - 1, lastRow + Utils.CALENDAR_PAGE_WEEKS) / Utils.CALENDAR_PAGE_WEEKS;
+        for (int page = first; page <= last; page++) {
+            if (!this.pages.containsKey(page)) {
+                this.request(page);
+            }
+        }
+    }
+
+    //reads the page in the background unless it's already being read
+    private void request(int page) {
+        if (!this.started || this.loading.containsKey(page)) {
+            return;
+        }
+        this.loading.put(page, false);
+        long firstDay = this.firstDay + (long) page * PAGE_DAYS;
+        this.loader.execute(() -> {
+            String[] reminders = new String[PAGE_DAYS];
+            Date from = Date.fromKey(Date.fromEpochDay(firstDay));
+            Date to = Date.fromKey(Date.fromEpochDay(firstDay + PAGE_DAYS - 1));
+            Iterator<Reminder> iterator = this.reminderManager.getRemindersBetween(from, to);
+            while (iterator.hasNext()) {
+                Reminder reminder = iterator.next();
+                reminders[(int) (Date.epochDay(reminder.getDate().getKey()) - firstDay)] = reminder.getText();
+            }
+            SwingUtilities.invokeLater(() -> this.loaded(page, reminders));
+        });
+    }
+
+    //called on the EDT with a page read by request()
+    private void loaded(int page, String[] reminders) {
+        if (Boolean.TRUE.equals(this.loading.remove(page))) {
+            this.request(page); //a change came in while the page was read
+            return;
+        }
+        this.pages.put(page, reminders);
+        int firstRow = page * Utils.CALENDAR_PAGE_WEEKS;
+        this.fireTableRowsUpdated(firstRow, Math.min(firstRow + Utils.CALENDAR_PAGE_WEEKS, this.rows) - 1);
+    }
+
+    //called by the thread which saved or removed a reminder
+    @Override
+    public void reminderChanged(Date date, String text) {
+        SwingUtilities.invokeLater(() -> {
+            long day = Date.epochDay(date.getKey()) - this.firstDay;
+            if (day < 0 || day / 7 >= this.rows) {
+                return;
+            }
+            int page = (int) (day / PAGE_DAYS);
+            if (this.loading.containsKey(page)) {
+                this.loading.put(page, true);
+            }
+            String[] reminders = this.pages.get(page);
+            if (reminders != null) {
+                reminders[(int) (day % PAGE_DAYS)] = text;
+                this.fireTableCellUpdated((int) (day / 7), (int) (day % 7));
+                if (text == null) {
+                    //a removed reminder might uncover a recurring one, which only the manager knows. The page is
+                    //read again in the background, a lookup on the EDT might load a year from the disk
+                    this.request(page);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void ruleChanged(RecurrenceRule rule, boolean added) {
+        SwingUtilities.invokeLater(() -> {
+            this.pages.clear();
+            this.loading.replaceAll((page, stale) -> true);
+            this.fireTableDataChanged();
+        });
+    }
+
+    //another process replaced the .rem file, every page may be stale
+    @Override
+    public void reloaded() {
+        SwingUtilities.invokeLater(() -> {
+            this.pages.clear();
+            this.loading.replaceAll((page, stale) -> true);
+            this.fireTableDataChanged();
+        });
+    }
+}
@@ -0,0 +1,78 @@
+/*
+reminders kept on the heap with compressed texts (see CompressedTexts), e.g. the reminders of an old serialized file
+which can't be memory-mapped. The dates are a sorted array, so get() is a binary search plus the text of a decoded
+block. Like the other stores it's read-only, ReminderManager keeps the changes in its table.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CompressedReminderStore implements ReminderStore {
+
+    //instance fields
+    private final int[] keys; //sorted
+    private final CompressedTexts texts; //in the order of keys
+
+    /*
+    Constructor - compresses the reminders of table, the decoded texts are cached in cache
+     */
+    public CompressedReminderStore(DateIndexMap table, CompressedTexts.Cache cache) {
+        this.keys = table.sortedKeys();
+        this.texts = CompressedTexts.compress(this.keys.length,
+                i -> table.get(this.keys[i]).getBytes(StandardCharsets.UTF_8), cache);
+    }
+
+    //returns the estimated heap bytes of the store, the decoded texts in the cache not included
+    public long getBytes() {
+        return this.texts.getBytes() + 4L * this.keys.length;
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public String get(int key) {
+        int i = Arrays.binarySearch(this.keys, key);
+        return i >= 0 ? this.texts.get(i) : null;
+    }
+
+    @Override
+    public boolean contains(int key) {
+        return Arrays.binarySearch(this.keys, key) >= 0;
+    }
+
+    @Override
+    public Cursor ceiling(int key) {
+        int start = Arrays.binarySearch(this.keys, key);
+        return new Cursor() {
+            private int position = start >= 0 ? start : -start - 1;
+
+            @Override
+            public boolean hasKey() {
+                return this.position < CompressedReminderStore.this.keys.length;
+            }
+
+            @Override
+            public int key() {
+                return CompressedReminderStore.this.keys[this.position];
+            }
+
+            @Override
+            public String text() {
+                return CompressedReminderStore.this.texts.get(this.position);
+            }
+
+            @Override
+            public byte[] textBytes() {
+                return CompressedReminderStore.this.texts.getBytes(this.position);
+            }
+
+            @Override
+            public void next() {
+                this.position++;
+            }
+        };
+    }
+}
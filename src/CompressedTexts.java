@@ -0,0 +1,288 @@
+/*
+reminder texts kept compressed on the heap. The texts are numbered 0 to size() - 1 (by the caller, e.g. in date
+order) and compressed in blocks of Utils.TEXT_BLOCK_ENTRIES texts with deflate. A block alone is too small for
+deflate to find much to compress, so every block is compressed against a dictionary which all blocks share: a
+sample of Utils.TEXT_DICTIONARY_SIZE bytes of texts spread over all of them, which holds the words that are common
+in the reminders.
+
+get() decodes the whole block of a text, neighbouring dates are usually read together (a week in the calendar, a
+range). The decoded blocks are kept in a Cache which is bounded by an estimated amount of heap bytes and can be
+shared by many CompressedTexts; reading a text of a cached block is an array lookup.
+
+Layout of a block before compression: for every text [varint length of its UTF-8 bytes][UTF-8 bytes]
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class CompressedTexts {
+
+    private final static int STRING_OVERHEAD = 40; //estimated heap bytes of a decoded String besides its text
+    private final static int BLOCK_OVERHEAD = 32; //estimated heap bytes of a compressed block besides its bytes
+
+    private final static Metrics.Histogram DECODE_TIME = Metrics.histogram("texts.decode");
+    private final static Metrics.Counter EVICTIONS = Metrics.counter("texts.evictions");
+
+    //instance fields
+    private final int size;
+    private final byte[] dictionary;
+    private final byte[][] blocks; //deflated
+    private final int[] blockLengths; //bytes of every block before compression
+    private final AtomicReferenceArray<String[]> decoded; //the blocks in the cache, null if a block isn't
+    private final boolean[] used; //set when a cached block is read, see Cache. Only a hint, so it isn't volatile
+    private final Cache cache;
+    private final long bytes; //estimated heap size, the cached blocks not included
+
+    private CompressedTexts(int size, byte[] dictionary, byte[][] blocks, int[] blockLengths, Cache cache) {
+        this.size = size;
+        this.dictionary = dictionary;
+        this.blocks = blocks;
+        this.blockLengths = blockLengths;
+        this.decoded = new AtomicReferenceArray<>(blocks.length);
+        this.used = new boolean[blocks.length];
+        this.cache = cache;
+        long bytes = dictionary.length + (long) blocks.length * (BLOCK_OVERHEAD + 8);
+        for (byte[] block : blocks) {
+            bytes += block.length;
+        }
+        this.bytes = bytes;
+    }
+
+    /*
+    compresses size texts, text returns the UTF-8 bytes of the i-th one. The decoded blocks are kept in cache
+     */
+    public static CompressedTexts compress(int size, IntFunction<byte[]> text, Cache cache) {
+        byte[] dictionary = sample(size, text);
+        int blockCount = (size + Utils.TEXT_BLOCK_ENTRIES - 1) / Utils.TEXT_BLOCK_ENTRIES;
+        byte[][] blocks = new byte[blockCount][];
+        int[] blockLengths = new int[blockCount];
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            ByteArray block = new ByteArray();
+            byte[] output = new byte[1024];
+            for (int b = 0; b < blockCount; b++) {
+                block.length = 0;
+                int end = Math.min(size, (b + 1) * Utils.TEXT_BLOCK_ENTRIES);
+                for (int i = b * Utils.TEXT_BLOCK_ENTRIES; i < end; i++) {
+                    byte[] bytes = text.apply(i);
+                    block.writeVarint(bytes.length);
+                    block.write(bytes, 0, bytes.length);
+                }
+                deflater.reset();
+                deflater.setDictionary(dictionary);
+                deflater.setInput(block.bytes, 0, block.length);
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    length += deflater.deflate(output, length, output.length - length);
+                }
+                blocks[b] = Arrays.copyOf(output, length);
+                blockLengths[b] = block.length;
+            }
+        } finally {
+            deflater.end();
+        }
+        return new CompressedTexts(size, dictionary, blocks, blockLengths, cache);
+    }
+
+    //up to Utils.TEXT_DICTIONARY_SIZE bytes of texts taken evenly from all of them
+    private static byte[] sample(int size, IntFunction<byte[]> text) {
+        ByteArray sample = new ByteArray();
+        //about 32 bytes per text are expected, the step is only a starting point
+        int step = Math.max(1, size / Math.max(1, Utils.TEXT_DICTIONARY_SIZE / 32));
+        for (int i = 0; i < size && sample.length < Utils.TEXT_DICTIONARY_SIZE; i += step) {
+            byte[] bytes = text.apply(i);
+            sample.write(bytes, 0, Math.min(bytes.length, Utils.TEXT_DICTIONARY_SIZE - sample.length));
+        }
+        return Arrays.copyOf(sample.bytes, sample.length);
+    }
+
+    //returns the amount of texts
+    public int size() {
+        return this.size;
+    }
+
+    //returns the estimated heap bytes of the compressed texts, the decoded blocks in the cache not included
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    /*
+    returns the i-th text, its block is decoded (and cached) unless it's in the cache already
+     */
+    public String get(int i) {
+        int block = i / Utils.TEXT_BLOCK_ENTRIES;
+        String[] texts = this.decoded.get(block);
+        if (texts == null) {
+            texts = this.decode(block);
+        } else if (!this.used[block]) {
+            this.used[block] = true;
+        }
+        return texts[i % Utils.TEXT_BLOCK_ENTRIES];
+    }
+
+    //returns the UTF-8 bytes of the i-th text
+    public byte[] getBytes(int i) {
+        return this.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*
+    inflates a block and adds it to the cache. Two threads may decode the same block, only one is cached. Every call
+    has an Inflater of its own which is ended right away: its native memory is only freed by end(), and threads come
+    and go (e.g. a thread per request in ReminderService)
+     */
+    private String[] decode(int block) {
+        long start = System.nanoTime();
+        byte[] bytes = new byte[this.blockLengths[block]];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(this.dictionary);
+            inflater.setInput(this.blocks[block]);
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                length += inflater.inflate(bytes, length, bytes.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(e); //the blocks were compressed by this class, they can't be corrupt
+        } finally {
+            inflater.end();
+        }
+        int first = block * Utils.TEXT_BLOCK_ENTRIES;
+        String[] texts = new String[Math.min(this.size - first, Utils.TEXT_BLOCK_ENTRIES)];
+        long heapBytes = STRING_OVERHEAD * texts.length;
+        int position = 0;
+        for (int i = 0; i < texts.length; i++) {
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                length |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            texts[i] = new String(bytes, position, length, StandardCharsets.UTF_8);
+            heapBytes += length;
+            position += length;
+        }
+        if (this.decoded.compareAndSet(block, null, texts)) {
+            this.cache.add(this, block, heapBytes);
+        }
+        DECODE_TIME.record(System.nanoTime() - start);
+        return texts;
+    }
+
+    /*
+    the decoded blocks of any number of CompressedTexts, up to an estimated amount of heap bytes. Blocks are evicted
+    in the order they were decoded, except for blocks which were read again since they were decoded or last spared:
+    they get a second chance and go to the back of the queue (the CLOCK approximation of LRU). That way a read of
+    a cached block doesn't have to lock or move anything, it only sets a flag.
+     */
+    public static class Cache {
+        private final long budget;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>(); //guarded by this
+        private long bytes; //estimated heap size of the cached blocks, guarded by this
+
+        /*
+        Constructor
+        @param budget - heap bytes (estimated) the decoded blocks may take, see Utils.TEXT_CACHE_BUDGET
+         */
+        public Cache(long budget) {
+            this.budget = budget;
+        }
+
+        //returns the estimated heap bytes of the cached blocks
+        public synchronized long getBytes() {
+            return this.bytes;
+        }
+
+        /*
+        adds a block which was just decoded and evicts blocks while over the budget. The new block stays: it's
+        about to be read, but its used flag isn't set, so it's passed over instead of evicted
+         */
+        private synchronized void add(CompressedTexts texts, int block, long bytes) {
+            Entry added = new Entry(texts, block, bytes);
+            this.entries.add(added);
+            this.bytes += bytes;
+            while (this.bytes > this.budget && this.entries.size() > 1) {
+                Entry entry = this.entries.poll();
+                if (entry == added) {
+                    this.entries.add(entry);
+                } else if (entry.texts.used[entry.block]) {
+                    entry.texts.used[entry.block] = false;
+                    this.entries.add(entry);
+                } else {
+                    entry.texts.decoded.set(entry.block, null);
+                    this.bytes -= entry.bytes;
+                    EVICTIONS.increment();
+                }
+            }
+        }
+
+        /*
+        drops the cached blocks of texts, e.g. when their owner is evicted: the entries hold texts, so they would keep
+        it on the heap until the blocks are evicted in turn
+         */
+        public synchronized void removeAll(CompressedTexts texts) {
+            Iterator<Entry> entries = this.entries.iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entry.texts == texts) {
+                    entries.remove();
+                    texts.decoded.set(entry.block, null);
+                    this.bytes -= entry.bytes;
+                }
+            }
+        }
+
+        //a cached block
+        private static class Entry {
+            private final CompressedTexts texts;
+            private final int block;
+            private final long bytes;
+
+            Entry(CompressedTexts texts, int block, long bytes) {
+                this.texts = texts;
+                this.block = block;
+                this.bytes = bytes;
+            }
+        }
+    }
+
+    //a growing byte array
+    private static class ByteArray {
+        private byte[] bytes = new byte[4096];
+        private int length;
+
+        void write(byte[] source, int start, int count) {
+            this.ensureCapacity(count);
+            System.arraycopy(source, start, this.bytes, this.length, count);
+            this.length += count;
+        }
+
+        //7 bits per byte, the high bit is set on all bytes but the last
+        void writeVarint(int value) {
+            this.ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                this.bytes[this.length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.length++] = (byte) value;
+        }
+
+        private void ensureCapacity(int count) {
+            if (this.length + count > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + count));
+            }
+        }
+    }
+}
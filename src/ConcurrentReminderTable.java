@@ -0,0 +1,159 @@
+/*
+thread-safe table of reminders (packed date -> text) which can be used by the UI, background jobs and schedulers
+at the same time.
+
+The table is a sequence of versions, every version is a ReminderTrie which never changes once it's published.
+A write creates the next version from the current one (copying the few nodes on the path to its date, see
+ReminderTrie) under a lock and publishes it; writes take a fraction of a microsecond, so writers don't wait for
+each other long. Readers don't lock at all, they read the current version.
+
+snapshot() and version() are therefore a consistent copy of the whole table at no cost: it's the version which was
+current at the time. A save writes a snapshot without holding any lock while the table keeps changing, and older
+versions (see ReminderManager.undo()) only cost the nodes they don't share with the current one. Range reads walk
+the version which was current when they started, so they don't see the reminders written while iterating.
+ */
+
+public class ConcurrentReminderTable {
+
+    /*
+    stored under a date whose reminder was removed (see ReminderManager.removeReminder()). It's compared by
+    identity, so a reminder text which happens to be empty is never mistaken for it
+     */
+    public final static String REMOVED = new String("");
+
+    //instance fields
+    private volatile ReminderTrie version; //replaced under writeLock
+    private final Object writeLock = new Object();
+
+    /*
+    Constructor
+     */
+    public ConcurrentReminderTable() {
+        this.version = ReminderTrie.EMPTY;
+    }
+
+    /*
+    Constructor - the entries of table
+     */
+    public ConcurrentReminderTable(DateIndexMap table) {
+        this.version = ReminderTrie.of(table);
+    }
+
+    //returns the amount of reminders
+    public int size() {
+        return this.version.size();
+    }
+
+    //returns the current version of the table. It never changes, writes create new versions
+    public ReminderTrie version() {
+        return this.version;
+    }
+
+    /*
+    returns the text stored under key or null. Never blocks
+     */
+    public String get(int key) {
+        return this.version.get(key);
+    }
+
+    /*
+    stores value under key and returns the previous value. hook (if not null) is called before another writer
+    can change the table, so that e.g. journal records of the same date are written in the same order as the table
+    is changed, and snapshot() sees either both the change and the hook's effect or neither.
+     */
+    public <E extends Exception> String put(int key, String value, WriteHook<E> hook) throws E {
+        synchronized (this.writeLock) {
+            ReminderTrie version = this.version;
+            String previous = version.get(key);
+            this.version = version.with(key, value);
+            if (hook != null) {
+                hook.written(key, previous, value);
+            }
+            return previous;
+        }
+    }
+
+    /*
+    removes the entries which still hold exactly the value (the same object) they have in snapshot. Used after a
+    snapshot was saved to drop the entries which are now in the file without dropping newer changes. The parts of
+    the table which haven't changed since the snapshot are dropped at once, see ReminderTrie.withoutSame()
+     */
+    public void removeSame(Snapshot snapshot) {
+        this.removeSame(snapshot.version);
+    }
+
+    //removes the entries which still hold exactly the value they have in version
+    public void removeSame(ReminderTrie version) {
+        synchronized (this.writeLock) {
+            this.version = this.version.withoutSame(version);
+        }
+    }
+
+    /*
+    returns the current version of the table as a snapshot, sorted by date. whileLocked (if not null) runs before
+    any writer can change the table, e.g. to remember the position of the journal which corresponds to the
+    snapshot. Only taking the version needs the lock, the snapshot is copied into arrays afterwards
+     */
+    public Snapshot snapshot(Runnable whileLocked) {
+        ReminderTrie version;
+        synchronized (this.writeLock) {
+            version = this.version;
+            if (whileLocked != null) {
+                whileLocked.run();
+            }
+        }
+        return new Snapshot(version);
+    }
+
+    /*
+    returns the first date >= key or Integer.MAX_VALUE if there's none
+     */
+    public int ceilingKey(int key) {
+        return this.version.ceilingKey(key);
+    }
+
+    /*
+    returns a cursor over the dates from (inclusive) to to (inclusive) of the current version in ascending order
+     */
+    public ReminderTrie.Cursor range(int from, int to) {
+        return this.version.range(from, to);
+    }
+
+    //called by put() before another writer can change the table. previous is the value value replaced, or null
+    public interface WriteHook<E extends Exception> {
+        void written(int key, String previous, String value) throws E;
+    }
+
+    /*
+    a version of the table, sorted by date
+     */
+    public static class Snapshot {
+        private final ReminderTrie version;
+        private final int[] keys;
+        private final String[] values;
+
+        Snapshot(ReminderTrie version) {
+            this.version = version;
+            this.keys = new int[version.size()];
+            this.values = new String[version.size()];
+            int i = 0;
+            for (ReminderTrie.Cursor cursor = version.range(Integer.MIN_VALUE, Integer.MAX_VALUE); cursor.hasKey();
+                 cursor.next()) {
+                this.keys[i] = cursor.key();
+                this.values[i++] = cursor.value();
+            }
+        }
+
+        public int size() {
+            return this.keys.length;
+        }
+
+        public int keyAt(int i) {
+            return this.keys[i];
+        }
+
+        public String valueAt(int i) {
+            return this.values[i];
+        }
+    }
+}
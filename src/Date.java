@@ -1,7 +1,10 @@
 /*
-the class represents a calendar date. The class implements Serializable interface because Date is the the key
-for the hash table used in ReminderManager. equals() and hashCode() override Object in order for Date to work
-properly as key to has table.
+the class represents a calendar date. The class implements Serializable interface because Date was the key of the
+serialized hash table in old .rem files. equals() and hashCode() override Object in order for Date to work
+properly as key to hash table.
+
+getKey() packs the date into a single int (yyyymmdd) which is what ReminderManager and the .rem format actually
+use as the key. Packed dates sort in the same order as the dates themselves.
  */
 
 import java.io.Serializable;
@@ -23,6 +26,64 @@ public class Date implements Serializable {
         this.year = year;
     }
 
+    //getters
+    public int getDay() {
+        return this.day;
+    }
+
+    public int getMonth() {
+        return this.month;
+    }
+
+    public int getYear() {
+        return this.year;
+    }
+
+    //returns the date packed into a single int, e.g. 17 March 2018 -> 20180317
+    public int getKey() {
+        return this.year * 10000 + this.month * 100 + this.day;
+    }
+
+    //reverse of getKey()
+    public static Date fromKey(int key) {
+        return new Date(key % 100, key / 100 % 100, key / 10000);
+    }
+
+    /*
+    the days since 1 January 1970 of a packed date (the civil calendar algorithm of Howard Hinnant). Days past the
+    end of the month count on into the next month, so key + 1 is always the day after key
+     */
+    static long epochDay(int key) {
+        long year = key / 10000;
+        int month = key / 100 % 100;
+        int day = key % 100;
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    //reverse of epochDay()
+    static int fromEpochDay(long epochDay) {
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) year * 10000 + month * 100 + day;
+    }
+
+    //the day of the week of a packed date, 0 is Monday
+    static int dayOfWeek(int key) {
+        return (int) Math.floorMod(epochDay(key) + 3, 7L); //1 January 1970 was a Thursday
+    }
+
     @Override
     public boolean equals(Object o) {
         if(o == null) {
@@ -51,8 +112,12 @@ public class Date implements Serializable {
         return Utils.EMPTY_STR + day + month + this.year;
     }
 
+    /*
+    the packed key is unique for every date so it's a perfect hash code. It used to be toString().hashCode()
+    which built several temporary Strings on every lookup
+     */
     @Override
     public int hashCode() {
-        return this.toString().hashCode();
+        return this.getKey();
     }
 }
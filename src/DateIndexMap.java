@@ -0,0 +1,225 @@
+/*
+hash table from a packed date (see Date.getKey()) to the reminder text. It replaces Hashtable<Date, String>:
+keys are plain ints stored in an int array so a lookup doesn't allocate a Date or any boxed value, doesn't
+build Strings to compute a hash code and doesn't take a monitor.
+
+The table uses open addressing with linear probing. The capacity is always a power of two and the table is
+grown once it's more than MAX_LOAD full. FREE (0) marks an empty slot, which is fine because a packed date is
+never 0. Removing an entry shifts the following entries of the probe sequence back so no tombstones are needed.
+
+The class is not thread-safe. A table is filled by one thread and then handed over or only read, e.g. a file read
+by ReminderFileFormat or the records of a journal batch. Threads which read reminders while others write them use
+ConcurrentReminderTable instead, whose snapshots are immutable ReminderTrie versions. The arrays are kept together
+in a single Slots object so that a rehash replaces them at once.
+ */
+
+import java.util.Arrays;
+
+public class DateIndexMap {
+
+    private final static int FREE = 0;
+    private final static float MAX_LOAD = 0.6f;
+    private final static int MIN_CAPACITY = 16;
+
+    //instance fields
+    private Slots slots;
+    private int size;
+    private int resizeThreshold;
+
+    /*
+    Constructor
+     */
+    public DateIndexMap() {
+        this(0);
+    }
+
+    /*
+    Constructor - sizes the table so that expectedSize entries fit without growing it
+     */
+    public DateIndexMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    //returns the amount of entries
+    public int size() {
+        return this.size;
+    }
+
+    //returns the text stored under key or null if there's none
+    public String get(int key) {
+        Slots slots = this.slots;
+        int slot = slots.slot(key);
+        //there's always a FREE slot (see MAX_LOAD), the bound only keeps a bug from looping forever
+        for (int probes = 0; probes <= slots.mask; probes++) {
+            int current = slots.keys[slot];
+            if (current == key) {
+                return slots.values[slot];
+            }
+            if (current == FREE) {
+                return null;
+            }
+            slot = (slot + 1) & slots.mask;
+        }
+        return null;
+    }
+
+    //checks if there's an entry under key
+    public boolean containsKey(int key) {
+        return this.get(key) != null;
+    }
+
+    /*
+    stores value under key and returns the previous value (null if there was none)
+     */
+    public String put(int key, String value) {
+        if (key == FREE || value == null) {
+            throw new IllegalArgumentException(Utils.INVALID_INPUT_ERROR);
+        }
+        Slots slots = this.slots;
+        int slot = slots.slot(key);
+        while (slots.keys[slot] != FREE) {
+            if (slots.keys[slot] == key) {
+                String previous = slots.values[slot];
+                slots.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & slots.mask;
+        }
+        //the value is stored first so a reader which finds the key also finds its value
+        slots.values[slot] = value;
+        slots.keys[slot] = key;
+        if (++this.size > this.resizeThreshold) {
+            this.rehash(slots.keys.length << 1);
+        }
+        return null;
+    }
+
+    /*
+    removes the entry under key and returns its value (null if there was none)
+     */
+    public String remove(int key) {
+        Slots slots = this.slots;
+        int slot = slots.slot(key);
+        while (slots.keys[slot] != FREE) {
+            if (slots.keys[slot] == key) {
+                String previous = slots.values[slot];
+                this.shiftBack(slots, slot);
+                this.size--;
+                return previous;
+            }
+            slot = (slot + 1) & slots.mask;
+        }
+        return null;
+    }
+
+    //removes all entries
+    public void clear() {
+        this.allocate(MIN_CAPACITY);
+        this.size = 0;
+    }
+
+    /*
+    calls consumer for every entry (in no particular order)
+     */
+    public void forEach(EntryConsumer consumer) {
+        Slots slots = this.slots;
+        for (int i = 0; i < slots.keys.length; i++) {
+            if (slots.keys[i] != FREE) {
+                consumer.accept(slots.keys[i], slots.values[i]);
+            }
+        }
+    }
+
+    /*
+    returns all keys sorted in ascending order, i.e. in date order
+     */
+    public int[] sortedKeys() {
+        int[] sorted = new int[this.size];
+        int i = 0;
+        for (int key : this.slots.keys) {
+            if (key != FREE) {
+                sorted[i++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /*
+    empties slot and moves back entries of the same probe sequence which would otherwise become unreachable
+     */
+    private void shiftBack(Slots slots, int slot) {
+        int free = slot;
+        int current = slot;
+        while (true) {
+            current = (current + 1) & slots.mask;
+            int key = slots.keys[current];
+            if (key == FREE) {
+                break;
+            }
+            int home = slots.slot(key);
+            //the entry can fill the free slot only if its home slot isn't cyclically in (free, current]
+            if (((current - home) & slots.mask) >= ((current - free) & slots.mask)) {
+                slots.values[free] = slots.values[current];
+                slots.keys[free] = key;
+                free = current;
+            }
+        }
+        slots.keys[free] = FREE;
+        slots.values[free] = null;
+    }
+
+    private void allocate(int capacity) {
+        this.slots = new Slots(capacity);
+        this.resizeThreshold = (int) (capacity * MAX_LOAD);
+    }
+
+    //moves the entries into arrays of capacity slots
+    private void rehash(int capacity) {
+        Slots oldSlots = this.slots;
+        Slots newSlots = new Slots(capacity);
+        for (int i = 0; i < oldSlots.keys.length; i++) {
+            if (oldSlots.keys[i] != FREE) {
+                int slot = newSlots.slot(oldSlots.keys[i]);
+                while (newSlots.keys[slot] != FREE) {
+                    slot = (slot + 1) & newSlots.mask;
+                }
+                newSlots.keys[slot] = oldSlots.keys[i];
+                newSlots.values[slot] = oldSlots.values[i];
+            }
+        }
+        this.slots = newSlots;
+        this.resizeThreshold = (int) (capacity * MAX_LOAD);
+    }
+
+    /*
+    the arrays of the table and what's needed to find a slot in them
+     */
+    private static class Slots {
+        private final int[] keys;
+        private final String[] values;
+        private final int mask; //capacity - 1
+        private final int shift; //32 - log2(capacity)
+
+        Slots(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new String[capacity];
+            this.mask = capacity - 1;
+            this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        //the home slot of key (fibonacci hashing spreads the consecutive packed dates over the table)
+        int slot(int key) {
+            return (key * 0x9E3779B9) >>> this.shift;
+        }
+    }
+
+    //callback of forEach()
+    public interface EntryConsumer {
+        void accept(int key, String value);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+tells a ReminderManager when another process may have changed the files of its .rem file (the journal, the lock file
+of the journal and the rules), so their changes are merged while this process is running. The directory of the files
+is watched with a WatchService, and reload runs once for all the events which came in together. Every write of this
+process triggers events too, so during a burst of writes the reload runs at most once every minMillis milliseconds,
+a single change of another process is still merged right away. The reload also runs every pollMillis milliseconds
+without any event: some file systems (e.g. network shares) don't report changes made by other machines, and on some
+platforms (e.g. macOS) the WatchService polls itself and reports changes seconds late. Reloading when nothing
+changed is cheap, see ReminderManager.reloadChanges().
+
+The reload runs on a single background daemon thread, so reloads never overlap. shutdown() only interrupts the
+thread while it waits: an interrupt during a reload would close the FileChannels of the journal (see
+ClosedByInterruptException) and release the file locks the whole process holds on them.
+ */
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class JournalWatcher {
+
+    //instance fields
+    private Set<Path> files; //absolute paths of the files watched
+    private Runnable reload;
+    private long minMillis; //min time between two reloads triggered by events
+    private long pollMillis; //max time between two reloads
+    private WatchService service; //null if the directory can't be watched, we only poll then
+    private Thread thread;
+    private volatile boolean stopped;
+    private boolean reloading; //guarded by this
+
+    /*
+    Constructor, starts watching
+    @param files - the files another process may change, all of them in directories which exist
+    @param reload - merges the changes of the other processes
+     */
+    public JournalWatcher(List<Path> files, Runnable reload, long minMillis, long pollMillis) {
+        this.files = new HashSet<>();
+        for (Path file : files) {
+            this.files.add(file.toAbsolutePath());
+        }
+        this.reload = reload;
+        this.minMillis = minMillis;
+        this.pollMillis = pollMillis;
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            Set<Path> directories = new HashSet<>();
+            for (Path file : this.files) {
+                if (directories.add(file.getParent())) {
+                    file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+            this.service = service;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println(Utils.WATCH_ERROR_STR);
+        }
+        this.thread = new Thread(this::run, "reminder-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    //stops watching, waits for a reload which is running
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            this.stopped = true;
+            if (!this.reloading) {
+                this.thread.interrupt(); //wakes up a sleep, the reload checks stopped before it starts
+            }
+        }
+        if (this.service != null) {
+            try {
+                this.service.close();
+            } catch (IOException e) {
+                //the thread is interrupted anyway unless it's reloading
+            }
+        }
+        if (Thread.currentThread() != this.thread) {
+            this.thread.join();
+        }
+    }
+
+    private void run() {
+        long lastReload = System.nanoTime();
+        while (!this.stopped) {
+            boolean changed;
+            try {
+                changed = this.await();
+                long wait = this.minMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReload);
+                if (changed && wait > 0) {
+                    Thread.sleep(wait); //the events which come in meanwhile are handled by the next reload
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return; //shutdown() was called
+            }
+            long now = System.nanoTime();
+            //a steady stream of unrelated events in the directory doesn't postpone the polling
+            if (changed || TimeUnit.NANOSECONDS.toMillis(now - lastReload) >= this.pollMillis) {
+                lastReload = now;
+                synchronized (this) {
+                    if (this.stopped) {
+                        return;
+                    }
+                    this.reloading = true;
+                }
+                try {
+                    this.reload.run();
+                } finally {
+                    synchronized (this) {
+                        this.reloading = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+    waits up to pollMillis for events, returns true if one of the files may have changed. Without a WatchService it
+    just sleeps and returns false
+     */
+    private boolean await() throws InterruptedException {
+        if (this.service == null) {
+            Thread.sleep(this.pollMillis);
+            return false;
+        }
+        WatchKey key = this.service.poll(this.pollMillis, TimeUnit.MILLISECONDS);
+        boolean changed = false;
+        while (key != null) {
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                //events were lost, any file may have changed
+                changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || this.files.contains(directory.resolve((Path) event.context()));
+            }
+            key.reset();
+            key = this.service.poll(); //events which came in meanwhile are handled by the same reload
+        }
+        return changed;
+    }
+}
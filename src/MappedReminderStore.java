@@ -0,0 +1,201 @@
+/*
+read-only view of a binary .rem file (see ReminderFileFormat) which is memory-mapped instead of being loaded
+onto the heap. Nothing is decoded when the store is opened: only the header and footer are checked. A lookup
+binary-searches the index block of the file directly in the mapped region and decodes the text of the one
+entry it finds. This way opening a file takes the same time no matter how many reminders it contains and the
+heap only holds the texts that are actually asked for (the OS pages the file in and out as needed).
+
+Files larger than what a single MappedByteBuffer can address are mapped in several segments.
+The store requires a file with an index block, files without one are rejected with an IOException.
+Besides the ReminderStore methods the entries can be read by position, see indexOf().
+ */
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedReminderStore implements ReminderStore {
+
+    private final static int SEGMENT_BITS = 30; //every segment maps 1GB of the file
+    private final static long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    //instance fields
+    private MappedByteBuffer[] segments;
+    private int size; //amount of entries
+    private long indexOffset; //offset of the index block
+
+    /*
+    Constructor - maps the file at path
+     */
+    public MappedReminderStore(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < ReminderFileFormat.HEADER_SIZE + ReminderFileFormat.FOOTER_SIZE) {
+                throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+            }
+            this.segments = new MappedByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(SEGMENT_SIZE, fileSize - start));
+            }
+
+            if (this.readInt(0) != ReminderFileFormat.MAGIC) {
+                throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+            }
+            if (this.readShort(4) > ReminderFileFormat.VERSION) {
+                throw new IOException(Utils.UNSUPPORTED_FILE_VERSION_ERROR);
+            }
+            if ((this.readShort(6) & ReminderFileFormat.FLAG_INDEX) == 0
+                    || this.readInt(fileSize - Integer.BYTES) != ReminderFileFormat.MAGIC) {
+                throw new IOException(Utils.MISSING_INDEX_ERROR);
+            }
+            this.size = this.readInt(8);
+            this.indexOffset = this.readLong(fileSize - ReminderFileFormat.FOOTER_SIZE);
+        }
+    }
+
+    //returns the amount of entries in the file
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /*
+    returns the text stored under the packed date key or null if the file has no such entry
+     */
+    @Override
+    public String get(int key) {
+        int i = this.indexOf(key);
+        if (i >= this.size || this.keyAt(i) != key) {
+            return null;
+        }
+        return this.textAt(i);
+    }
+
+    @Override
+    public boolean contains(int key) {
+        int i = this.indexOf(key);
+        return i < this.size && this.keyAt(i) == key;
+    }
+
+    @Override
+    public Cursor ceiling(int key) {
+        int start = this.indexOf(key);
+        return new Cursor() {
+            private int position = start;
+
+            @Override
+            public boolean hasKey() {
+                return this.position < MappedReminderStore.this.size;
+            }
+
+            @Override
+            public int key() {
+                return MappedReminderStore.this.keyAt(this.position);
+            }
+
+            @Override
+            public String text() {
+                return MappedReminderStore.this.textAt(this.position);
+            }
+
+            @Override
+            public byte[] textBytes() {
+                return MappedReminderStore.this.textBytesAt(this.position);
+            }
+
+            @Override
+            public void next() {
+                this.position++;
+            }
+        };
+    }
+
+    /*
+    returns the position of the first entry whose packed date is >= key (size() if there's none).
+    Entries (and therefore the index) are sorted by packed date so we can binary search.
+     */
+    public int indexOf(int key) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //returns the packed date of the i-th entry
+    public int keyAt(int i) {
+        return this.readInt(this.indexOffset + (long) i * ReminderFileFormat.INDEX_ENTRY_SIZE);
+    }
+
+    //returns the text of the i-th entry
+    public String textAt(int i) {
+        return new String(this.textBytesAt(i), StandardCharsets.UTF_8);
+    }
+
+    //returns the raw UTF-8 text of the i-th entry, used to copy entries without decoding them
+    public byte[] textBytesAt(int i) {
+        long offset = this.readLong(this.indexOffset + (long) i * ReminderFileFormat.INDEX_ENTRY_SIZE
+                + Integer.BYTES);
+        byte[] text = new byte[this.readInt(offset + Integer.BYTES)];
+        this.readBytes(offset + Integer.BYTES * 2, text);
+        return text;
+    }
+
+    /*
+    the methods below read big endian numbers at an absolute offset of the file. The fast path reads directly
+    from the segment, the slow path handles values which cross the border between two segments.
+     */
+    private int readInt(long offset) {
+        MappedByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_BITS)];
+        int position = (int) (offset & (SEGMENT_SIZE - 1));
+        if (position + Integer.BYTES <= segment.limit()) {
+            return segment.getInt(position);
+        }
+        return (int) this.readSlow(offset, Integer.BYTES);
+    }
+
+    private short readShort(long offset) {
+        return (short) (this.readInt(offset) >>> 16);
+    }
+
+    private long readLong(long offset) {
+        MappedByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_BITS)];
+        int position = (int) (offset & (SEGMENT_SIZE - 1));
+        if (position + Long.BYTES <= segment.limit()) {
+            return segment.getLong(position);
+        }
+        return this.readSlow(offset, Long.BYTES);
+    }
+
+    private long readSlow(long offset, int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            long current = offset + i;
+            value = (value << 8) | (this.segments[(int) (current >>> SEGMENT_BITS)]
+                    .get((int) (current & (SEGMENT_SIZE - 1))) & 0xFF);
+        }
+        return value;
+    }
+
+    private void readBytes(long offset, byte[] destination) {
+        int copied = 0;
+        while (copied < destination.length) {
+            MappedByteBuffer segment = this.segments[(int) ((offset + copied) >>> SEGMENT_BITS)];
+            int position = (int) ((offset + copied) & (SEGMENT_SIZE - 1));
+            int length = Math.min(destination.length - copied, segment.limit() - position);
+            segment.get(position, destination, copied, length);
+            copied += length;
+        }
+    }
+}
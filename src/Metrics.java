@@ -0,0 +1,207 @@
+/*
+process-wide registry of counters, latency histograms and gauges for diagnosing slow operations (e.g. "the app is
+slow to open", "saving hangs on exit"), next to the JDK Flight Recorder events in ReminderEvents.
+
+Rare operations (loading and saving files, opening the journal, the handlers of the GUI) are always recorded.
+getReminder() and putReminder() take a few nanoseconds, timing them would cost more than the operations
+themselves, so they are only recorded if the JVM is started with -Dreminders.metrics=true. TIMING is a
+constant, so when it's false the JIT drops the recording code altogether.
+
+The metrics can be dumped as text with dump(): from the GUI with Ctrl+Shift+M, from the HTTP service with
+GET /metrics, or at exit with -Dreminders.metrics.file=<path>.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class Metrics {
+
+    //true if hot operations are recorded too, see above
+    public final static boolean TIMING = Boolean.getBoolean(Utils.METRICS_PROPERTY);
+
+    private final static ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private final static ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private final static ConcurrentMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    static {
+        ReminderEvents.registerPeriodicEvents();
+    }
+
+    private Metrics() {
+    }
+
+    //returns the counter called name, it's created on first use
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    //returns the histogram called name, it's created on first use
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /*
+    registers a value which is read whenever the metrics are dumped (and every few seconds while a flight recording
+    runs). A gauge registered under the same name replaces the old one
+     */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    //the current value of every gauge
+    static Map<String, Long> gauges() {
+        Map<String, Long> values = new TreeMap<>();
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /*
+    returns all metrics as text, one per line and sorted by name. Durations are in milliseconds, percentiles are
+    upper bounds (at most 25% above the exact value, see Histogram)
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append("# reminder metrics ").append(Instant.now()).append(", timing of get/put ")
+                .append(TIMING ? "on" : "off (-D" + Utils.METRICS_PROPERTY + "=true)").append('\n');
+        new TreeMap<>(COUNTERS).forEach((name, counter) ->
+                text.append("counter   ").append(name).append(' ').append(counter.get()).append('\n'));
+        gauges().forEach((name, value) ->
+                text.append("gauge     ").append(name).append(' ').append(value).append('\n'));
+        new TreeMap<>(HISTOGRAMS).forEach((name, histogram) ->
+                text.append("histogram ").append(name).append(' ').append(histogram).append('\n'));
+        return text.toString();
+    }
+
+    //writes dump() to path, through a temporary file like every other file the app writes
+    public static void dump(Path path) throws IOException {
+        Path temp = Paths.get(path + "." + Utils.TEMP_FILE_EXTENSION);
+        Files.write(temp, dump().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //if -Dreminders.metrics.file=<path> is set, the metrics are dumped there when the JVM exits
+    public static void dumpOnExit() {
+        String path = System.getProperty(Utils.METRICS_FILE_PROPERTY);
+        if (path == null) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                dump(Paths.get(path));
+            } catch (IOException e) {
+                System.err.println(Utils.METRICS_WRITE_ERROR_STR);
+            }
+        }, "reminder-metrics-dump"));
+    }
+
+    /*
+    a number which only grows, e.g. bytes written. Contended increments don't share a cache line (LongAdder)
+     */
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            this.value.increment();
+        }
+
+        public void add(long amount) {
+            this.value.add(amount);
+        }
+
+        public long get() {
+            return this.value.sum();
+        }
+    }
+
+    /*
+    distribution of durations in nanoseconds. Every power of two is split into SUB_BUCKETS buckets, so a
+    percentile is known up to 1 / SUB_BUCKETS of its value with a fixed amount of memory and no allocation per
+    recorded value
+     */
+    public static class Histogram {
+        private final static int SUB_BUCKETS = 4;
+        private final static int SUB_BITS = 2; //log2(SUB_BUCKETS)
+        private final static int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            this.counts.incrementAndGet(bucketOf(value));
+            this.count.increment();
+            this.sum.add(value);
+            if (value > this.max.get()) {
+                this.max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        public double getMeanMillis() {
+            long count = this.count.sum();
+            return count == 0 ? 0 : this.sum.sum() / 1e6 / count;
+        }
+
+        public double getMaxMillis() {
+            return this.max.get() / 1e6;
+        }
+
+        //the value which percent percent of the recorded values don't exceed, in milliseconds
+        public double getPercentileMillis(double percent) {
+            long count = this.count.sum();
+            long rank = (long) Math.ceil(count * percent / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.counts.get(i);
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(upperBound(i), this.max.get()) / 1e6;
+                }
+            }
+            return this.getMaxMillis();
+        }
+
+        //values below SUB_BUCKETS have a bucket each, above that every power of two has SUB_BUCKETS
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int power = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (power - SUB_BITS) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int power = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+            long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (power - SUB_BITS)) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", this.getCount(),
+                    this.getMeanMillis(), this.getPercentileMillis(50), this.getPercentileMillis(90),
+                    this.getPercentileMillis(99), this.getMaxMillis());
+        }
+    }
+}
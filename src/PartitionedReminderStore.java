@@ -0,0 +1,553 @@
+/*
+a .rem file split into one segment file per year. Opening it only reads the small manifest, the reminders of a
+year are loaded the first time one of them is asked for (e.g. when the GUI shows a date of that year) and kept in
+a cache which is shared by all versions of the store. Once the loaded years take more than the memory budget,
+the years used least recently are evicted and loaded again if they're needed later. The texts of a loaded year are
+kept compressed (see CompressedTexts), so the budget holds several times as many years as with plain Strings; the
+decoded texts are cached separately within Utils.TEXT_CACHE_BUDGET.
+
+A save (see write()) rewrites only the segments of the years that changed plus the manifest and returns a new
+version of the store, the old version keeps working for readers which still use it.
+
+Layout (all numbers are big endian):
+foo.rem (the manifest): [int MANIFEST_MAGIC][short VERSION][short flags (unused)][int amount of years]
+                        then amount of years times [int year][int amount of entries], sorted by year
+foo.rem.parts/<year>.rem: the reminders of one year in the binary .rem format with an index block, see
+                        ReminderFileFormat
+
+Segments are written before the manifest which lists them. After a crash the manifest may be older than the
+segments, which is fine: the journal still holds the changes of the interrupted save, replaying them rewrites the
+same years (and their amounts of entries in the manifest) on the next save. A missing segment is empty.
+ */
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+public class PartitionedReminderStore implements ReminderStore {
+
+    //CONSTANTS
+    public final static int MANIFEST_MAGIC = 0x52454D50; //"REMP"
+    public final static short VERSION = 1;
+    private final static int KEYS_PER_YEAR = 10000; //see Date.getKey()
+    private final static int ENTRY_OVERHEAD = 4; //estimated heap bytes of a loaded entry besides its text (the key)
+
+    private final static Metrics.Histogram LOAD_TIME = Metrics.histogram("partitions.load");
+    private final static Metrics.Counter EVICTIONS = Metrics.counter("partitions.evictions");
+    private final static Metrics.Counter WRITTEN = Metrics.counter("partitions.written");
+
+    //instance fields
+    private final Path path; //the manifest
+    private final int[] years; //sorted
+    private final int[] entries; //amount of entries of every year
+    private final int size;
+    private final PartitionCache cache;
+    private long bytesWritten; //bytes written by the save which created this version
+
+    private PartitionedReminderStore(Path path, int[] years, int[] entries, PartitionCache cache) {
+        this.path = path;
+        this.years = years;
+        this.entries = entries;
+        this.size = Arrays.stream(entries).sum();
+        this.cache = cache;
+    }
+
+    /*
+    opens the partitioned file whose manifest is at path. Nothing but the manifest is read.
+    @param budget - bytes the loaded years may take on the heap (estimated), see Utils.PARTITION_MEMORY_BUDGET
+     */
+    public static PartitionedReminderStore open(Path path, long budget) throws IOException {
+        int[][] manifest = readManifest(path);
+        return new PartitionedReminderStore(path, manifest[0], manifest[1], new PartitionCache(budget));
+    }
+
+    /*
+    checks if the file at path is the manifest of a partitioned file
+     */
+    public static boolean isManifest(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            return input.readInt() == MANIFEST_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /*
+    reads all years of the partitioned file at path, for callers which want every reminder on the heap (see
+    ReminderFileFormat.read()). progress (if not null) is told the percent of the years read so far
+     */
+    public static DateIndexMap readAll(Path path, IntConsumer progress) throws IOException {
+        int[][] manifest = readManifest(path);
+        int[] years = manifest[0];
+        DateIndexMap table = new DateIndexMap(Arrays.stream(manifest[1]).sum());
+        for (int i = 0; i < years.length; i++) {
+            MappedReminderStore segment;
+            try {
+                segment = new MappedReminderStore(segment(path, years[i]));
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            for (int j = 0; j < segment.size(); j++) {
+                table.put(segment.keyAt(j), segment.textAt(j));
+            }
+            if (progress != null) {
+                progress.accept((i + 1) * 100 / years.length);
+            }
+        }
+        return table;
+    }
+
+    //the segment file of year
+    private static Path segment(Path path, int year) {
+        return Paths.get(path + "." + Utils.PARTITIONS_DIRECTORY_EXTENSION)
+                .resolve(year + "." + Utils.REMINDER_FILE_EXTENSION);
+    }
+
+    //the year of a packed date
+    private static int yearOf(int key) {
+        return key / KEYS_PER_YEAR;
+    }
+
+    //the years listed in the manifest at path and the amount of entries of every year
+    private static int[][] readManifest(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MANIFEST_MAGIC) {
+                throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+            }
+            if (input.readShort() > VERSION) {
+                throw new IOException(Utils.UNSUPPORTED_FILE_VERSION_ERROR);
+            }
+            input.readShort(); //flags
+            int[] years = new int[input.readInt()];
+            int[] entries = new int[years.length];
+            for (int i = 0; i < years.length; i++) {
+                years[i] = input.readInt();
+                entries[i] = input.readInt();
+            }
+            return new int[][]{years, entries};
+        }
+    }
+
+    /*
+    writes changes (a snapshot of ReminderManager's table, sorted by date) merged with the reminders of previous
+    to the partitioned file at path and returns the new version of the store. If previous is the partitioned file at
+    path only the years changes has entries for are rewritten. Any other previous store (or none) is converted:
+    every year is written.
+    Like in a snapshot of a single .rem file, an entry of changes wins over the saved reminder of the same date and
+    REMOVED entries aren't written. Every segment is written next to its file and then renamed over it.
+     */
+    public static PartitionedReminderStore write(Path path, ReminderStore previous,
+                                                 ConcurrentReminderTable.Snapshot changes, long budget)
+            throws IOException {
+        PartitionedReminderStore partitioned = null;
+        if (previous instanceof PartitionedReminderStore && ((PartitionedReminderStore) previous).path.equals(path)) {
+            partitioned = (PartitionedReminderStore) previous;
+        }
+        PartitionCache cache = partitioned != null ? partitioned.cache : new PartitionCache(budget);
+        TreeMap<Integer, Integer> entries = new TreeMap<>(); //year -> amount of entries of the new version
+        if (partitioned != null) {
+            for (int i = 0; i < partitioned.years.length; i++) {
+                entries.put(partitioned.years[i], partitioned.entries[i]);
+            }
+        }
+        Files.createDirectories(segment(path, 0).getParent());
+
+        long bytes = 0;
+        //a conversion walks all of previous once, a partitioned file is only read in the years which changed
+        ReminderStore.Cursor all = null;
+        if (partitioned == null && previous != null) {
+            all = previous.ceiling(Integer.MIN_VALUE);
+        }
+        int i = 0;
+        while (i < changes.size() || (all != null && all.hasKey())) {
+            int year = i < changes.size() ? yearOf(changes.keyAt(i)) : Integer.MAX_VALUE;
+            if (all != null && all.hasKey()) {
+                year = Math.min(year, yearOf(all.key()));
+            }
+            int end = i;
+            while (end < changes.size() && yearOf(changes.keyAt(end)) == year) {
+                end++;
+            }
+            ReminderStore.Cursor saved = all;
+            if (partitioned != null) {
+                saved = entries.containsKey(year) ? partitioned.yearCursor(year) : null;
+            }
+            Partition partition = merge(year, saved, changes, i, end, cache.texts);
+            i = end;
+
+            Path segment = segment(path, year);
+            if (partition.keys.length == 0) {
+                Files.deleteIfExists(segment);
+                entries.remove(year);
+            } else {
+                Path temp = Paths.get(segment + "." + Utils.TEMP_FILE_EXTENSION);
+                try (ReminderFileFormat.Writer writer = new ReminderFileFormat.Writer(temp, partition.keys.length,
+                        true)) {
+                    for (int k = 0; k < partition.keys.length; k++) {
+                        byte[] text = partition.texts.getBytes(k);
+                        writer.add(partition.keys[k], text, 0, text.length);
+                    }
+                }
+                bytes += Files.size(temp);
+                Files.move(temp, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entries.put(year, partition.keys.length);
+                WRITTEN.increment();
+            }
+            if (partitioned != null) {
+                //the year was just written so it's likely to be used again, a conversion loads years on demand
+                cache.replace(year, partition.keys.length == 0 ? null : partition);
+            }
+        }
+
+        int[] years = new int[entries.size()];
+        int[] counts = new int[entries.size()];
+        int y = 0;
+        for (Map.Entry<Integer, Integer> entry : entries.entrySet()) {
+            years[y] = entry.getKey();
+            counts[y++] = entry.getValue();
+        }
+        bytes += writeManifest(path, years, counts);
+        if (partitioned == null) {
+            deleteOtherSegments(path, years);
+        }
+        PartitionedReminderStore store = new PartitionedReminderStore(path, years, counts, cache);
+        store.bytesWritten = bytes;
+        return store;
+    }
+
+    /*
+    the reminders of year: the ones of saved (up to the end of the year) merged with changes from start to end. The
+    saved texts are merged as raw bytes, they are only decoded to be compressed
+     */
+    private static Partition merge(int year, ReminderStore.Cursor saved, ConcurrentReminderTable.Snapshot changes,
+                                   int start, int end, CompressedTexts.Cache cache) {
+        int limit = (year + 1) * KEYS_PER_YEAR;
+        List<Integer> keys = new ArrayList<>();
+        List<byte[]> texts = new ArrayList<>();
+        int j = start;
+        while (saved != null && saved.hasKey() && saved.key() < limit) {
+            int savedKey = saved.key();
+            while (j < end && changes.keyAt(j) <= savedKey) {
+                add(keys, texts, changes.keyAt(j), changes.valueAt(j++));
+            }
+            if (j == start || changes.keyAt(j - 1) != savedKey) {
+                keys.add(savedKey);
+                texts.add(saved.textBytes());
+            }
+            saved.next();
+        }
+        while (j < end) {
+            add(keys, texts, changes.keyAt(j), changes.valueAt(j++));
+        }
+        return new Partition(year, keys.stream().mapToInt(Integer::intValue).toArray(),
+                CompressedTexts.compress(texts.size(), texts::get, cache));
+    }
+
+    //adds a reminder unless it's a removal
+    private static void add(List<Integer> keys, List<byte[]> texts, int key, String text) {
+        if (text != ConcurrentReminderTable.REMOVED) {
+            keys.add(key);
+            texts.add(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    //writes the manifest next to path, renames it over path and returns its size
+    private static long writeManifest(Path path, int[] years, int[] entries) throws IOException {
+        Path temp = Paths.get(path + "." + Utils.TEMP_FILE_EXTENSION);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            output.writeInt(MANIFEST_MAGIC);
+            output.writeShort(VERSION);
+            output.writeShort(0);
+            output.writeInt(years.length);
+            for (int i = 0; i < years.length; i++) {
+                output.writeInt(years[i]);
+                output.writeInt(entries[i]);
+            }
+            output.flush();
+            channel.force(true);
+        }
+        long bytes = Files.size(temp);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+
+    //deletes segments left over from an older partitioned file at path which the new manifest doesn't list
+    private static void deleteOtherSegments(Path path, int[] years) throws IOException {
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(segment(path, 0).getParent())) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                String year = name.substring(0, Math.max(name.indexOf('.'), 0));
+                if (!year.matches("\\d+") || Arrays.binarySearch(years, Integer.parseInt(year)) < 0) {
+                    Files.delete(segment);
+                }
+            }
+        }
+    }
+
+    //getter - the bytes written by the save which created this version, 0 if the store was opened
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public String get(int key) {
+        Partition partition = this.partition(yearOf(key));
+        if (partition == null) {
+            return null;
+        }
+        int i = partition.indexOf(key);
+        return i < partition.keys.length && partition.keys[i] == key ? partition.texts.get(i) : null;
+    }
+
+    //only searches the dates of the partition, unlike get() it doesn't decode a block of texts
+    @Override
+    public boolean contains(int key) {
+        Partition partition = this.partition(yearOf(key));
+        return partition != null && Arrays.binarySearch(partition.keys, key) >= 0;
+    }
+
+    @Override
+    public Cursor ceiling(int key) {
+        return new PartitionCursor(key, this.years.length - 1);
+    }
+
+    //a cursor over the reminders of a single year of this version
+    private Cursor yearCursor(int year) {
+        int i = Arrays.binarySearch(this.years, year);
+        return new PartitionCursor(year * KEYS_PER_YEAR, i);
+    }
+
+    /*
+    the loaded reminders of year, null if this version has none. A year which isn't in the cache is loaded from
+    its segment: an I/O error while doing so is fatal like any other error reading the .rem file
+     */
+    private Partition partition(int year) {
+        if (Arrays.binarySearch(this.years, year) < 0) {
+            return null;
+        }
+        try {
+            return this.cache.get(year, segment(this.path, year));
+        } catch (IOException e) {
+            System.err.println(Utils.FILE_READ_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.FILE_READ_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+            return null;
+        }
+    }
+
+    /*
+    the reminders of one year, sorted by date
+     */
+    private static class Partition {
+        private final static Partition EMPTY = new Partition(0, new int[0],
+                CompressedTexts.compress(0, i -> null, null));
+
+        private final int year;
+        private final int[] keys;
+        private final CompressedTexts texts;
+        private final long bytes; //estimated heap size
+        private volatile long lastUsed; //PartitionCache.clock when the partition was last used
+
+        Partition(int year, int[] keys, CompressedTexts texts) {
+            this.year = year;
+            this.keys = keys;
+            this.texts = texts;
+            this.bytes = (long) ENTRY_OVERHEAD * keys.length + texts.getBytes();
+        }
+
+        //reads the segment of year, a missing one is empty (the year was removed by a newer version of the store)
+        static Partition read(Path segment, int year, CompressedTexts.Cache cache) throws IOException {
+            MappedReminderStore file;
+            try {
+                file = new MappedReminderStore(segment);
+            } catch (NoSuchFileException e) {
+                return EMPTY;
+            }
+            int[] keys = new int[file.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = file.keyAt(i);
+            }
+            return new Partition(year, keys, CompressedTexts.compress(keys.length, file::textBytesAt, cache));
+        }
+
+        //the position of the first key >= key
+        int indexOf(int key) {
+            int i = Arrays.binarySearch(this.keys, key);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    /*
+    the loaded years of all versions of a store. Lookups don't lock, loads and evictions are done under the lock of
+    the cache, so a save which publishes a new segment (see replace()) can't be overtaken by a load of the old one.
+    Eviction is LRU by the clock, which ticks once per load: partitions used since the last load count as equally
+    recent, which spares lookups a write to shared memory.
+     */
+    private static class PartitionCache {
+        private final long budget;
+        private final Map<Integer, Partition> partitions = new ConcurrentHashMap<>();
+        private final CompressedTexts.Cache texts = new CompressedTexts.Cache(Long.getLong(Utils.TEXT_CACHE_PROPERTY,
+                Utils.TEXT_CACHE_BUDGET)); //the decoded texts of the partitions
+        private volatile long clock;
+        private long bytes; //estimated heap size of partitions, guarded by this
+
+        PartitionCache(long budget) {
+            this.budget = budget;
+        }
+
+        //returns the partition of year, it's read from segment if it's not loaded
+        Partition get(int year, Path segment) throws IOException {
+            Partition partition = this.partitions.get(year);
+            if (partition == null) {
+                synchronized (this) {
+                    partition = this.partitions.get(year);
+                    if (partition == null) {
+                        partition = load(segment, year, this.texts);
+                        if (partition != Partition.EMPTY) {
+                            this.put(partition);
+                        }
+                    }
+                }
+            }
+            long now = this.clock;
+            if (partition.lastUsed != now) {
+                partition.lastUsed = now;
+            }
+            return partition;
+        }
+
+        //replaces the partition of year by one which was just written, null if the year has no reminders anymore
+        synchronized void replace(int year, Partition partition) {
+            Partition previous = this.partitions.remove(year);
+            if (previous != null) {
+                this.dropped(previous);
+            }
+            if (partition != null) {
+                this.put(partition);
+            }
+        }
+
+        //adds a partition and evicts the least recently used ones (except for partition) while over the budget
+        private void put(Partition partition) {
+            Partition previous = this.partitions.put(partition.year, partition);
+            if (previous != null) {
+                this.dropped(previous);
+            }
+            this.bytes += partition.bytes;
+            partition.lastUsed = ++this.clock;
+            while (this.bytes > this.budget && this.partitions.size() > 1) {
+                Partition coldest = null;
+                for (Partition candidate : this.partitions.values()) {
+                    if (candidate != partition && (coldest == null || candidate.lastUsed < coldest.lastUsed)) {
+                        coldest = candidate;
+                    }
+                }
+                this.partitions.remove(coldest.year);
+                this.dropped(coldest);
+                EVICTIONS.increment();
+            }
+        }
+
+        /*
+        a partition left the cache: its decoded blocks go too, they would keep the partition on the heap otherwise. A
+        reader which still has the partition may decode blocks again, they're evicted like any others then
+         */
+        private void dropped(Partition partition) {
+            this.bytes -= partition.bytes;
+            this.texts.removeAll(partition.texts);
+        }
+
+        //reads a segment and records the load
+        private static Partition load(Path segment, int year, CompressedTexts.Cache texts) throws IOException {
+            ReminderEvents.Load event = new ReminderEvents.Load();
+            event.begin();
+            long start = System.nanoTime();
+            Partition partition = Partition.read(segment, year, texts);
+            LOAD_TIME.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = segment.toString();
+                event.bytes = partition.bytes;
+                event.entries = partition.keys.length;
+                event.commit();
+            }
+            return partition;
+        }
+    }
+
+    /*
+    walks the years of this version in order up to the year at position last of years. The next year is only loaded
+    once hasKey() is called after the current year is done
+     */
+    private class PartitionCursor implements Cursor {
+        private final int last;
+        private int year; //position in years
+        private Partition partition; //null once the cursor is past the last year
+        private int position;
+
+        PartitionCursor(int key, int last) {
+            int[] years = PartitionedReminderStore.this.years;
+            int i = Arrays.binarySearch(years, yearOf(key));
+            this.last = last;
+            this.year = i >= 0 ? i : -i - 1;
+            if (this.year <= last) {
+                this.partition = PartitionedReminderStore.this.partition(years[this.year]);
+                this.position = this.partition.indexOf(key);
+            }
+        }
+
+        @Override
+        public boolean hasKey() {
+            int[] years = PartitionedReminderStore.this.years;
+            while (this.partition != null && this.position >= this.partition.keys.length) {
+                this.year++;
+                this.position = 0;
+                this.partition = this.year <= this.last
+                        ? PartitionedReminderStore.this.partition(years[this.year]) : null;
+            }
+            return this.partition != null;
+        }
+
+        @Override
+        public int key() {
+            return this.partition.keys[this.position];
+        }
+
+        @Override
+        public String text() {
+            return this.partition.texts.get(this.position);
+        }
+
+        @Override
+        public byte[] textBytes() {
+            return this.partition.texts.getBytes(this.position);
+        }
+
+        @Override
+        public void next() {
+            this.position++;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+the recurring reminders (see RecurrenceRule) of a ReminderManager. Instead of checking every rule, a lookup only
+checks the rules which can occur on the date at all: the rules are bucketed by the day of the week (weekly rules),
+the day of the month (monthly rules) and the day of the year (yearly rules). Only daily rules are checked for
+every date. So a lookup costs about the amount of rules in the buckets of the date instead of the amount of rules.
+
+The index is immutable, ReminderManager replaces it when a rule is added or removed (which is rare compared to
+lookups), so readers never lock.
+
+Layout of the .rules file (all numbers are big endian):
+[int MAGIC][short VERSION][short flags (unused)][int amount of rules] then every rule, see RecurrenceRule.write()
+ */
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class RecurrenceIndex {
+
+    //CONSTANTS
+    public final static int MAGIC = 0x52454D52; //"REMR"
+    public final static short VERSION = 1;
+    public final static RecurrenceIndex EMPTY = new RecurrenceIndex(new RecurrenceRule[0]);
+
+    //instance fields
+    private final RecurrenceRule[] rules; //in the order they were added, texts of one date are joined in this order
+    private final int[] daily; //positions in rules
+    private final int[][] byDayOfWeek = new int[7][];
+    private final int[][] byDayOfMonth = new int[32][];
+    private final int[][] byDayOfYear = new int[13 * 32][]; //month * 32 + day
+
+    private RecurrenceIndex(RecurrenceRule[] rules) {
+        this.rules = rules;
+        List<Integer> daily = new ArrayList<>();
+        List<List<Integer>> byDayOfWeek = buckets(this.byDayOfWeek.length);
+        List<List<Integer>> byDayOfMonth = buckets(this.byDayOfMonth.length);
+        List<List<Integer>> byDayOfYear = buckets(this.byDayOfYear.length);
+        for (int i = 0; i < rules.length; i++) {
+            switch (rules[i].getFrequency()) {
+                case DAILY:
+                    daily.add(i);
+                    break;
+                case WEEKLY:
+                    byDayOfWeek.get(rules[i].dayOfWeek()).add(i);
+                    break;
+                case MONTHLY:
+                    byDayOfMonth.get(rules[i].dayOfMonth()).add(i);
+                    break;
+                default:
+                    byDayOfYear.get(rules[i].month() * 32 + rules[i].dayOfMonth()).add(i);
+                    break;
+            }
+        }
+        this.daily = toArray(daily);
+        for (int i = 0; i < this.byDayOfWeek.length; i++) {
+            this.byDayOfWeek[i] = toArray(byDayOfWeek.get(i));
+        }
+        for (int i = 0; i < this.byDayOfMonth.length; i++) {
+            this.byDayOfMonth[i] = toArray(byDayOfMonth.get(i));
+        }
+        for (int i = 0; i < this.byDayOfYear.length; i++) {
+            this.byDayOfYear[i] = toArray(byDayOfYear.get(i));
+        }
+    }
+
+    private static List<List<Integer>> buckets(int amount) {
+        List<List<Integer>> buckets = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        return buckets;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    //returns an index with rule added after the other rules
+    public RecurrenceIndex with(RecurrenceRule rule) {
+        RecurrenceRule[] rules = Arrays.copyOf(this.rules, this.rules.length + 1);
+        rules[rules.length - 1] = rule;
+        return new RecurrenceIndex(rules);
+    }
+
+    //returns an index without rule (compared with equals()), this index if it doesn't contain rule
+    public RecurrenceIndex without(RecurrenceRule rule) {
+        List<RecurrenceRule> rules = new ArrayList<>(Arrays.asList(this.rules));
+        return rules.remove(rule) ? new RecurrenceIndex(rules.toArray(new RecurrenceRule[0])) : this;
+    }
+
+    //returns the amount of rules
+    public int size() {
+        return this.rules.length;
+    }
+
+    //returns the rules in the order they were added
+    public List<RecurrenceRule> getRules() {
+        return List.of(this.rules);
+    }
+
+    /*
+    returns the text of the rules which occur on the packed date key (joined with line breaks if there are several)
+    or null if there's none
+     */
+    public String get(int key) {
+        if (this.rules.length == 0) {
+            return null;
+        }
+        int month = key / 100 % 100;
+        int day = key % 100;
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        long epochDay = Date.epochDay(key);
+        int[] weekly = this.byDayOfWeek[Date.dayOfWeek(key)];
+        int[] monthly = this.byDayOfMonth[day];
+        int[] yearly = this.byDayOfYear[month * 32 + day];
+        int[] matches = new int[this.daily.length + weekly.length + monthly.length + yearly.length];
+        int count = this.collect(key, epochDay, this.daily, matches, 0);
+        count = this.collect(key, epochDay, weekly, matches, count);
+        count = this.collect(key, epochDay, monthly, matches, count);
+        count = this.collect(key, epochDay, yearly, matches, count);
+        if (count == 0) {
+            return null;
+        }
+        if (count == 1) {
+            return this.rules[matches[0]].getText();
+        }
+        Arrays.sort(matches, 0, count);
+        int length = count - 1;
+        for (int i = 0; i < count; i++) {
+            length += this.rules[matches[i]].getText().length();
+        }
+        StringBuilder text = new StringBuilder(length).append(this.rules[matches[0]].getText());
+        for (int i = 1; i < count; i++) {
+            text.append('\n').append(this.rules[matches[i]].getText());
+        }
+        return text.toString();
+    }
+
+    //copies the positions of the rules of bucket which occur on key to matches, starting at added
+    private int collect(int key, long epochDay, int[] bucket, int[] matches, int added) {
+        for (int position : bucket) {
+            if (this.rules[position].occursOn(key, epochDay)) {
+                matches[added++] = position;
+            }
+        }
+        return added;
+    }
+
+    /*
+    returns the packed date of the first occurrence of any rule on or after the packed date from,
+    RecurrenceRule.NO_END if there's none
+     */
+    public int nextOccurrence(int from) {
+        int next = RecurrenceRule.NO_END;
+        for (RecurrenceRule rule : this.rules) {
+            next = Math.min(next, rule.nextOccurrence(from));
+        }
+        return next;
+    }
+
+    /*
+    returns a cursor over the dates from (inclusive) to to (inclusive) any rule occurs on, in ascending order
+     */
+    public Occurrences occurrences(int from, int to) {
+        return new Occurrences(from, to);
+    }
+
+    /*
+    reads the rules saved next to the .rem file at path, EMPTY if there's no such file
+     */
+    public static RecurrenceIndex read(Path path) throws IOException {
+        Path file = Paths.get(path + "." + Utils.RULES_FILE_EXTENSION);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+            }
+            if (input.readShort() > VERSION) {
+                throw new IOException(Utils.UNSUPPORTED_FILE_VERSION_ERROR);
+            }
+            input.readShort(); //flags
+            RecurrenceRule[] rules = new RecurrenceRule[input.readInt()];
+            for (int i = 0; i < rules.length; i++) {
+                rules[i] = RecurrenceRule.read(input);
+            }
+            return new RecurrenceIndex(rules);
+        } catch (NoSuchFileException e) {
+            return EMPTY;
+        }
+    }
+
+    /*
+    saves the rules next to the .rem file at path. Like a snapshot, the file is written next to its final name first
+    and then renamed, so a crash leaves either the old or the new rules behind
+     */
+    public void write(Path path) throws IOException {
+        Path file = Paths.get(path + "." + Utils.RULES_FILE_EXTENSION);
+        Path temp = Paths.get(file + "." + Utils.TEMP_FILE_EXTENSION);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeShort(0);
+            output.writeInt(this.rules.length);
+            for (RecurrenceRule rule : this.rules) {
+                rule.write(output);
+            }
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+    merges the occurrences of all rules in date order. Every rule with an occurrence left in the range is in a
+    queue ordered by its next occurrence, so a step costs O(log rules)
+     */
+    public class Occurrences {
+        private final int to;
+        private final PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        private String text; //the text of the current date
+
+        private Occurrences(int from, int to) {
+            this.to = to;
+            for (int i = 0; i < RecurrenceIndex.this.rules.length; i++) {
+                this.enqueue(i, from);
+            }
+            this.collect();
+        }
+
+        //checks if the cursor points to a date
+        public boolean hasKey() {
+            return this.text != null;
+        }
+
+        //the current date. Call hasKey() first
+        public int key() {
+            return (int) this.queue.peek()[0];
+        }
+
+        //the texts of the rules which occur on the current date, see get()
+        public String text() {
+            return this.text;
+        }
+
+        //moves to the next date
+        public void next() {
+            int key = this.key();
+            while (!this.queue.isEmpty() && this.queue.peek()[0] == key) {
+                long[] head = this.queue.poll();
+                this.enqueue((int) head[1], key + 1);
+            }
+            this.collect();
+        }
+
+        //adds the next occurrence of the rule at position on or after from if it's in the range
+        private void enqueue(int position, int from) {
+            int next = RecurrenceIndex.this.rules[position].nextOccurrence(from);
+            if (next <= this.to) {
+                this.queue.add(new long[]{next, position});
+            }
+        }
+
+        //the text of the first date in the queue
+        private void collect() {
+            this.text = this.queue.isEmpty() ? null : RecurrenceIndex.this.get(this.key());
+        }
+    }
+}
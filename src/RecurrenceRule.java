@@ -0,0 +1,261 @@
+/*
+a reminder which repeats every interval days, weeks, months or years from its start date until its end date (both
+included, see Date.getKey() for packed dates), except for the dates in its exceptions. The occurrences are never
+stored, occursOn() and nextOccurrence() compute them from the rule.
+
+Like in iCalendar (RFC 5545) a monthly rule which starts on e.g. the 31st skips the months without a 31st and a
+yearly rule which starts on February 29 only occurs in leap years.
+
+Rules are immutable, withException() returns a new rule.
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class RecurrenceRule {
+
+    public final static int NO_END = Integer.MAX_VALUE; //end of a rule which repeats forever, see nextOccurrence()
+    private final static int MAX_SKIPPED = 400 * 12; //months (or years) searched for a valid date before giving up
+    private final static int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    public enum Frequency { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    //instance fields
+    private final Frequency frequency;
+    private final int interval;
+    private final int start; //packed date of the first occurrence
+    private final long startDay; //Date.epochDay() of start
+    private final int end; //packed date after which the rule stops, NO_END if it doesn't
+    private final int[] exceptions; //packed dates without an occurrence, sorted
+    private final String text;
+
+    /*
+    Constructor
+    @param end - the last day the rule may occur on, null if it repeats forever
+     */
+    public RecurrenceRule(Frequency frequency, int interval, Date start, Date end, String text) {
+        this(frequency, interval, start.getKey(), end == null ? NO_END : end.getKey(), new int[0], text);
+    }
+
+    private RecurrenceRule(Frequency frequency, int interval, int start, int end, int[] exceptions, String text) {
+        if (interval < 1 || end < start) {
+            throw new IllegalArgumentException(Utils.INVALID_RULE_ERROR);
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.start = start;
+        this.startDay = Date.epochDay(start);
+        this.end = end;
+        this.exceptions = exceptions;
+        this.text = text;
+    }
+
+    //returns a copy of the rule which doesn't occur on date
+    public RecurrenceRule withException(Date date) {
+        int key = date.getKey();
+        if (Arrays.binarySearch(this.exceptions, key) >= 0) {
+            return this;
+        }
+        int[] exceptions = Arrays.copyOf(this.exceptions, this.exceptions.length + 1);
+        exceptions[exceptions.length - 1] = key;
+        Arrays.sort(exceptions);
+        return new RecurrenceRule(this.frequency, this.interval, this.start, this.end, exceptions, this.text);
+    }
+
+    //getters
+    public Frequency getFrequency() {
+        return this.frequency;
+    }
+
+    public int getInterval() {
+        return this.interval;
+    }
+
+    public Date getStart() {
+        return Date.fromKey(this.start);
+    }
+
+    //null if the rule repeats forever
+    public Date getEnd() {
+        return this.end == NO_END ? null : Date.fromKey(this.end);
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    //the day of the week (0 is Monday) weekly rules occur on, see RecurrenceIndex
+    int dayOfWeek() {
+        return Date.dayOfWeek(this.start);
+    }
+
+    //the day of the month monthly and yearly rules occur on
+    int dayOfMonth() {
+        return this.start % 100;
+    }
+
+    //the month yearly rules occur in
+    int month() {
+        return this.start / 100 % 100;
+    }
+
+    /*
+    checks if the rule occurs on the packed date key
+     */
+    public boolean occursOn(int key) {
+        return this.occursOn(key, Date.epochDay(key));
+    }
+
+    //occursOn() for a key whose Date.epochDay() is already known, see RecurrenceIndex.get()
+    boolean occursOn(int key, long day) {
+        if (key < this.start || key > this.end) {
+            return false;
+        }
+        boolean occurs;
+        switch (this.frequency) {
+            case DAILY:
+                occurs = (day - this.startDay) % this.interval == 0;
+                break;
+            case WEEKLY:
+                occurs = (day - this.startDay) % (7L * this.interval) == 0;
+                break;
+            case MONTHLY:
+                occurs = key % 100 == this.dayOfMonth() && monthsBetween(this.start, key) % this.interval == 0;
+                break;
+            default:
+                occurs = key % 10000 == this.start % 10000 && (key / 10000 - this.start / 10000) % this.interval == 0;
+                break;
+        }
+        return occurs && (this.exceptions.length == 0 || Arrays.binarySearch(this.exceptions, key) < 0);
+    }
+
+    /*
+    returns the packed date of the first occurrence on or after the packed date from (which doesn't have to be a
+    valid date, e.g. the day after a packed date is key + 1), NO_END if there's none
+     */
+    public int nextOccurrence(int from) {
+        int key = Math.max(from, this.start);
+        switch (this.frequency) {
+            case DAILY:
+            case WEEKLY:
+                long period = this.frequency == Frequency.DAILY ? this.interval : 7L * this.interval;
+                long last = this.end == NO_END ? Long.MAX_VALUE : Date.epochDay(this.end);
+                long day = this.startDay + ceilDiv(Date.epochDay(key) - this.startDay, period) * period;
+                while (day <= last && !this.occursOn(Date.fromEpochDay(day))) {
+                    day += period; //an exception
+                }
+                return day <= last ? Date.fromEpochDay(day) : NO_END;
+            case MONTHLY:
+                //the first month at or after key's month which is a multiple of interval months after start
+                long month = ceilDiv(monthsBetween(this.start, key) + (key % 100 > this.dayOfMonth() ? 1 : 0),
+                        this.interval) * this.interval;
+                return this.firstValid(month, 1);
+            default:
+                long year = ceilDiv(key / 10000 - this.start / 10000 + (key % 10000 > this.start % 10000 ? 1 : 0),
+                        this.interval) * this.interval;
+                return this.firstValid(year, 12);
+        }
+    }
+
+    /*
+    the first occurrence of a monthly or yearly rule, counting step months at a time starting step * periods months
+    after start. Months without the day of the rule and exceptions are skipped
+     */
+    private int firstValid(long periods, int step) {
+        int startMonth = this.start / 10000 * 12 + this.month() - 1;
+        for (int i = 0; i < MAX_SKIPPED; i++, periods += this.interval) {
+            long month = startMonth + periods * step;
+            if (month / 12 > this.end / 10000) {
+                return NO_END;
+            }
+            int year = (int) (month / 12);
+            int monthOfYear = (int) (month % 12) + 1;
+            int key = year * 10000 + monthOfYear * 100 + this.dayOfMonth();
+            if (this.dayOfMonth() <= daysInMonth(year, monthOfYear) && this.occursOn(key)) {
+                return key;
+            }
+            if (key > this.end) {
+                return NO_END;
+            }
+        }
+        return NO_END;
+    }
+
+    //whole months from the month of the packed date from to the month of the packed date to
+    private static int monthsBetween(int from, int to) {
+        return (to / 10000 - from / 10000) * 12 + to / 100 % 100 - from / 100 % 100;
+    }
+
+    //a / b rounded up, for a >= -b and b > 0
+    private static long ceilDiv(long a, long b) {
+        return Math.max(0, a + b - 1) / b;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        return month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /*
+    writes the rule for read(), see RecurrenceIndex.write()
+     */
+    void write(DataOutputStream output) throws IOException {
+        output.writeByte(this.frequency.ordinal());
+        output.writeInt(this.interval);
+        output.writeInt(this.start);
+        output.writeInt(this.end);
+        output.writeInt(this.exceptions.length);
+        for (int exception : this.exceptions) {
+            output.writeInt(exception);
+        }
+        byte[] text = this.text.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(text.length);
+        output.write(text);
+    }
+
+    static RecurrenceRule read(DataInputStream input) throws IOException {
+        int frequency = input.readUnsignedByte();
+        if (frequency >= Frequency.values().length) {
+            throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+        }
+        int interval = input.readInt();
+        int start = input.readInt();
+        int end = input.readInt();
+        int[] exceptions = new int[input.readInt()];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = input.readInt();
+        }
+        byte[] text = new byte[input.readInt()];
+        input.readFully(text);
+        try {
+            return new RecurrenceRule(Frequency.values()[frequency], interval, start, end, exceptions,
+                    new String(text, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RecurrenceRule)) {
+            return false;
+        }
+        RecurrenceRule rule = (RecurrenceRule) o;
+        return this.frequency == rule.frequency && this.interval == rule.interval && this.start == rule.start
+                && this.end == rule.end && Arrays.equals(this.exceptions, rule.exceptions)
+                && this.text.equals(rule.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((this.frequency.hashCode() * 31 + this.start) * 31 + this.interval) * 31 + this.text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.frequency + "/" + this.interval + " " + Date.fromKey(this.start) + " " + this.text;
+    }
+}
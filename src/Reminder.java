@@ -0,0 +1,28 @@
+/*
+the class represents a single reminder: the date and the reminder text. It's what ReminderManager returns
+when several reminders are asked for at once (e.g. all reminders between two dates).
+ */
+
+public class Reminder {
+
+    //instance fields
+    private Date date;
+    private String text;
+
+    /*
+    Constructor
+     */
+    public Reminder(Date date, String text) {
+        this.date = date;
+        this.text = text;
+    }
+
+    //getters
+    public Date getDate() {
+        return this.date;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+}
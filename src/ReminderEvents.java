@@ -0,0 +1,146 @@
+/*
+JDK Flight Recorder events of the app, all in the "Reminders" category. Start a recording with e.g.
+java -XX:StartFlightRecording=filename=reminders.jfr ReminderMain (or jcmd <pid> JFR.start) and open the file in
+JDK Mission Control, or print it with: jfr print --categories Reminders reminders.jfr
+
+An event costs next to nothing while no recording runs: begin() and commit() check a flag and the event object
+doesn't escape, so the JIT removes it. Get and Put are only committed when they took at least 1 ms (a lookup
+normally takes nanoseconds), so a recording shows the slow ones without being flooded.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+public class ReminderEvents {
+
+    private final static String CATEGORY = "Reminders";
+
+    private ReminderEvents() {
+    }
+
+    /*
+    called once by Metrics, the gauges are emitted as periodic events. Registering a periodic event initializes
+    the flight recorder, so it's only done once a recording was started (at launch or later with jcmd)
+     */
+    static void registerPeriodicEvents() {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                FlightRecorder.addPeriodicEvent(Gauge.class, () -> Metrics.gauges().forEach((name, value) -> {
+                    Gauge event = new Gauge();
+                    event.name = name;
+                    event.value = value;
+                    event.commit();
+                }));
+            }
+        });
+    }
+
+    @Name("reminders.Get")
+    @Label("Get Reminder")
+    @Category(CATEGORY)
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class Get extends Event {
+        @Label("Date")
+        int date; //packed, see Date.getKey()
+
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("reminders.Put")
+    @Label("Put Reminder")
+    @Description("Saving or removing a reminder, including writing its journal record")
+    @Category(CATEGORY)
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class Put extends Event {
+        @Label("Date")
+        int date;
+
+        @Label("Length")
+        @Description("Length of the text, -1 for a removal")
+        int length;
+    }
+
+    @Name("reminders.Load")
+    @Label("Load File")
+    @Description("Reading or memory-mapping a .rem file, or loading one year of a partitioned file")
+    @Category(CATEGORY)
+    public static class Load extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Mapped")
+        boolean mapped;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Entries")
+        int entries;
+    }
+
+    @Name("reminders.Save")
+    @Label("Save File")
+    @Description("Writing a .rem file: saveToFile(), an autosave or a compaction of the journal")
+    @Category(CATEGORY)
+    public static class Save extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Entries")
+        int entries;
+    }
+
+    @Name("reminders.JournalOpen")
+    @Label("Open Journal")
+    @Description("Opening the journal of a .rem file and replaying its records")
+    @Category(CATEGORY)
+    public static class JournalOpen extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Journal Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("reminders.EdtHandler")
+    @Label("GUI Handler")
+    @Description("Time an action handler of the GUI blocked the event dispatch thread")
+    @Category(CATEGORY)
+    public static class EdtHandler extends Event {
+        @Label("Handler")
+        String handler;
+    }
+
+    @Name("reminders.Gauge")
+    @Label("Gauge")
+    @Description("The value of a gauge of Metrics, e.g. the amount of reminders")
+    @Category(CATEGORY)
+    @Period("10 s")
+    @StackTrace(false)
+    public static class Gauge extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Value")
+        long value;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+exports all reminders of a ReminderManager as a CSV or iCalendar file (see TransferFormat), the counterpart of
+ReminderImporter. The reminders are streamed in date order with getRemindersBetween(), so nothing but the
+writer's buffer is held in memory. Like a snapshot (see ReminderManager.saveToFile()) the file is written next
+to the target first and then moved over it, so a failed export never leaves half a file behind.
+Only the reminders of single dates are exported, the occurrences of recurring reminders (see RecurrenceRule) aren't:
+a rule without an end would never stop.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+
+public class ReminderExporter {
+
+    private final static int BUFFER_SIZE = 1024 * 1024;
+    private final static int ICS_LINE_OCTETS = 75; //iCalendar lines are folded after 75 octets
+    private final static DateTimeFormatter ICS_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private ReminderExporter() {
+    }
+
+    /*
+    writes every reminder of reminderManager to path, the format is chosen by its extension. Returns the amount of
+    reminders written
+     */
+    public static long export(ReminderManager reminderManager, Path path) throws IOException {
+        TransferFormat format = TransferFormat.of(path);
+        Path temp = path.resolveSibling(path.getFileName() + "." + Utils.TEMP_FILE_EXTENSION);
+        long count = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp),
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String timestamp = ICS_TIMESTAMP.format(Instant.now());
+            if (format == TransferFormat.CSV) {
+                writer.write("date,text\r\n");
+            } else {
+                writer.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Reminders//Reminders//EN\r\n");
+            }
+            Iterator<Reminder> reminders = reminderManager.getSingleRemindersBetween(new Date(1, 1, 0),
+                    new Date(31, 12, 9999));
+            while (reminders.hasNext()) {
+                Reminder reminder = reminders.next();
+                if (format == TransferFormat.CSV) {
+                    writeCsv(writer, reminder);
+                } else {
+                    writeIcs(writer, reminder, timestamp);
+                }
+                count++;
+            }
+            if (format == TransferFormat.ICS) {
+                writer.write("END:VCALENDAR\r\n");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /*
+    "ReminderMain --export <file.rem> <file.csv|file.ics>"
+     */
+    public static void run(String[] args) {
+        if (args.length < 2) {
+            System.err.println(Utils.TRANSFER_USAGE_STR);
+            System.exit(Utils.BAD_EXIT);
+        }
+        System.setProperty("java.awt.headless", "true"); //errors are only printed, see Utils.showMessageDialog()
+        ReminderManager reminderManager = new ReminderManager();
+        if (!reminderManager.mapRemindersFile(args[0])) {
+            reminderManager.setReminderTable(reminderManager.readRemindersFromFile(args[0]));
+        }
+        //the journal may hold changes which aren't in the .rem file yet, an export only reads them
+        reminderManager.replayJournal(args[0]);
+        try {
+            long count = export(reminderManager, Paths.get(args[1]));
+            System.out.println(count + Utils.EXPORTED_MESSAGE + args[1]);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(Utils.EXPORT_ERROR_STR);
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+
+    //yyyy-mm-dd of a date, the format ReminderImporter.parseDate() reads
+    private static String isoDate(Date date) {
+        return String.format("%04d-%02d-%02d", date.getYear(), date.getMonth(), date.getDay());
+    }
+
+    private static void writeCsv(Writer writer, Reminder reminder) throws IOException {
+        writer.write(isoDate(reminder.getDate()));
+        writer.write(',');
+        String text = reminder.getText();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (text.isEmpty() || quote) {
+            //an empty unquoted field would look like a blank line to ReminderImporter
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+        writer.write("\r\n");
+    }
+
+    private static void writeIcs(Writer writer, Reminder reminder, String timestamp) throws IOException {
+        String date = isoDate(reminder.getDate()).replace("-", "");
+        writer.write("BEGIN:VEVENT\r\n");
+        writer.write("UID:" + date + "@reminders\r\n");
+        writer.write("DTSTAMP:" + timestamp + "\r\n");
+        writer.write("DTSTART;VALUE=DATE:" + date + "\r\n");
+        writeFolded(writer, "SUMMARY:" + escapeIcs(reminder.getText()));
+        writer.write("END:VEVENT\r\n");
+    }
+
+    //escapes an iCalendar text value: \ ; , and line breaks
+    private static String escapeIcs(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' || c == ';' || c == ',') {
+                escaped.append('\\').append(c);
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else if (c != '\r') {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /*
+    writes a content line, folded into lines of at most ICS_LINE_OCTETS UTF-8 bytes. Continuation lines start with
+    a space which counts towards their length. A character (or surrogate pair) is never split
+     */
+    private static void writeFolded(Writer writer, String line) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int length = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : 3;
+            if (Character.isLowSurrogate(c)) {
+                length = 0; //counted with its high surrogate
+            }
+            if (octets + length > ICS_LINE_OCTETS) {
+                writer.write("\r\n ");
+                octets = 1;
+            }
+            writer.write(c);
+            octets += length;
+        }
+        writer.write("\r\n");
+    }
+}
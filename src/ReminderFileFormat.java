@@ -0,0 +1,262 @@
+/*
+the class reads and writes the binary .rem format. It replaces Java serialization of Hashtable<Date, String> which
+had to write class descriptors and boxed ints for every entry and rebuild every Date reflectively when reading.
+
+Layout of a .rem file (all numbers are big endian):
+header:  [int MAGIC][short VERSION][short flags][int amount of entries]
+entries: amount of entries times [int packed date][int text length][UTF-8 text], sorted by packed date
+index:   (only if flags contains FLAG_INDEX) amount of entries times [int packed date][long offset of the entry]
+footer:  (only if flags contains FLAG_INDEX) [long offset of the index][int MAGIC]
+
+A packed date is Date.getKey(), i.e. year * 10000 + month * 100 + day, so sorting the packed dates sorts the dates.
+The index lets readers find a single entry without decoding the whole file. The reader also understands the old
+serialized files: they start with the serialization stream magic instead of MAGIC, and partitioned files (see
+PartitionedReminderStore) whose manifest starts with PartitionedReminderStore.MANIFEST_MAGIC.
+ */
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+public class ReminderFileFormat {
+
+    //CONSTANTS
+    public final static int MAGIC = 0x52454D46; //"REMF"
+    public final static short VERSION = 1;
+    public final static short FLAG_INDEX = 1; //the file ends with an index block
+    public final static int HEADER_SIZE = 12;
+    public final static int INDEX_ENTRY_SIZE = 12; //packed date + offset
+    public final static int FOOTER_SIZE = 12; //index offset + magic
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static short SERIALIZATION_MAGIC = (short) 0xACED; //first bytes of an ObjectOutputStream
+
+    //the class only has static methods
+    private ReminderFileFormat() {
+    }
+
+    /*
+    checks if the file at path was written with Java serialization (the format used before this class existed)
+     */
+    public static boolean isLegacyFile(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            return input.readShort() == SERIALIZATION_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /*
+    writes table to path.
+    @param withIndex - if true the index block and the footer are written after the entries
+     */
+    public static void write(DateIndexMap table, Path path, boolean withIndex) throws IOException {
+        //the entries are written in date order so the index (and range reads) can use binary search
+        int[] keys = table.sortedKeys();
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = table.get(keys[i]);
+        }
+        write(keys, values, keys.length, path, withIndex);
+    }
+
+    /*
+    writes size entries which are already sorted by packed date
+     */
+    public static void write(int[] keys, String[] values, int size, Path path, boolean withIndex)
+            throws IOException {
+        try (Writer writer = new Writer(path, size, withIndex)) {
+            for (int i = 0; i < size; i++) {
+                byte[] text = values[i].getBytes(StandardCharsets.UTF_8);
+                writer.add(keys[i], text, 0, text.length);
+            }
+        }
+    }
+
+    /*
+    streams entries into a new .rem file so that callers which merge several sources (e.g. a mapped file and the
+    changes made since it was mapped) don't have to decode everything into Strings first.
+    The amount of entries must be known up front because it's part of the header. Entries must be added in
+    ascending packed date order.
+     */
+    public static class Writer implements Closeable {
+        private FileChannel channel;
+        private DataOutputStream output;
+        private int size; //the amount of entries promised in the header
+        private int added;
+        private long[] offsets; //offset of every entry, null if no index is written
+        private int[] keys;
+        private long offset; //where the next entry starts
+
+        public Writer(Path path, int size, boolean withIndex) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(this.channel),
+                    BUFFER_SIZE));
+            this.size = size;
+            if (withIndex) {
+                this.offsets = new long[size];
+                this.keys = new int[size];
+            }
+            this.output.writeInt(MAGIC);
+            this.output.writeShort(VERSION);
+            this.output.writeShort(withIndex ? FLAG_INDEX : 0);
+            this.output.writeInt(size);
+            this.offset = HEADER_SIZE;
+        }
+
+        //adds an entry whose text is length UTF-8 bytes of text starting at start
+        public void add(int key, byte[] text, int start, int length) throws IOException {
+            if (this.added == this.size) {
+                throw new IOException(Utils.TOO_MANY_ENTRIES_ERROR);
+            }
+            if (this.offsets != null) {
+                this.offsets[this.added] = this.offset;
+                this.keys[this.added] = key;
+            }
+            this.output.writeInt(key);
+            this.output.writeInt(length);
+            this.output.write(text, start, length);
+            this.offset += Integer.BYTES * 2 + length;
+            this.added++;
+        }
+
+        /*
+        writes the index block and the footer (if requested), forces the file to the disk and closes it.
+        Callers rename the file over the previous one right after, so it must be complete on the disk first
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (this.added != this.size) {
+                    throw new IOException(Utils.TOO_FEW_ENTRIES_ERROR);
+                }
+                if (this.offsets != null) {
+                    for (int i = 0; i < this.size; i++) {
+                        this.output.writeInt(this.keys[i]);
+                        this.output.writeLong(this.offsets[i]);
+                    }
+                    this.output.writeLong(this.offset);
+                    this.output.writeInt(MAGIC);
+                }
+                this.output.flush();
+                this.channel.force(true);
+            } finally {
+                this.output.close();
+            }
+        }
+    }
+
+    /*
+    reads the whole file at path into a hash table. Files written with Java serialization are read with
+    ObjectInputStream so old .rem files keep working and get converted on the next save. All years of a
+    partitioned file are read.
+     */
+    public static DateIndexMap read(Path path) throws IOException, ClassNotFoundException {
+        return read(path, null);
+    }
+
+    /*
+    same as read(path) but reports how much of the file was read so far (in percent) to progress
+     */
+    @SuppressWarnings("unchecked")
+    public static DateIndexMap read(Path path, IntConsumer progress) throws IOException, ClassNotFoundException {
+        if (PartitionedReminderStore.isManifest(path)) {
+            return PartitionedReminderStore.readAll(path, progress);
+        }
+        //the streams around file hold no resources of their own, closing file is enough
+        try (InputStream file = Files.newInputStream(path)) {
+            InputStream source = progress == null ? file : new ProgressInputStream(file, Files.size(path), progress);
+            if (isLegacyFile(path)) {
+                ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(source, BUFFER_SIZE));
+                //old files contain a Hashtable<Date, String> hence the cast is OK
+                Hashtable<Date, String> legacy = (Hashtable<Date, String>) input.readObject();
+                DateIndexMap table = new DateIndexMap(legacy.size());
+                for (Map.Entry<Date, String> entry : legacy.entrySet()) {
+                    table.put(entry.getKey().getKey(), entry.getValue());
+                }
+                return table;
+            }
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(source, BUFFER_SIZE));
+            int size = readHeader(input);
+            //size the table up front so it never has to rehash while loading
+            DateIndexMap table = new DateIndexMap(size);
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < size; i++) {
+                int key = input.readInt();
+                int length = input.readInt();
+                if (length > buffer.length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                input.readFully(buffer, 0, length);
+                table.put(key, new String(buffer, 0, length, StandardCharsets.UTF_8));
+            }
+            return table;
+        }
+    }
+
+    /*
+    checks the header and returns the amount of entries in the file
+     */
+    private static int readHeader(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException(Utils.INVALID_FILE_FORMAT_ERROR);
+        }
+        short version = input.readShort();
+        if (version > VERSION) {
+            throw new IOException(Utils.UNSUPPORTED_FILE_VERSION_ERROR);
+        }
+        input.readShort(); //flags, the index isn't needed when reading everything
+        return input.readInt();
+    }
+
+    /*
+    counts the bytes read from a file and reports every whole percent of the file to a listener
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+        private IntConsumer progress;
+        private long length; //the size of the file
+        private long read;
+        private int reported = -1; //the last percent reported
+
+        ProgressInputStream(InputStream input, long length, IntConsumer progress) {
+            super(input);
+            this.length = Math.max(length, 1);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                this.count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                this.count(n);
+            }
+            return n;
+        }
+
+        private void count(int bytes) {
+            this.read += bytes;
+            int percent = (int) (this.read * 100 / this.length);
+            if (percent != this.reported) {
+                this.reported = percent;
+                this.progress.accept(Math.min(percent, 100));
+            }
+        }
+    }
+}
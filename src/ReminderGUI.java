@@ -9,23 +9,38 @@ interface.
 Then the app loads.
 3) If the user wants to create a new file which will store the reminders we show another dialog box where the user
 can type the name of the file. If no name is provided then the default file name is chosen.
-4) The reminders app opens with the GUI that lets save/get reminders as well as choose dates.
-5) When the app is closed all reminders are automatically saved to the file specified by the user (or default).
-6) Reminder app files must have .rem extension.
-7) If the user wants to exit the app we first ask if they are sure. If not the app continues working else the app exits.
+4) The reminders app opens with the GUI that lets save/get reminders as well as choose dates. The file is loaded in the
+background (see LoadWorker) while a progress bar is shown, the buttons are enabled once the reminders are available.
+5) Every saved reminder is appended to a journal next to the file specified by the user (or default) and the journal
+is compacted into the file from time to time. When the app is closed the journal is flushed to the disk.
+6) Reminders can be found by the words they contain with the search box next to the date combo boxes.
+The calendar on the left (see CalendarPanel) shows which days have reminders, clicking a day selects it in the
+combo boxes and shows its reminder.
+7) Reminder app files must have .rem extension.
+8) Saving reminders can be undone and redone with the undo/redo buttons, or Ctrl+Z and Ctrl+Y (see
+ReminderManager.undo()). The history starts when the file is loaded.
+9) Ctrl+Shift+M saves the metrics of the app (see Metrics) next to the file, e.g. to tell why something is slow.
+10) If the user wants to exit the app we first ask if they are sure. If not the app continues working else the journal
+is flushed in the background and the app exits once it's done.
  */
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.*;
+import java.time.Clock;
+import java.util.Iterator;
+import java.beans.PropertyChangeEvent;
+import java.util.concurrent.ExecutionException;
 
 @SuppressWarnings("serial")
 public class ReminderGUI extends JFrame implements ActionListener {
@@ -36,9 +51,19 @@ public class ReminderGUI extends JFrame implements ActionListener {
     private JComboBox<Integer> yearsComboBox;
     private JButton getReminderButton;
     private JButton saveButton;
+    private JButton undoButton;
+    private JButton redoButton;
+    private JTextField searchField;
+    private JButton searchButton;
     private ReminderManager reminderManager; //contains all reminders
     private JTextArea reminderTextArea;
     private String filePath; //the file path that output will be saved to
+    private boolean loadExistingFile; //true if the user chose an existing file, false for a new one
+    private JProgressBar progressBar; //shown while the file is loaded or saved
+    private LoadWorker loadWorker;
+    private ReminderLookup reminderLookup; //the lookup started last, only it may show its reminder
+    private ReminderNotifier notifier; //shows the reminders whose date arrived, null until the file is loaded
+    private CalendarPanel calendarPanel;
 
     /*
     Constructor
@@ -55,46 +80,174 @@ public class ReminderGUI extends JFrame implements ActionListener {
         this.reminderTextArea = new JTextArea(Utils.TEXT_AREA_DEFAULT_TEXT);
         this.getReminderButton = new JButton(Utils.GET_REMINDER_BUTTON);
         this.saveButton = new JButton(Utils.SAVE_BUTTON);
+        this.undoButton = new JButton(Utils.UNDO_BUTTON);
+        this.redoButton = new JButton(Utils.REDO_BUTTON);
+        this.searchField = new JTextField(Utils.SEARCH_FIELD_COLUMNS);
+        this.searchButton = new JButton(Utils.SEARCH_BUTTON);
+        this.progressBar = new JProgressBar(0, 100);
+        this.calendarPanel = new CalendarPanel(this.reminderManager, this::calendarDaySelected);
         this.doWeStartFromOldFile();
 
-        JPanel northPanel = new JPanel(); //contains comboboxes
-        JPanel southPanel = new JPanel(); //contains save/getReminder buttons
+        JPanel northPanel = new JPanel(); //contains comboboxes and the search box
+        JPanel southPanel = new JPanel(); //contains save/getReminder/undo/redo buttons
 
         northPanel.add(monthsComboBox, BorderLayout.NORTH);
         northPanel.add(daysComboBox, BorderLayout.NORTH);
         northPanel.add(yearsComboBox, BorderLayout.NORTH);
+        northPanel.add(searchField, BorderLayout.NORTH);
+        northPanel.add(searchButton, BorderLayout.NORTH);
 
         northPanel.setBorder(BorderFactory.createLineBorder(Color.black));
 
         southPanel.add(getReminderButton, BorderLayout.SOUTH);
         southPanel.add(saveButton, BorderLayout.SOUTH);
+        southPanel.add(undoButton, BorderLayout.SOUTH);
+        southPanel.add(redoButton, BorderLayout.SOUTH);
+        southPanel.add(progressBar, BorderLayout.SOUTH);
 
         super.add(southPanel, BorderLayout.SOUTH);
-        super.add(reminderTextArea, BorderLayout.CENTER);
+        super.add(new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, calendarPanel, reminderTextArea), BorderLayout.CENTER);
         super.add(northPanel, BorderLayout.NORTH);
 
         //----LISTENERS BINDING
         this.monthsComboBox.addActionListener(this);
         this.saveButton.addActionListener(this);
         this.getReminderButton.addActionListener(this);
+        this.undoButton.addActionListener(this);
+        this.redoButton.addActionListener(this);
+        this.searchField.addActionListener(this); //enter in the search box searches too
+        this.searchButton.addActionListener(this);
+        //doClick() does nothing while the buttons are disabled
+        super.getRootPane().registerKeyboardAction(e -> this.undoButton.doClick(),
+                KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), JComponent.WHEN_IN_FOCUSED_WINDOW);
+        super.getRootPane().registerKeyboardAction(e -> this.redoButton.doClick(),
+                KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), JComponent.WHEN_IN_FOCUSED_WINDOW);
+        KeyStroke dumpMetrics = KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.CTRL_DOWN_MASK
+                | InputEvent.SHIFT_DOWN_MASK);
+        super.getRootPane().registerKeyboardAction(e -> this.dumpMetrics(), dumpMetrics,
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+        Metrics.gauge("reminders.count", this.reminderManager::size);
 
         /*
-        when the app is closed we automatically save the reminders to the file. for this we need to handle the
-        close event. Instead of implementing the whole WindowListener interface I decided to use the adapter class
-        because we only need the closing event handler
+        when the app is closed we automatically flush the journal of reminders to the disk. for this we need to
+        handle the close event. Instead of implementing the whole WindowListener interface I decided to use the
+        adapter class because we only need the closing event handler
          */
         super.addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                //the window is only closed by exitInBackground() once everything is on the disk
+                ReminderGUI.super.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
                 int result = Utils.showConfirmDialog(ReminderGUI.this, Utils.CONFIRM_EXIT_MESSAGE, Utils.MESSAGE_STR);
                 if (result == JOptionPane.YES_OPTION) { //the user wants to exit
-                    ReminderGUI.this.reminderManager.saveToFile(ReminderGUI.this.filePath);
-                    System.exit(Utils.NORMAL_EXIT);
-                } else {
-                    ReminderGUI.super.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+                    ReminderGUI.this.exitInBackground();
                 }
             }
         });
+
+        //the window is usable right away, the reminders become available once the worker is done
+        this.setButtonsEnabled(false);
+        this.showProgress(Utils.LOADING_MESSAGE);
+        this.loadWorker = new LoadWorker();
+        this.loadWorker.addPropertyChangeListener(this::loadProgressChanged);
+        this.loadWorker.execute();
+    }
+
+    /*
+    loads the file chosen in doWeStartFromOldFile() and opens its journal off the event dispatch thread, so the
+    window is shown right away even for very large files. Binary files are memory-mapped which is almost instant,
+    old serialized files are read and report their progress through setProgress().
+     */
+    private class LoadWorker extends SwingWorker<Void, Void> {
+        @Override
+        protected Void doInBackground() {
+            ReminderManager manager = ReminderGUI.this.reminderManager;
+            String path = ReminderGUI.this.filePath;
+            if (ReminderGUI.this.loadExistingFile && !manager.mapRemindersFile(path)) {
+                manager.setReminderTable(manager.readRemindersFromFile(path, this::setProgress));
+            }
+            manager.openJournal(path, ReminderGUI.this.loadExistingFile);
+            return null;
+        }
+
+        //runs on the EDT once the reminders are available
+        @Override
+        protected void done() {
+            try {
+                this.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println(Utils.FILE_READ_ERROR_STR);
+                Utils.showMessageDialog(ReminderGUI.this, Utils.FILE_READ_ERROR_STR, Utils.FATAL_ERROR);
+                System.exit(Utils.BAD_EXIT);
+            }
+            ReminderGUI.this.progressBar.setVisible(false);
+            ReminderGUI.this.setButtonsEnabled(true);
+            ReminderGUI.this.notifier = new ReminderNotifier(ReminderGUI.this.reminderManager,
+                    Clock.systemDefaultZone(), ReminderGUI.this::reminderDue);
+            ReminderGUI.this.notifier.start();
+            ReminderGUI.this.calendarPanel.start();
+        }
+    }
+
+    //called by the notifier's thread when the date of a reminder arrives
+    private void reminderDue(Reminder reminder) {
+        Date date = reminder.getDate();
+        String title = Utils.REMINDER_DUE_TITLE + date.getDay() + "/" + date.getMonth() + "/" + date.getYear();
+        SwingUtilities.invokeLater(() -> Utils.showMessageDialog(this, reminder.getText(), title));
+    }
+
+    //updates the progress bar when LoadWorker reports progress
+    private void loadProgressChanged(PropertyChangeEvent event) {
+        if ("progress".equals(event.getPropertyName())) {
+            this.progressBar.setIndeterminate(false);
+            this.progressBar.setValue((Integer) event.getNewValue());
+        }
+    }
+
+    /*
+    flushes the journal off the EDT and exits once it's done. If the file is still being loaded we wait for that
+    first. Meanwhile the window is disabled so nothing can be changed after the final flush started.
+     */
+    private void exitInBackground() {
+        this.setEnabled(false);
+        if (this.notifier != null) {
+            this.notifier.stop();
+        }
+        this.calendarPanel.stop();
+        this.showProgress(Utils.SAVING_MESSAGE);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                try {
+                    ReminderGUI.this.loadWorker.get();
+                } finally {
+                    ReminderGUI.this.reminderManager.closeJournal();
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                System.exit(Utils.NORMAL_EXIT);
+            }
+        }.execute();
+    }
+
+    //shows an indeterminate progress bar with message
+    private void showProgress(String message) {
+        this.progressBar.setIndeterminate(true);
+        this.progressBar.setString(message);
+        this.progressBar.setStringPainted(true);
+        this.progressBar.setVisible(true);
+    }
+
+    private void setButtonsEnabled(boolean enabled) {
+        this.getReminderButton.setEnabled(enabled);
+        this.saveButton.setEnabled(enabled);
+        this.undoButton.setEnabled(enabled);
+        this.redoButton.setEnabled(enabled);
+        this.searchField.setEnabled(enabled);
+        this.searchButton.setEnabled(enabled);
     }
 
     /*
@@ -110,17 +263,54 @@ public class ReminderGUI extends JFrame implements ActionListener {
     }
 
     /*
-    we need to implement ActionListener interface. there're only two buttons and we need to adjust days based on the
-    month chosen so we need to check for three different events
+    we need to implement ActionListener interface. there're five buttons and the search box, and we need to adjust
+    days based on the month chosen so we need to check for seven different events.
+    The time every handler blocks the EDT is recorded (see Metrics and ReminderEvents.EdtHandler)
      */
     public void actionPerformed(ActionEvent e) {
+        ReminderEvents.EdtHandler event = new ReminderEvents.EdtHandler();
+        event.begin();
+        long start = System.nanoTime();
+        String handler;
         if (e.getSource() == this.monthsComboBox) {
             String monthName = (String) this.monthsComboBox.getSelectedItem();
             this.monthHandler(monthName);
+            handler = "month";
         } else if (e.getSource() == this.saveButton) {
             this.saveButtonHandler();
+            handler = "save";
         } else if (e.getSource() == this.getReminderButton) {
             this.getReminderButtonHandler();
+            handler = "getReminder";
+        } else if (e.getSource() == this.undoButton) {
+            this.undoButtonHandler();
+            handler = "undo";
+        } else if (e.getSource() == this.redoButton) {
+            this.redoButtonHandler();
+            handler = "redo";
+        } else if (e.getSource() == this.searchButton || e.getSource() == this.searchField) {
+            this.searchButtonHandler();
+            handler = "search";
+        } else {
+            return;
+        }
+        Metrics.histogram("edt." + handler).record(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.handler = handler;
+            event.commit();
+        }
+    }
+
+    //saves the metrics next to the reminders file, see Metrics
+    private void dumpMetrics() {
+        Path path = Paths.get(this.filePath + "." + Utils.METRICS_FILE_EXTENSION);
+        try {
+            Metrics.dump(path);
+            Utils.showMessageDialog(this, Utils.METRICS_DUMPED_MESSAGE + path, Utils.MESSAGE_STR);
+        } catch (IOException e) {
+            System.err.println(Utils.METRICS_WRITE_ERROR_STR);
+            Utils.showMessageDialog(this, Utils.METRICS_WRITE_ERROR_STR, Utils.MESSAGE_STR);
         }
     }
 
@@ -201,12 +391,111 @@ public class ReminderGUI extends JFrame implements ActionListener {
 
     /*
     the method handles getReminderButton events. When the button is clicked we get the date currently selected
-    in the GUI and then get the reminder associated with the date (if such exists). Finally, we set the JTextArea
-    to the reminder text (null in case there was no reminder)
+    in the GUI and then get the reminder associated with the date (if such exists) in the background. Finally, we set
+    the JTextArea to the reminder text (null in case there was no reminder)
      */
     private void getReminderButtonHandler() {
-        String reminder = this.reminderManager.getReminder(this.getDateFromGUI());
-        this.reminderTextArea.setText(reminder);
+        this.showReminder(this.getDateFromGUI());
+    }
+
+    //looks up the reminder of date off the EDT (its year may have to be loaded from the disk) and shows it
+    private void showReminder(Date date) {
+        this.reminderLookup = new ReminderLookup(date);
+        this.reminderLookup.execute();
+    }
+
+    /*
+    reads the reminder of a date in the background and sets the text area to it, unless another lookup was started
+    meanwhile: lookups may finish in any order
+     */
+    private class ReminderLookup extends SwingWorker<String, Void> {
+        private Date date;
+
+        ReminderLookup(Date date) {
+            this.date = date;
+        }
+
+        @Override
+        protected String doInBackground() {
+            return ReminderGUI.this.reminderManager.getReminder(this.date);
+        }
+
+        //runs on the EDT
+        @Override
+        protected void done() {
+            String reminder = null;
+            try {
+                reminder = this.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println(Utils.FILE_READ_ERROR_STR);
+                Utils.showMessageDialog(ReminderGUI.this, Utils.FILE_READ_ERROR_STR, Utils.FATAL_ERROR);
+                System.exit(Utils.BAD_EXIT);
+            }
+            if (ReminderGUI.this.reminderLookup == this) {
+                ReminderGUI.this.reminderTextArea.setText(reminder);
+            }
+        }
+    }
+
+    /*
+    the method handles undoButton events. The last save is undone and the reminder of the selected date is shown
+    again, the save may have been of that date
+     */
+    private void undoButtonHandler() {
+        if (this.reminderManager.undo()) {
+            this.getReminderButtonHandler();
+        }
+    }
+
+    /*
+    the method handles redoButton events, like undoButtonHandler()
+     */
+    private void redoButtonHandler() {
+        if (this.reminderManager.redo()) {
+            this.getReminderButtonHandler();
+        }
+    }
+
+    /*
+    the method handles searchButton events. The reminders containing all words typed in the search box are listed
+    in a dialog (at most Utils.MAX_SEARCH_RESULTS of them). The index answers right away so we stay on the EDT
+     */
+    private void searchButtonHandler() {
+        Iterator<Reminder> reminders = this.reminderManager.search(this.searchField.getText());
+        StringBuilder results = new StringBuilder();
+        int count = 0;
+        while (reminders.hasNext() && count < Utils.MAX_SEARCH_RESULTS) {
+            Reminder reminder = reminders.next();
+            Date date = reminder.getDate();
+            results.append(date.getDay()).append('/').append(date.getMonth()).append('/').append(date.getYear())
+                    .append(": ").append(reminder.getText()).append('\n');
+            count++;
+        }
+        if (count == 0) {
+            results.append(Utils.NO_SEARCH_RESULTS_MESSAGE);
+        } else if (reminders.hasNext()) {
+            results.append(Utils.MORE_SEARCH_RESULTS_MESSAGE);
+        }
+        Utils.showMessageDialog(this, results.toString(), Utils.SEARCH_RESULTS_TITLE);
+    }
+
+    /*
+    called when a day of the calendar is clicked. The day is selected in the combo boxes (years out of the combo
+    box are added to it) and its reminder is shown
+     */
+    private void calendarDaySelected(Date date) {
+        this.monthsComboBox.setSelectedIndex(date.getMonth() - 1); //adjusts the days through monthHandler()
+        this.daysComboBox.setSelectedItem(date.getDay());
+        DefaultComboBoxModel<Integer> years = (DefaultComboBoxModel<Integer>) this.yearsComboBox.getModel();
+        if (years.getIndexOf(date.getYear()) < 0) {
+            int i = 0;
+            while (i < years.getSize() && years.getElementAt(i) < date.getYear()) {
+                i++;
+            }
+            years.insertElementAt(date.getYear(), i);
+        }
+        this.yearsComboBox.setSelectedItem(date.getYear());
+        this.showReminder(date);
     }
 
     /*
@@ -230,6 +519,7 @@ public class ReminderGUI extends JFrame implements ActionListener {
     the method provides the initial interaction between the user and the app.
     Essentially we want to ask the user if the want to load reminders from an existing file or
     create a new file which will store the reminders. Because the main app is not yet running we're using frame null.
+    The file itself is loaded later by LoadWorker.
      */
     private void doWeStartFromOldFile() {
         //first we ask the user if they want to load a file or save reminders to a new file
@@ -239,12 +529,13 @@ public class ReminderGUI extends JFrame implements ActionListener {
             //by default we'll save new files in the current directory. we need to use File.separator
             //because different OS's have different separators
             this.filePath = this.getCurrentWorkingDirectory() + File.separator + this.getNameForOutputFile();
+            this.loadExistingFile = false;
         } else if (result == JOptionPane.YES_OPTION) {
             //the user chose to load reminders from an existing file
             path = this.chooseRemindersFile();
             if (Files.exists(path)) {
                 this.filePath = path.toString();
-                this.reminderManager.setReminderTable(this.reminderManager.readRemindersFromFile(this.filePath));
+                this.loadExistingFile = true;
             } else {
                 //the file path doesn't exist something may have happened to the file
                 Utils.showMessageDialog(null, Utils.FILE_MISSING_ERROR, Utils.FATAL_ERROR);
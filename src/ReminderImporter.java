@@ -0,0 +1,562 @@
+/*
+imports reminders from CSV and iCalendar files (see TransferFormat) into a ReminderManager.
+
+The input is streamed: it's read in chunks of about Utils.IMPORT_CHUNK_SIZE bytes, every chunk ending at a record
+boundary (a line break outside of quotes for CSV, the end of a VEVENT for iCalendar). The chunks are parsed in
+parallel and their reminders are inserted in the order of the input, in batches of Utils.IMPORT_BATCH_SIZE (see
+ReminderManager.putReminders()). At most two chunks per parser thread are in memory at a time, so the size of the
+input doesn't matter.
+
+The app stores one reminder per day, so reminders of the same day (e.g. several events) are joined with a line
+break. An existing reminder of a day is replaced by the imported one.
+
+Malformed rows (a bad date, a missing column, an unterminated quote, an event without DTSTART, ...) are skipped
+and counted. The first Utils.IMPORT_MAX_ERRORS of them are described in the result. Only failing to read the input
+is an error (IOException).
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ReminderImporter {
+
+    private final static byte[] EVENT_END = "END:VEVENT".getBytes(StandardCharsets.US_ASCII);
+    private final static String CSV_HEADER = "date";
+    private final static int[] DAYS_IN_MONTH = {31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    //instance fields
+    private ReminderManager reminderManager;
+    private int threads; //parser threads
+
+    /*
+    Constructor - parses with one thread per processor
+     */
+    public ReminderImporter(ReminderManager reminderManager) {
+        this(reminderManager, Runtime.getRuntime().availableProcessors());
+    }
+
+    /*
+    Constructor
+     */
+    public ReminderImporter(ReminderManager reminderManager, int threads) {
+        this.reminderManager = reminderManager;
+        this.threads = threads;
+    }
+
+    /*
+    imports the file at path, the format is chosen by its extension (see TransferFormat.of())
+     */
+    public Result importFile(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return this.importStream(in, TransferFormat.of(path));
+        }
+    }
+
+    /*
+    imports everything from in (UTF-8). in isn't closed
+     */
+    public Result importStream(InputStream in, TransferFormat format) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        Inserter inserter = new Inserter(result);
+        Deque<Future<Chunk>> parsing = new ArrayDeque<>();
+        ExecutorService parsers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            byte[] buffer = new byte[Utils.IMPORT_CHUNK_SIZE];
+            int length = 0; //bytes in buffer
+            boolean first = true;
+            boolean end = false;
+            while (!end) {
+                length += in.readNBytes(buffer, length, buffer.length - length);
+                end = length < buffer.length;
+                int boundary = end ? length : lastBoundary(format, buffer, length);
+                if (boundary < 0) {
+                    //a single record is larger than the buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+
+                byte[] bytes = Arrays.copyOf(buffer, boundary);
+                boolean firstChunk = first;
+                parsing.add(parsers.submit(() -> parse(format, bytes, firstChunk)));
+                first = false;
+                result.bytes += boundary;
+                System.arraycopy(buffer, boundary, buffer, 0, length - boundary);
+                length -= boundary;
+
+                while (parsing.size() > 2 * this.threads || (end && !parsing.isEmpty())) {
+                    inserter.insert(parsing.poll().get());
+                }
+            }
+            inserter.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause()); //parsers report bad input as malformed rows
+        } finally {
+            parsers.shutdownNow();
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /*
+    "ReminderMain --import <file.rem> <file.csv|file.ics>": imports the file into the .rem file (created if it's
+    missing) and saves it
+     */
+    public static void run(String[] args) {
+        if (args.length < 2) {
+            System.err.println(Utils.TRANSFER_USAGE_STR);
+            System.exit(Utils.BAD_EXIT);
+        }
+        System.setProperty("java.awt.headless", "true"); //errors are only printed, see Utils.showMessageDialog()
+        ReminderManager reminderManager = new ReminderManager();
+        boolean existing = Files.exists(Paths.get(args[0]));
+        if (existing && !reminderManager.mapRemindersFile(args[0])) {
+            reminderManager.setReminderTable(reminderManager.readRemindersFromFile(args[0]));
+        }
+        reminderManager.openJournal(args[0], existing);
+        try {
+            Result result = new ReminderImporter(reminderManager).importFile(Paths.get(args[1]));
+            reminderManager.compactJournal();
+            reminderManager.closeJournal();
+            System.out.println(result);
+            for (String error : result.getErrors()) {
+                System.err.println(error);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(Utils.IMPORT_ERROR_STR);
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+
+    /*
+    returns the position after the last complete record in the first length bytes of buffer, -1 if there's none
+     */
+    private static int lastBoundary(TransferFormat format, byte[] buffer, int length) {
+        if (format == TransferFormat.CSV) {
+            //the last line break which isn't inside a quoted field
+            boolean quoted = false;
+            int boundary = -1;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '"') {
+                    quoted = !quoted;
+                } else if (buffer[i] == '\n' && !quoted) {
+                    boundary = i + 1;
+                }
+            }
+            return boundary;
+        }
+        //the line break after the last END:VEVENT line
+        for (int i = length - EVENT_END.length; i >= 0; i--) {
+            if ((i == 0 || buffer[i - 1] == '\n') && startsWith(buffer, i, EVENT_END)) {
+                for (int j = i + EVENT_END.length; j < length; j++) {
+                    if (buffer[j] == '\n') {
+                        return j + 1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] buffer, int offset, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //runs on a parser thread
+    private static Chunk parse(TransferFormat format, byte[] bytes, boolean firstChunk) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        Chunk chunk = new Chunk();
+        if (format == TransferFormat.CSV) {
+            parseCsv(text, firstChunk, chunk);
+        } else {
+            parseIcs(text, chunk);
+        }
+        return chunk;
+    }
+
+    /*
+    parses CSV rows (RFC 4180). Every row needs exactly two fields, the date and the text
+     */
+    private static void parseCsv(String text, boolean firstChunk, Chunk chunk) {
+        int position = 0;
+        int line = 0;
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder quotedField = new StringBuilder();
+        while (position < text.length()) {
+            int rowLine = line;
+            fields.clear();
+            String error = null;
+
+            //the fields of one row
+            boolean rowEnd = false;
+            while (!rowEnd) {
+                if (position < text.length() && text.charAt(position) == '"') {
+                    quotedField.setLength(0);
+                    position++;
+                    boolean closed = false;
+                    while (position < text.length() && !closed) {
+                        char c = text.charAt(position++);
+                        if (c == '"') {
+                            if (position < text.length() && text.charAt(position) == '"') {
+                                quotedField.append('"');
+                                position++;
+                            } else {
+                                closed = true;
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            quotedField.append(c);
+                        }
+                    }
+                    if (!closed) {
+                        error = Utils.UNTERMINATED_QUOTE_ERROR;
+                    }
+                    fields.add(quotedField.toString());
+                } else {
+                    int fieldStart = position;
+                    while (position < text.length() && text.charAt(position) != ','
+                            && text.charAt(position) != '\n') {
+                        position++;
+                    }
+                    int fieldEnd = position;
+                    if (fieldEnd > fieldStart && text.charAt(fieldEnd - 1) == '\r') {
+                        fieldEnd--;
+                    }
+                    fields.add(text.substring(fieldStart, fieldEnd));
+                }
+
+                if (position >= text.length()) {
+                    rowEnd = true;
+                } else if (text.charAt(position) == ',') {
+                    position++;
+                } else if (text.charAt(position) == '\n') {
+                    position++;
+                    line++;
+                    rowEnd = true;
+                } else if (text.charAt(position) == '\r' && position + 1 < text.length()
+                        && text.charAt(position + 1) == '\n') {
+                    position += 2;
+                    line++;
+                    rowEnd = true;
+                } else {
+                    //text after the closing quote: skip the rest of the line
+                    error = Utils.TEXT_AFTER_QUOTE_ERROR;
+                    while (position < text.length() && text.charAt(position) != '\n') {
+                        position++;
+                    }
+                }
+            }
+
+            if (fields.size() == 1 && fields.get(0).isEmpty() && error == null) {
+                continue; //blank line
+            }
+            if (firstChunk && rowLine == 0 && fields.get(0).trim().equalsIgnoreCase(CSV_HEADER)) {
+                continue;
+            }
+            int key = -1;
+            if (error == null && fields.size() != 2) {
+                error = Utils.CSV_COLUMNS_ERROR + fields.size();
+            } else if (error == null) {
+                key = parseDate(fields.get(0).trim());
+                if (key < 0) {
+                    error = Utils.INVALID_DATE_ERROR_STR + fields.get(0);
+                }
+            }
+            if (error != null) {
+                chunk.malformed(rowLine, error);
+            } else {
+                chunk.add(key, fields.get(1));
+            }
+        }
+        chunk.lines = line;
+    }
+
+    /*
+    parses the VEVENTs of an iCalendar file. Everything outside of them (the VCALENDAR, time zones, ...) is skipped
+     */
+    private static void parseIcs(String text, Chunk chunk) {
+        int position = 0;
+        int line = 0;
+        boolean inEvent = false;
+        int eventLine = 0;
+        int key = -1;
+        String summary = null;
+        String description = null;
+        String error = null;
+        StringBuilder unfolded = new StringBuilder();
+        while (position < text.length()) {
+            //a content line, continued by the following lines starting with a space or tab (folding)
+            int contentLine = line;
+            unfolded.setLength(0);
+            boolean lineEnd = false;
+            while (!lineEnd) {
+                int end = text.indexOf('\n', position);
+                int next = end < 0 ? text.length() : end + 1;
+                end = end < 0 ? text.length() : end;
+                if (end > position && text.charAt(end - 1) == '\r') {
+                    end--;
+                }
+                unfolded.append(text, position, end);
+                position = next;
+                line++;
+                lineEnd = position >= text.length()
+                        || (text.charAt(position) != ' ' && text.charAt(position) != '\t');
+                if (!lineEnd) {
+                    position++; //the space or tab which marks the continuation
+                }
+            }
+
+            String content = unfolded.toString();
+            int colon = content.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            int parametersStart = content.indexOf(';');
+            String name = content.substring(0, parametersStart >= 0 && parametersStart < colon ? parametersStart
+                    : colon).toUpperCase(Locale.ROOT);
+            String value = content.substring(colon + 1);
+
+            if (name.equals("BEGIN") && value.equalsIgnoreCase("VEVENT")) {
+                if (inEvent) {
+                    chunk.malformed(eventLine, Utils.UNTERMINATED_EVENT_ERROR);
+                }
+                inEvent = true;
+                eventLine = contentLine;
+                key = -1;
+                summary = null;
+                description = null;
+                error = null;
+            } else if (!inEvent) {
+                continue;
+            } else if (name.equals("END") && value.equalsIgnoreCase("VEVENT")) {
+                inEvent = false;
+                if (error == null && key < 0) {
+                    error = Utils.MISSING_DTSTART_ERROR;
+                }
+                if (error != null) {
+                    chunk.malformed(eventLine, error);
+                } else {
+                    String reminder = summary == null ? "" : summary;
+                    if (description != null) {
+                        reminder = reminder + "\n" + description;
+                    }
+                    chunk.add(key, reminder);
+                }
+            } else if (name.equals("DTSTART")) {
+                //DATE (yyyymmdd) or DATE-TIME (yyyymmddThhmmss[Z]), the day is all we need
+                key = value.length() >= 8 ? parseDate(value.substring(0, 4) + "-" + value.substring(4, 6) + "-"
+                        + value.substring(6, 8)) : -1;
+                if (key < 0) {
+                    error = Utils.INVALID_DATE_ERROR_STR + value;
+                }
+            } else if (name.equals("SUMMARY")) {
+                summary = unescapeIcs(value);
+            } else if (name.equals("DESCRIPTION")) {
+                description = unescapeIcs(value);
+            }
+        }
+        if (inEvent) {
+            chunk.malformed(eventLine, Utils.UNTERMINATED_EVENT_ERROR);
+        }
+        chunk.lines = line;
+    }
+
+    //undoes the escaping of iCalendar text values: \\ \; \, \n (or \N)
+    private static String unescapeIcs(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                text.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /*
+    parses yyyy-mm-dd into a packed date (see Date.getKey()), returns -1 if it isn't a valid date
+     */
+    static int parseDate(String text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return -1;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1]) {
+            return -1;
+        }
+        boolean leapYear = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        if (month == 2 && day == 29 && !leapYear) {
+            return -1;
+        }
+        return new Date(day, month, year).getKey();
+    }
+
+    //the number written in text from start to end, -1 if there's something else than digits
+    private static int digits(String text, int start, int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    /*
+    the outcome of an import
+     */
+    public static class Result {
+        private long records; //reminders imported (before joining reminders of the same day)
+        private long malformed; //rows skipped
+        private List<String> errors = new ArrayList<>(); //the first Utils.IMPORT_MAX_ERRORS skipped rows
+        private long bytes;
+        private long nanos;
+
+        //getters
+        public long getRecords() {
+            return this.records;
+        }
+
+        public long getMalformed() {
+            return this.malformed;
+        }
+
+        public List<String> getErrors() {
+            return this.errors;
+        }
+
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        public double getRecordsPerSecond() {
+            return this.records / (this.nanos / 1e9);
+        }
+
+        public double getMegabytesPerSecond() {
+            return this.bytes / 1e6 / (this.nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d reminders imported, %d malformed rows skipped, %.0f reminders/s, %.1f MB/s",
+                    this.records, this.malformed, this.getRecordsPerSecond(), this.getMegabytesPerSecond());
+        }
+    }
+
+    /*
+    the reminders and skipped rows of one chunk. Line numbers are relative to the chunk
+     */
+    private static class Chunk {
+        private int[] keys = new int[1024];
+        private String[] texts = new String[1024];
+        private int size;
+        private int lines; //the amount of lines in the chunk
+        private int malformed;
+        private List<String> errors = new ArrayList<>();
+        private List<Integer> errorLines = new ArrayList<>();
+
+        void add(int key, String text) {
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+                this.texts = Arrays.copyOf(this.texts, this.size * 2);
+            }
+            this.keys[this.size] = key;
+            this.texts[this.size++] = text;
+        }
+
+        void malformed(int line, String error) {
+            this.malformed++;
+            if (this.errors.size() < Utils.IMPORT_MAX_ERRORS) {
+                this.errors.add(error);
+                this.errorLines.add(line);
+            }
+        }
+    }
+
+    /*
+    inserts the chunks in the order of the input, runs on the thread which called importStream()
+     */
+    private class Inserter {
+        private Result result;
+        private int line = 1; //the first line of the next chunk
+        private BitSet imported = new BitSet(); //the packed dates imported so far
+        private DateIndexMap batch = new DateIndexMap();
+
+        Inserter(Result result) {
+            this.result = result;
+        }
+
+        void insert(Chunk chunk) {
+            for (int i = 0; i < chunk.size; i++) {
+                int key = chunk.keys[i];
+                String text = chunk.texts[i];
+                //another reminder of the same day, either in this batch or already inserted
+                String previous = this.batch.get(key);
+                if (previous == null && this.imported.get(key)) {
+                    previous = ReminderImporter.this.reminderManager.getReminder(Date.fromKey(key));
+                }
+                this.batch.put(key, previous == null ? text : previous + "\n" + text);
+                this.imported.set(key);
+                if (this.batch.size() >= Utils.IMPORT_BATCH_SIZE) {
+                    this.flush();
+                }
+            }
+
+            this.result.records += chunk.size;
+            this.result.malformed += chunk.malformed;
+            for (int i = 0; i < chunk.errors.size() && this.result.errors.size() < Utils.IMPORT_MAX_ERRORS; i++) {
+                this.result.errors.add(Utils.LINE_STR + (this.line + chunk.errorLines.get(i)) + ": "
+                        + chunk.errors.get(i));
+            }
+            this.line += chunk.lines;
+        }
+
+        void flush() {
+            if (this.batch.size() > 0) {
+                ReminderImporter.this.reminderManager.putReminders(this.batch);
+                this.batch = new DateIndexMap();
+            }
+        }
+    }
+}
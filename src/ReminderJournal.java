@@ -0,0 +1,717 @@
+/*
+the class is an append-only log (write-ahead log) of reminder changes which lives next to the .rem file.
+Instead of rewriting the whole .rem file every time a reminder changes, every putReminder appends a small record
+to the log. The .rem file then only serves as a snapshot: on startup the snapshot is loaded and the log is replayed
+on top of it, and from time to time ReminderManager compacts the log into a new snapshot.
+
+Each record has the following layout:
+[int payload length][int CRC32 of payload][payload: int day, int month, int year, int text length, UTF-8 text]
+A removed reminder (ConcurrentReminderTable.REMOVED) is recorded with a text length of -1 and no text.
+
+Writes are grouped (group commit): append() only encodes the record into a buffer, which is cheap enough to be
+done while ReminderManager holds the lock of the reminder table. The writer then calls flush(), and whichever
+thread gets to write first writes the records of every thread which appended in the meantime with a single
+write, so many concurrent writers (e.g. the HTTP service) cause few system calls.
+Forcing the log to disk (fsync) is the expensive part of a write therefore syncs are grouped too: the channel is only
+forced after JOURNAL_SYNC_BATCH records or JOURNAL_SYNC_INTERVAL_MS milliseconds after the last sync, whichever
+comes first. The interval is kept by a timer too, so the last records of a burst don't wait for the next write.
+A crash can leave a half-written record at the end of the log. The CRC lets us detect it during replay, in which
+case the torn tail is cut off.
+
+Several processes (e.g. two app windows, or the GUI and an import) may use the same log. They take turns with a
+lock on a small lock file next to the log (foo.rem.log.lock), which is never replaced:
+- a process appends its batches at the end of the log while it holds the append lock. Before writing it reads the
+records the other processes appended since its last batch and hands them to its Merger, so every process applies
+the records in the order of the log. A record of another process is skipped if the process has unwritten records
+of the same date: those come later in the log, so they win everywhere.
+- a compaction holds the compaction lock (see compacting()) from the moment it takes its snapshot until the log
+is replaced by its tail, so processes never compact at the same time. The lock file starts with
+[long generation][long bytes carried over]: every compaction increments the generation and stores the size of the
+new log, which only holds records the compacting process had already read. A process which sees a new generation
+reads the rest of the old log through its open channel (the file was renamed away, not deleted), switches to the
+new log behind the carried over records and tells its Merger to reopen the .rem file.
+catchUp() merges the records of the other processes without writing anything, e.g. when JournalWatcher saw the log
+change. File locks are held by the whole process, see LockFile for the journals of the same process which share a
+log.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class ReminderJournal {
+
+    //size of [payload length][crc] which precedes every payload
+    private final static int RECORD_HEADER_SIZE = 8;
+    //size of day, month, year and text length in the payload
+    private final static int PAYLOAD_HEADER_SIZE = 16;
+    private final static int REMOVED_TEXT_LENGTH = -1;
+    private final static int BUFFER_SIZE = 64 * 1024; //initial size of the buffer of appended records
+    private final static int LOCK_HEADER_SIZE = 16; //[long generation][long bytes carried over] of the lock file
+    private final static long APPEND_LOCK_POSITION = LOCK_HEADER_SIZE; //the byte of the lock file locked to append
+    private final static long COMPACTION_LOCK_POSITION = LOCK_HEADER_SIZE + 1; //the byte locked while compacting
+    private final static Map<Path, LockFile> LOCK_FILES = new HashMap<>(); //opened by this process, guarded by itself
+    private final static ScheduledThreadPoolExecutor SYNC_TIMER = syncTimer(); //runs the timed syncs of all journals
+
+    /*
+    instance fields. Appending only takes the lock of the object, writing to the channel takes writeLock first,
+    so appenders don't wait while a batch is written
+     */
+    private final Object writeLock = new Object();
+    private Path path;
+    private FileChannel channel;
+    private LockFile lockFile;
+    private Merger merger; //applies the records of other processes, null if there are none to apply
+    private long generation; //of the log the channel belongs to, see the lock file. Guarded by writeLock
+    private ByteBuffer pending; //records appended but not written yet, guarded by this
+    private ByteBuffer spare; //the other buffer, written to the channel while pending fills up. Guarded by writeLock
+    private long size; //where the next record is appended, including the pending ones
+    private long written; //how much of the log has been written to the channel
+    private int unsyncedRecords; //records appended since the last fsync
+    private long lastSyncTime; //System.currentTimeMillis() of the last fsync
+    private ScheduledFuture<?> timedSync; //syncs the records written since the last fsync, guarded by writeLock
+    private CRC32 crc; //of the records appended, guarded by this
+
+    /*
+    Constructor - opens (or creates) the log file and its lock file. New records are always appended to the end of
+    the file.
+    @param path - the path to the log file
+    @param merger - applies the records appended by other processes, may be null
+     */
+    public ReminderJournal(String path, Merger merger) throws IOException {
+        this.path = Paths.get(path);
+        this.merger = merger;
+        this.lockFile = LockFile.open(lockPath(path));
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.generation = this.readLockHeader()[0];
+        this.size = this.channel.size();
+        this.written = this.size;
+        this.pending = ByteBuffer.allocate(BUFFER_SIZE);
+        this.spare = ByteBuffer.allocate(BUFFER_SIZE);
+        this.crc = new CRC32();
+        this.lastSyncTime = System.currentTimeMillis();
+    }
+
+    /*
+    appends a record to the log. The record is only buffered: it reaches the OS once flush() was called, which the
+    caller must do. value may be ConcurrentReminderTable.REMOVED
+     */
+    public synchronized void append(int key, String value) {
+        byte[] text = value == ConcurrentReminderTable.REMOVED ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int textLength = value == ConcurrentReminderTable.REMOVED ? REMOVED_TEXT_LENGTH : text.length;
+        int recordSize = RECORD_HEADER_SIZE + PAYLOAD_HEADER_SIZE + text.length;
+        if (this.pending.remaining() < recordSize) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(this.pending.capacity() * 2,
+                    this.pending.position() + recordSize));
+            this.pending.flip();
+            this.pending = larger.put(this.pending);
+        }
+
+        //day, month, year of the packed date (see Date.getKey())
+        int start = this.pending.position();
+        this.pending.position(start + RECORD_HEADER_SIZE);
+        this.pending.putInt(key % 100).putInt(key / 100 % 100).putInt(key / 10000).putInt(textLength).put(text);
+
+        this.crc.reset();
+        this.crc.update(this.pending.array(), start + RECORD_HEADER_SIZE, PAYLOAD_HEADER_SIZE + text.length);
+        this.pending.putInt(start, PAYLOAD_HEADER_SIZE + text.length);
+        this.pending.putInt(start + Integer.BYTES, (int) this.crc.getValue());
+
+        this.size += recordSize;
+        this.unsyncedRecords++;
+    }
+
+    /*
+    makes sure the records appended so far are written. If another thread is writing a batch we wait for it, most
+    likely our records were part of it. Otherwise we write every pending record, ours and the ones appended by other
+    threads in the meantime. (Positions in the log can't tell whether our records were written: another process
+    may compact the log meanwhile.) The records reach the OS right away (so they survive the process being killed)
+    but they are only forced to the disk once the current sync batch is full.
+     */
+    public void flush() throws IOException {
+        synchronized (this.writeLock) {
+            synchronized (this) {
+                if (this.pending.position() == 0) {
+                    return;
+                }
+            }
+            this.writePending();
+            boolean syncDue;
+            synchronized (this) {
+                syncDue = this.unsyncedRecords >= Utils.JOURNAL_SYNC_BATCH
+                        || System.currentTimeMillis() - this.lastSyncTime >= Utils.JOURNAL_SYNC_INTERVAL_MS;
+            }
+            if (syncDue) {
+                this.forceWritten();
+            } else if (this.timedSync == null) {
+                long wait;
+                synchronized (this) {
+                    wait = this.lastSyncTime + Utils.JOURNAL_SYNC_INTERVAL_MS - System.currentTimeMillis();
+                }
+                this.timedSync = SYNC_TIMER.schedule(this::timedSync, Math.max(0, wait), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /*
+    forces the records written since the last fsync to the disk once JOURNAL_SYNC_INTERVAL_MS passed, unless a
+    flush() did so meanwhile. Runs on SYNC_TIMER, an error is fatal like any other error writing the journal
+     */
+    private void timedSync() {
+        synchronized (this.writeLock) {
+            this.timedSync = null;
+            if (!this.channel.isOpen()) {
+                return; //closed, close() synced everything
+            }
+            try {
+                this.forceWritten();
+            } catch (IOException e) {
+                System.err.println(Utils.JOURNAL_WRITE_ERROR_STR);
+                Utils.showMessageDialog(null, Utils.JOURNAL_WRITE_ERROR_STR, Utils.FATAL_ERROR);
+                System.exit(Utils.BAD_EXIT);
+            }
+        }
+    }
+
+    //a daemon thread which ends while no journal waits for a timed sync
+    private static ScheduledThreadPoolExecutor syncTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setKeepAliveTime(Utils.JOURNAL_SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /*
+    forces all records appended so far to the disk
+     */
+    public void sync() throws IOException {
+        synchronized (this.writeLock) {
+            this.writePending();
+            this.forceWritten();
+        }
+    }
+
+    //forces the records written so far to the disk. Call while holding writeLock
+    private void forceWritten() throws IOException {
+        int unsynced;
+        synchronized (this) {
+            unsynced = this.unsyncedRecords;
+        }
+        if (unsynced > 0) {
+            this.channel.force(false);
+        }
+        synchronized (this) {
+            this.unsyncedRecords -= unsynced;
+            this.lastSyncTime = System.currentTimeMillis();
+        }
+    }
+
+    /*
+    writes the pending records to the end of the log, after the records other processes appended meanwhile (which
+    are merged first). Call while holding writeLock
+     */
+    private void writePending() throws IOException {
+        synchronized (this) {
+            if (this.pending.position() == 0) {
+                return;
+            }
+        }
+        this.locked(() -> {
+            this.mergeOthers();
+            this.writeBatch();
+        });
+    }
+
+    /*
+    writes the pending records to the channel. The buffers are swapped while holding the lock of the object, the
+    write itself doesn't hold it so other threads can append meanwhile. Call while holding writeLock and the append
+    lock
+     */
+    private void writeBatch() throws IOException {
+        ByteBuffer batch;
+        synchronized (this) {
+            if (this.pending.position() == 0) {
+                return;
+            }
+            batch = this.pending;
+            this.spare.clear();
+            this.pending = this.spare;
+            this.spare = batch;
+        }
+        batch.flip();
+        while (batch.hasRemaining()) {
+            this.written += this.channel.write(batch, this.written);
+        }
+    }
+
+    /*
+    reads every valid record of the log into table and returns the amount of records replayed. hook (if not null)
+    is passed on to ConcurrentReminderTable.put() for every record.
+    If the log ends with a torn or corrupted record (e.g. the app crashed in the middle of a write) the log is
+    truncated right before it so new records don't end up behind garbage.
+     */
+    public <E extends Exception> int replayInto(ConcurrentReminderTable table,
+                                                ConcurrentReminderTable.WriteHook<E> hook) throws IOException, E {
+        synchronized (this.writeLock) {
+            synchronized (this.lockFile.appendMonitor) {
+                FileLock lock = this.lockFile.channel.lock(APPEND_LOCK_POSITION, 1, false);
+                try {
+                    synchronized (this) {
+                        return this.replay(table, hook);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private <E extends Exception> int replay(ConcurrentReminderTable table, ConcurrentReminderTable.WriteHook<E> hook)
+            throws IOException, E {
+        this.writeBatch();
+        //the log may have been compacted by another process since it was opened
+        this.generation = this.readLockHeader()[0];
+        this.reopen();
+        int[] records = new int[1];
+        long position = this.read(0, (key, value) -> {
+            table.put(key, value, hook);
+            records[0]++;
+        });
+        this.size = position;
+        this.written = position;
+        return records[0];
+    }
+
+    /*
+    brings the table up to date with the records other processes appended to the log, see the class comment.
+    Nothing is read unless the log changed
+     */
+    public void catchUp() throws IOException {
+        synchronized (this.writeLock) {
+            long[] header = this.readLockHeader();
+            if (header[0] == this.generation && this.channel.size() == this.written) {
+                return;
+            }
+        }
+        this.locked(this::mergeOthers);
+    }
+
+    /*
+    hands the records other processes appended since our last write to the merger: the rest of the old log first if
+    it was compacted meanwhile, then the new records of the current log. If it was compacted more than once the
+    logs in between are gone, the merger has to reopen the .rem file from scratch and gets the whole current log.
+    Call while holding writeLock and the append lock
+     */
+    private void mergeOthers() throws IOException {
+        long[] header = this.readLockHeader();
+        if (header[0] != this.generation) {
+            boolean missed = header[0] != this.generation + 1;
+            if (!missed) {
+                this.mergeFrom(this.written);
+            }
+            this.reopen();
+            this.generation = header[0];
+            this.setWritten(missed ? 0 : Math.min(header[1], this.channel.size()));
+            if (this.merger != null) {
+                this.merger.compacted(missed);
+            }
+        }
+        this.mergeFrom(this.written);
+    }
+
+    //opens the file which is at path now, another process may have replaced the one the channel belongs to
+    private void reopen() throws IOException {
+        this.channel.close();
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    //merges the records of the log from position on and moves the end of the log behind them
+    private void mergeFrom(long position) throws IOException {
+        if (position >= this.channel.size()) {
+            return;
+        }
+        DateIndexMap records = new DateIndexMap();
+        long end = this.read(position, records::put);
+        this.setWritten(end);
+        if (records.size() > 0 && this.merger != null) {
+            this.merger.merge(records);
+        }
+    }
+
+    //the log was written up to position by now, the pending records follow it
+    private void setWritten(long position) {
+        synchronized (this) {
+            this.size = position + this.pending.position();
+            this.written = position;
+        }
+    }
+
+    /*
+    returns the last text (or ConcurrentReminderTable.REMOVED) of every date which has records appended but not
+    written yet. They are written behind every record which is in the log now
+     */
+    public synchronized DateIndexMap pendingRecords() {
+        DateIndexMap records = new DateIndexMap();
+        ByteBuffer pending = this.pending;
+        int position = 0;
+        while (position < pending.position()) {
+            int payload = position + RECORD_HEADER_SIZE;
+            int key = new Date(pending.getInt(payload), pending.getInt(payload + Integer.BYTES),
+                    pending.getInt(payload + 2 * Integer.BYTES)).getKey();
+            int textLength = pending.getInt(payload + 3 * Integer.BYTES);
+            records.put(key, textLength == REMOVED_TEXT_LENGTH ? ConcurrentReminderTable.REMOVED
+                    : new String(pending.array(), payload + PAYLOAD_HEADER_SIZE, textLength, StandardCharsets.UTF_8));
+            position = payload + pending.getInt(position);
+        }
+        return records;
+    }
+
+    /*
+    reads the valid records of the log from position on, passes them to consumer and returns the position after the
+    last one. If the log ends with a torn or corrupted record (e.g. the app crashed in the middle of a write) the log
+    is truncated right before it so new records don't end up behind garbage. Call while holding the append lock, so
+    no other process is in the middle of a write
+     */
+    private <E extends Exception> long read(long position, RecordConsumer<E> consumer) throws IOException, E {
+        long size = this.channel.size();
+        position = read(this.channel, position, size, consumer);
+        if (position < size) {
+            System.err.println(Utils.JOURNAL_TORN_RECORD_MESSAGE);
+            this.channel.truncate(position);
+        }
+        return position;
+    }
+
+    //reads the valid records of channel from position up to size, returns the position after the last one
+    private static <E extends Exception> long read(FileChannel channel, long position, long size,
+                                                   RecordConsumer<E> consumer) throws IOException, E {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        CRC32 crc = new CRC32(); //other threads append meanwhile
+
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int payloadLength = header.getInt(0);
+            int checksum = header.getInt(Integer.BYTES);
+            if (payloadLength < PAYLOAD_HEADER_SIZE || position + RECORD_HEADER_SIZE + payloadLength > size) {
+                break; //torn record
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            readFully(channel, payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, payloadLength);
+            if ((int) crc.getValue() != checksum) {
+                break; //corrupted record
+            }
+
+            payload.flip();
+            int key = new Date(payload.getInt(), payload.getInt(), payload.getInt()).getKey();
+            int textLength = payload.getInt();
+            String value = textLength == REMOVED_TEXT_LENGTH ? ConcurrentReminderTable.REMOVED
+                    : new String(payload.array(), PAYLOAD_HEADER_SIZE, textLength, StandardCharsets.UTF_8);
+            consumer.accept(key, value);
+
+            position += RECORD_HEADER_SIZE + payloadLength;
+        }
+        return position;
+    }
+
+    /*
+    returns the last text (or ConcurrentReminderTable.REMOVED) of every date in the log at path without writing to
+    any file or taking a lock, e.g. for an export. Another process may be in the middle of a write: its record is
+    left out like a torn one. null if the log was compacted while it was read (see generation(String)), the caller
+    has to read the .rem file and the log again then
+     */
+    public static DateIndexMap readRecords(String path, long generation) throws IOException {
+        DateIndexMap records = new DateIndexMap();
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            read(channel, 0, channel.size(), records::put);
+        } catch (NoSuchFileException e) {
+            //no log yet
+        }
+        return generation(path) == generation ? records : null;
+    }
+
+    /*
+    removes all records from the log, the ones appended but not written yet too. Called when the .rem file was
+    written from scratch. Like discardBefore() an empty log replaces the old one, which other processes may still
+    have to read the end of
+     */
+    public void truncate() throws IOException {
+        this.compacting(() -> this.locked(() -> {
+            synchronized (this) {
+                this.pending.clear();
+                this.size = this.written;
+                this.copyFrom(this.size);
+            }
+        }));
+    }
+
+    /*
+    removes the records before position (a value previously returned by size()) and keeps the ones after it.
+    Used after a compaction: the records before position are in the new snapshot, the ones after it were
+    appended while the snapshot was being written. The remaining records are copied into a new log which then
+    replaces the old one, so a crash at any point leaves either the old or the new log behind. The old log is never
+    truncated, even if no record remains: other processes may still have to read its end.
+     */
+    public void discardBefore(long position) throws IOException {
+        this.locked(() -> {
+            //records of other processes appended since the snapshot belong to the records kept
+            this.mergeOthers();
+            synchronized (this) {
+                this.writeBatch();
+                this.copyFrom(position);
+            }
+        });
+    }
+
+    private void copyFrom(long position) throws IOException {
+        long remaining = this.size - position;
+        Path temp = Paths.get(this.path + "." + Utils.TEMP_FILE_EXTENSION);
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long copied = 0;
+            while (copied < remaining) {
+                copied += this.channel.transferTo(position + copied, remaining - copied, tempChannel);
+            }
+            tempChannel.force(true);
+        }
+        this.channel.close();
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = remaining;
+        this.written = remaining;
+        this.unsyncedRecords = 0;
+        this.lastSyncTime = System.currentTimeMillis();
+        this.newGeneration(remaining);
+    }
+
+    /*
+    runs whileCurrent at a point of the log which no process can append before: the records of the other processes
+    are merged and ours are written before it, the records appended while it runs are written right behind it. Used
+    to take the snapshot of a compaction together with its position in the log (see size())
+     */
+    public void checkpoint(Runnable whileCurrent) throws IOException {
+        this.locked(() -> {
+            this.mergeOthers();
+            this.writeBatch();
+            whileCurrent.run();
+            this.writeBatch();
+        });
+    }
+
+    /*
+    runs action while no other process appends to the log or runs an action, e.g. to read, change and write a file
+    which the processes share
+     */
+    public void locked(IOAction action) throws IOException {
+        synchronized (this.writeLock) {
+            synchronized (this.lockFile.appendMonitor) {
+                FileLock lock = this.lockFile.channel.lock(APPEND_LOCK_POSITION, 1, false);
+                try {
+                    action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /*
+    runs action while no other process compacts the log, e.g. a compaction of this process. The action may append
+    and call locked(). The OS sees file locks as held by the process rather than a thread: a compaction waiting for
+    the lock while another thread of its process holds the append lock would look like a deadlock to it (EDEADLK)
+    if the other process waited for the append lock meanwhile. Compactions are rare, so we poll for the lock instead
+     */
+    public void compacting(IOAction action) throws IOException {
+        synchronized (this.lockFile.compactionMonitor) {
+            FileLock lock;
+            while ((lock = this.lockFile.channel.tryLock(COMPACTION_LOCK_POSITION, 1, false)) == null) {
+                try {
+                    Thread.sleep(Utils.JOURNAL_LOCK_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            try {
+                action.run();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    //the log was compacted and now holds the carried over bytes: tells the other processes. Call with the append lock
+    private void newGeneration(long carried) throws IOException {
+        this.generation = this.readLockHeader()[0] + 1;
+        ByteBuffer header = ByteBuffer.allocate(LOCK_HEADER_SIZE).putLong(this.generation).putLong(carried);
+        header.flip();
+        while (header.hasRemaining()) {
+            this.lockFile.channel.write(header, header.position());
+        }
+    }
+
+    private long[] readLockHeader() throws IOException {
+        return readLockHeader(this.lockFile.channel);
+    }
+
+    //[generation, bytes carried over] of the lock file, zeros for a new lock file
+    private static long[] readLockHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOCK_HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            continue;
+        }
+        return header.hasRemaining() ? new long[2] : new long[]{header.getLong(0), header.getLong(Long.BYTES)};
+    }
+
+    //returns the generation of the log, incremented by every compaction of any process
+    public long generation() throws IOException {
+        synchronized (this.writeLock) {
+            return this.readLockHeader()[0];
+        }
+    }
+
+    /*
+    returns the generation of the log at path without opening it, 0 if it was never opened. A store opened after
+    reading it holds every record which a later compaction discards if the generation is still the same
+     */
+    public static long generation(String path) throws IOException {
+        Path lockPath = lockPath(path);
+        synchronized (LOCK_FILES) {
+            LockFile open = LOCK_FILES.get(lockPath);
+            if (open != null) {
+                return readLockHeader(open.channel)[0]; //closing another channel would release its locks
+            }
+            try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.READ)) {
+                return readLockHeader(channel)[0];
+            } catch (NoSuchFileException e) {
+                return 0;
+            }
+        }
+    }
+
+    private static Path lockPath(String path) {
+        return Paths.get(path + "." + Utils.LOCK_FILE_EXTENSION).toAbsolutePath().normalize();
+    }
+
+    //returns the size of the log in bytes
+    public synchronized long size() {
+        return this.size;
+    }
+
+    /*
+    writes and syncs the remaining records and closes the log
+     */
+    public void close() throws IOException {
+        synchronized (this.writeLock) {
+            if (this.channel.isOpen()) {
+                if (this.timedSync != null) {
+                    this.timedSync.cancel(false);
+                    this.timedSync = null;
+                }
+                this.sync();
+                this.channel.close();
+                this.lockFile.close();
+            }
+        }
+    }
+
+    /*
+    reads from the channel at position until buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException(Utils.JOURNAL_READ_ERROR_STR);
+            }
+            position += read;
+        }
+    }
+
+    /*
+    applies the records which other processes appended to the log. It's called while no batch of this process can
+    be written: the records appended but not written yet (see pendingRecords()) end up behind the merged ones, so
+    they win over merged records of the same dates. The merger has to keep its own threads from appending meanwhile
+     */
+    public interface Merger {
+        //records holds the last text (or ConcurrentReminderTable.REMOVED) of every date in the new records
+        void merge(DateIndexMap records) throws IOException;
+
+        /*
+        another process compacted the log into the .rem file. The records of the old log were merged already unless
+        missed is true: then some were lost with logs which were compacted in between, the .rem file has to be
+        reopened and the whole current log follows
+         */
+        void compacted(boolean missed) throws IOException;
+    }
+
+    public interface IOAction {
+        void run() throws IOException;
+    }
+
+    /*
+    the lock file of a log, shared by the journals of this process which use the log: closing any channel of a file
+    releases every lock the process holds on it (POSIX record locks), so a lock file is only opened once. A file
+    lock belongs to the whole process too, so the journals take turns on a monitor before they lock the file
+     */
+    private static class LockFile {
+        private final Object appendMonitor = new Object();
+        private final Object compactionMonitor = new Object();
+        private Path path;
+        private FileChannel channel;
+        private int journals; //journals which use the file, guarded by LOCK_FILES
+
+        private static LockFile open(Path path) throws IOException {
+            synchronized (LOCK_FILES) {
+                LockFile file = LOCK_FILES.get(path);
+                if (file == null) {
+                    file = new LockFile();
+                    file.path = path;
+                    file.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+                    LOCK_FILES.put(path, file);
+                }
+                file.journals++;
+                return file;
+            }
+        }
+
+        private void close() throws IOException {
+            synchronized (LOCK_FILES) {
+                if (--this.journals == 0) {
+                    LOCK_FILES.remove(this.path);
+                    this.channel.close();
+                }
+            }
+        }
+    }
+
+    private interface RecordConsumer<E extends Exception> {
+        void accept(int key, String value) throws E;
+    }
+}
@@ -1,15 +1,34 @@
 /*
-the class only contains the main method. Explanation about the app logic is inside ReminderGUI class
+the class only contains the main method. Explanation about the app logic is inside ReminderGUI class.
+With the arguments --serve <file.rem> [port] the app runs headless as an HTTP service instead (see ReminderService).
+--import and --export <file.rem> <file.csv|file.ics> convert between the .rem file and CSV or iCalendar files
  */
 
 import javax.swing.*;
+import java.util.Arrays;
 
 public class ReminderMain {
     public static void main(String[] args) {
+        Metrics.dumpOnExit(); //if -Dreminders.metrics.file=<path> is set
+        if (args.length > 0 && args[0].equals(Utils.SERVICE_ARG)) {
+            ReminderService.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(Utils.IMPORT_ARG)) {
+            ReminderImporter.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(Utils.EXPORT_ARG)) {
+            ReminderExporter.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        ReminderGUI rmg = new ReminderGUI(); //init the GUI
-        rmg.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        rmg.setSize(Utils.FRAME_WIDTH, Utils.FRAME_HEIGHT);
-        rmg.setVisible(true);
+        //Swing components must be created on the event dispatch thread
+        SwingUtilities.invokeLater(() -> {
+            ReminderGUI rmg = new ReminderGUI(); //init the GUI
+            rmg.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            rmg.setSize(Utils.FRAME_WIDTH, Utils.FRAME_HEIGHT);
+            rmg.setVisible(true);
+        });
     }
 }
@@ -2,66 +2,1024 @@
 @author - Yosef Spektor
 
 The class stores reminders into hash table, reads reminders from file and saves reminders to file.
-HashTable collection is used where Date objects are keys and strings are values which represent reminder text.
+ConcurrentReminderTable is used as hash table where packed dates (see Date.getKey()) are keys and strings are
+values which represent reminder text. It also keeps the dates in order so that all reminders between two dates
+can be walked without probing every single day (see getRemindersBetween()).
 
-We use serialization to save/read files because it's easier then having to parse strings (reminder text can be several
-lines, in addition some kind of format would have to be used).
+The class is thread-safe: the UI, import jobs and schedulers may use it at the same time. Lookups never lock,
+writers only lock the table while they create its next version and saves write a version of the table without
+locking it (see ConcurrentReminderTable).
+
+The versions of the table are also the undo history: every putReminder(), removeReminder() and putReminders() is
+a step of the history made of the versions before and after it, which share all but the changed nodes (see
+ReminderTrie). undo() and redo() write back the reminders which differ between the two versions, the last
+Utils.UNDO_HISTORY steps are kept. Loading other reminders (setReminderTable(), mapRemindersFile()) clears the
+history.
+
+Alternatively a binary .rem file can be memory-mapped (see MappedReminderStore) instead of being loaded. In that case
+the table only holds the reminders saved since the file was mapped and lookups fall back to the mapped file.
+A partitioned .rem file (see PartitionedReminderStore) is opened the same way, its years are loaded on demand.
+The loaded years keep their texts compressed (see CompressedTexts), the reminders of setReminderTable() only if
+text compression is turned on (see setTextCompression()).
+
+Files are saved/read in the binary .rem format described in ReminderFileFormat. Files written by older versions of
+the app with Java serialization can still be read and are converted to the binary format when they are opened.
+
+Once a journal is opened (see ReminderJournal) every change is appended to the journal instead of waiting for the
+whole table to be saved on exit. The .rem file becomes a partitioned snapshot which the journal is compacted into
+(only the years which changed are rewritten) by the debounced autosave (see AutosaveScheduler and flush()): every
+batch of changes restarts its timer, so a burst of changes is saved once no change came in for
+Utils.AUTOSAVE_DELAY_MS, but never more than Utils.AUTOSAVE_MAX_DELAY_MS after the first one. A batch which makes
+the journal reach Utils.JOURNAL_COMPACT_SIZE (or the bytes the last save wrote if that's larger) saves right away.
+The manager counts the changes which aren't in a saved file yet (see isDirty()), saves without changes are
+skipped. Every save is recorded in getSaveMetrics().
+
+Several processes may use the same .rem file at once, e.g. two app windows or the GUI and an import. They share the
+journal (see ReminderJournal for the locking): before a process writes a batch it merges the records the others
+appended since into its table, and JournalWatcher calls reloadChanges() when another process changed the journal or
+the rules, so changes show up within milliseconds without reading the .rem file again. When another process
+compacts the journal only the manifest of the new .rem file is read (see compacted()). Rules are read, changed and
+written under the lock of the journal, so rules added by different processes at the same time are all kept.
+
+Change listeners (e.g. ReminderNotifier) are told about every putReminder() after the table was changed, and about
+the reminders merged from other processes.
+
+Loads, saves and the opening of the journal are recorded in Metrics and as flight recorder events (see
+ReminderEvents), getReminder() and putReminder() too if Metrics.TIMING is on.
+
+Recurring reminders are stored as rules (see RecurrenceRule) next to the reminders of single dates and saved in a
+.rules file next to the .rem file. Their occurrences are never stored: getReminder(), getRemindersBetween() and
+nextReminderAfter() resolve them from the rules (see RecurrenceIndex). A reminder saved for a single date takes the
+place of the occurrences on that date.
+
+The words of the reminders are indexed (see TextIndex and search()). The index is updated together with the table
+and saved next to every .rem file the manager writes, so it only has to be rebuilt if that file is missing or
+out of date.
  */
 
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
 
-/*
-unchecked cast warning would've been generated when initializing reminderTable object because
-readObject() invoked on serializable object returns Object type which needs to be cast to
-Hashtable<Date, String> in order to extract any meaningful info. There's not much that can be done
-in such case because we don't want to check for ClassCastException since it's a runtime exception
-therefore the warning is suppressed
- */
-@SuppressWarnings("unchecked")
 public class ReminderManager {
 
-    //instance field which contains keys and values
-    private Hashtable<Date, String> reminderTable;
+    private final static Metrics.Histogram GET_TIME = Metrics.histogram("reminders.get");
+    private final static Metrics.Histogram PUT_TIME = Metrics.histogram("reminders.put");
+    private final static Metrics.Histogram LOAD_TIME = Metrics.histogram("file.load");
+    private final static Metrics.Counter LOAD_BYTES = Metrics.counter("file.load.bytes");
+    private final static Metrics.Histogram SAVE_TIME = Metrics.histogram("file.save");
+    private final static Metrics.Counter SAVE_BYTES = Metrics.counter("file.save.bytes");
+    private final static Metrics.Histogram JOURNAL_OPEN_TIME = Metrics.histogram("journal.open");
+    private final static Metrics.Histogram RELOAD_TIME = Metrics.histogram("journal.reload");
+    private final static Metrics.Counter MERGED = Metrics.counter("journal.merged");
+
+    //instance fields. They are volatile because they are replaced while other threads use the manager
+    private volatile ConcurrentReminderTable reminderTable; //contains keys and values
+    //the saved reminders, read on demand (or compressed on the heap by setReminderTable()). null unless
+    //mapRemindersFile() succeeded, the journal was compacted or setReminderTable() compressed the reminders
+    private volatile ReminderStore fileStore;
+    private volatile TextIndex textIndex; //the words of all reminders, the saved ones included
+    private volatile RecurrenceIndex rules = RecurrenceIndex.EMPTY; //replaced under rulesLock when a rule changes
+    private volatile ReminderJournal journal; //null until openJournal() is called
+    //compacts the journal in the background so that the caller (usually the EDT) never waits for it
+    private volatile AutosaveScheduler autosave; //null until openJournal() is called
+    private volatile JournalWatcher watcher; //null until openJournal() is called
+    private volatile long storeGeneration; //of the journal when mapRemindersFile() opened the file store
+    private volatile boolean storeReplaced; //set by compacted(), the table may hold reminders the new store has too
+    private volatile boolean reloaded; //set by compacted(), the listeners have to be told everything may have changed
+    private final Queue<DateIndexMap> mergedChanges = new ConcurrentLinkedQueue<>(); //to tell the listeners about
+    private FileTime rulesModified; //of the rules file when it was read or written last, guarded by rulesLock
+    private String snapshotPath; //the .rem file the journal is compacted into
+    private final Object compactionLock = new Object(); //only one compaction runs at a time
+    private final Object rulesLock = new Object();
+    private final Object historyLock = new Object(); //held by the writers which are steps of the history
+    private final Deque<Step> undoSteps = new ArrayDeque<>(); //the last step first, guarded by historyLock
+    private final Deque<Step> redoSteps = new ArrayDeque<>(); //the last undone step first, guarded by historyLock
+    private final AtomicLong changeCount = new AtomicLong(); //changes since the manager was created
+    private final AtomicLong savedChangeCount = new AtomicLong(); //changes contained in the last saved file
+    private final AtomicInteger size = new AtomicInteger(); //reminders, saved ones included
+    private final SaveMetrics saveMetrics = new SaveMetrics();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private long partitionBudget = Long.getLong(Utils.PARTITION_BUDGET_PROPERTY, Utils.PARTITION_MEMORY_BUDGET);
+    private boolean textCompression = Boolean.getBoolean(Utils.TEXT_COMPRESSION_PROPERTY);
+    //the decoded texts of the reminders compressed by setReminderTable(), see CompressedTexts
+    private final CompressedTexts.Cache textCache = new CompressedTexts.Cache(Long.getLong(Utils.TEXT_CACHE_PROPERTY,
+            Utils.TEXT_CACHE_BUDGET));
 
     /*
     Constructor
      */
     public ReminderManager() {
-        this.reminderTable = new Hashtable<>();
+        this.reminderTable = new ConcurrentReminderTable();
+        this.textIndex = new TextIndex();
     }
 
     //adds a new reminder
     public void putReminder(Date key, String value) {
-        this.reminderTable.put(key, value);
+        this.write(key, value);
+    }
+
+    //returns the amount of reminders
+    public int size() {
+        return this.size.get();
+    }
+
+    /*
+    removes the reminder under key and returns true if there was one. The table keeps a REMOVED entry (see
+    ConcurrentReminderTable) for the date until the next compaction, since it has to hide a saved reminder of the
+    same date and the removal has to be journaled like any other change
+     */
+    public boolean removeReminder(Date key) {
+        return this.write(key, ConcurrentReminderTable.REMOVED) != null;
+    }
+
+    /*
+    adds many reminders at once, e.g. from ReminderImporter. Same as putReminder() for every entry, but the journal
+    records of the whole batch are written together and the autosave is only told once
+     */
+    public void putReminders(DateIndexMap reminders) {
+        ReminderJournal journal = this.journal;
+        synchronized (this.historyLock) {
+            Step step = this.beginStep();
+            reminders.forEach((key, value) -> step.stored(key, this.store(journal, key, value)));
+            this.endStep(step);
+        }
+        this.flush(journal);
+        for (ChangeListener listener : this.changeListeners) {
+            reminders.forEach((key, value) -> listener.reminderChanged(Date.fromKey(key), value));
+        }
+    }
+
+    //stores value (or REMOVED) under key, returns the previous reminder or null
+    private String write(Date key, String value) {
+        ReminderEvents.Put event = new ReminderEvents.Put();
+        event.begin();
+        long start = Metrics.TIMING ? System.nanoTime() : 0;
+        ReminderJournal journal = this.journal;
+        String previous;
+        synchronized (this.historyLock) {
+            Step step = this.beginStep();
+            previous = this.store(journal, key.getKey(), value);
+            step.stored(key.getKey(), previous);
+            this.endStep(step);
+        }
+        this.flush(journal);
+        if (Metrics.TIMING) {
+            PUT_TIME.record(System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.date = key.getKey();
+            event.length = value == ConcurrentReminderTable.REMOVED ? -1 : value.length();
+            event.commit();
+        }
+        for (ChangeListener listener : this.changeListeners) {
+            listener.reminderChanged(key, value == ConcurrentReminderTable.REMOVED ? null : value);
+        }
+        return previous;
+    }
+
+    /*
+    stores value under key. The change is counted (and journaled) before another writer can change the table, see
+    ConcurrentReminderTable.put(). Returns the previous reminder or null
+     */
+    private String store(ReminderJournal journal, int key, String value) {
+        String[] previous = new String[1];
+        this.reminderTable.put(key, value, (k, p, v) -> {
+            previous[0] = this.written(journal, k, p, v);
+        });
+        return previous[0];
+    }
+
+    /*
+    writes the journal records appended by store() and tells the autosave about the changes. The records are
+    written outside of the table's lock, so writers of other threads can join the batch (see ReminderJournal). The
+    records of other processes merged before writing are reported to the listeners
+     */
+    private void flush(ReminderJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            System.err.println(Utils.JOURNAL_WRITE_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.JOURNAL_WRITE_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+        }
+        this.notifyMerged();
+
+        AutosaveScheduler autosave = this.autosave;
+        if (autosave != null) {
+            //rewriting the snapshot costs its size, compacting once the journal reached it keeps bulk changes (e.g.
+            //an import) linear instead of rewriting growing years every Utils.JOURNAL_COMPACT_SIZE bytes
+            long compactSize = Math.max(Utils.JOURNAL_COMPACT_SIZE, this.saveMetrics.getLastSaveBytes());
+            if (journal.size() >= compactSize) {
+                autosave.saveNow();
+            } else {
+                autosave.changed();
+            }
+        }
+    }
+
+    /*
+    undoes the last putReminder(), removeReminder() or putReminders() which wasn't undone yet: the reminders it
+    changed get the texts they had before it (like with putReminder(), so the change is journaled and the listeners
+    are told). Returns false if there's nothing to undo
+     */
+    public boolean undo() {
+        return this.replay(this.undoSteps, this.redoSteps, true);
+    }
+
+    //redoes the step undone last, unless a reminder was saved since. Returns false if there's nothing to redo
+    public boolean redo() {
+        return this.replay(this.redoSteps, this.undoSteps, false);
+    }
+
+    public boolean canUndo() {
+        synchronized (this.historyLock) {
+            return !this.undoSteps.isEmpty();
+        }
+    }
+
+    public boolean canRedo() {
+        synchronized (this.historyLock) {
+            return !this.redoSteps.isEmpty();
+        }
+    }
+
+    //a step of the history starts, call while holding historyLock
+    private Step beginStep() {
+        return new Step(this.reminderTable.version());
+    }
+
+    //the step is done, a new step can't be redone on top of the steps undone before. Call while holding historyLock
+    private void endStep(Step step) {
+        step.after = this.reminderTable.version();
+        this.undoSteps.push(step);
+        if (this.undoSteps.size() > Utils.UNDO_HISTORY) {
+            this.undoSteps.removeLast();
+        }
+        this.redoSteps.clear();
+    }
+
+    /*
+    takes the last step of from, writes the texts the reminders it changed had before (back is true) or after it
+    and moves it to to
+     */
+    private boolean replay(Deque<Step> from, Deque<Step> to, boolean back) {
+        ReminderJournal journal = this.journal;
+        DateIndexMap changes = new DateIndexMap();
+        synchronized (this.historyLock) {
+            Step step = from.poll();
+            if (step == null) {
+                return false;
+            }
+            ReminderTrie.differences(step.before, step.after, key -> {
+                String text = back ? step.textBefore(key) : step.after.get(key);
+                //step.after is a version which never changes, it lacks an entry of step.before only if a compaction
+                //(which doesn't take historyLock) dropped it while the step ran. The step didn't write it, no redo
+                if (text != null) {
+                    changes.put(key, text);
+                }
+            });
+            changes.forEach((key, text) -> this.store(journal, key, text));
+            to.push(step);
+        }
+        this.flush(journal);
+        for (ChangeListener listener : this.changeListeners) {
+            changes.forEach((key, text) -> listener.reminderChanged(Date.fromKey(key),
+                    text == ConcurrentReminderTable.REMOVED ? null : text));
+        }
+        return true;
+    }
+
+    //drops the history, the versions of another table can't be undone
+    private void clearHistory() {
+        synchronized (this.historyLock) {
+            this.undoSteps.clear();
+            this.redoSteps.clear();
+        }
+    }
+
+    /*
+    adds a recurring reminder. The rules are saved right away if a journal is open (they're small, so the whole
+    .rules file is rewritten), otherwise with the next saveToFile()
+     */
+    public void addRule(RecurrenceRule rule) {
+        this.changeRules(rules -> rules.with(rule));
+    }
+
+    //removes a recurring reminder (compared with equals()) and returns true if there was one
+    public boolean removeRule(RecurrenceRule rule) {
+        return this.changeRules(rules -> rules.without(rule));
+    }
+
+    /*
+    replaces the rules with change(rules) and saves them, returns false if change returned the same rules. With a
+    journal the rules file is read again under the lock of the journal first, so that the rules other processes
+    saved meanwhile are kept. The listeners are told about every rule which was added or removed
+     */
+    private boolean changeRules(UnaryOperator<RecurrenceIndex> change) {
+        RecurrenceIndex before;
+        RecurrenceIndex after;
+        boolean[] changed = new boolean[1];
+        synchronized (this.rulesLock) {
+            before = this.rules;
+            ReminderJournal journal = this.journal;
+            try {
+                ReminderJournal.IOAction update = () -> {
+                    if (journal != null) {
+                        this.readRules();
+                    }
+                    RecurrenceIndex rules = change.apply(this.rules);
+                    changed[0] = rules != this.rules;
+                    if (changed[0]) {
+                        this.rules = rules;
+                        this.saveRules();
+                    }
+                };
+                if (journal == null) {
+                    update.run();
+                } else {
+                    journal.locked(update);
+                }
+            } catch (IOException e) {
+                System.err.println(Utils.FILE_READ_ERROR_STR);
+                Utils.showMessageDialog(null, Utils.FILE_READ_ERROR_STR, Utils.FATAL_ERROR);
+                System.exit(Utils.BAD_EXIT);
+            }
+            after = this.rules;
+        }
+        this.notifyRules(before, after);
+        return changed[0];
+    }
+
+    //reads the rules saved next to the snapshot of the journal if they changed. Call while holding rulesLock
+    private void readRules() throws IOException {
+        Path path = Paths.get(this.snapshotPath);
+        FileTime modified = rulesModified(path);
+        if (!Objects.equals(modified, this.rulesModified)) {
+            this.rules = RecurrenceIndex.read(path);
+            this.rulesModified = modified;
+        }
+    }
+
+    //the time the rules of the .rem file at path were modified, null if there are none
+    private static FileTime rulesModified(Path path) throws IOException {
+        try {
+            return Files.getLastModifiedTime(Paths.get(path + "." + Utils.RULES_FILE_EXTENSION));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    //tells the listeners about the rules of after which aren't in before and the other way round
+    private void notifyRules(RecurrenceIndex before, RecurrenceIndex after) {
+        if (before == after) {
+            return;
+        }
+        List<RecurrenceRule> removed = new ArrayList<>(before.getRules());
+        List<RecurrenceRule> added = new ArrayList<>();
+        for (RecurrenceRule rule : after.getRules()) {
+            if (!removed.remove(rule)) {
+                added.add(rule);
+            }
+        }
+        for (ChangeListener listener : this.changeListeners) {
+            removed.forEach(rule -> listener.ruleChanged(rule, false));
+            added.forEach(rule -> listener.ruleChanged(rule, true));
+        }
+    }
+
+    //returns the recurring reminders in the order they were added
+    public List<RecurrenceRule> getRules() {
+        return this.rules.getRules();
+    }
+
+    //saves the rules next to the snapshot of the journal, if a journal is open. Call while holding rulesLock
+    private void saveRules() {
+        String path = this.snapshotPath;
+        if (path == null) {
+            return;
+        }
+        try {
+            this.rules.write(Paths.get(path));
+            this.rulesModified = rulesModified(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println(Utils.FILE_SAVE_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.FILE_SAVE_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+
+    //listener is called by the thread which saved or removed a reminder, after every putReminder()/removeReminder()
+    public void addChangeListener(ChangeListener listener) {
+        this.changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        this.changeListeners.remove(listener);
+    }
+
+    /*
+    called by write() and by the journal replay while the table is locked, so the journal and the index
+    see the changes of a date in the same order as the table. Returns the reminder value replaced (or null).
+     */
+    private String written(ReminderJournal journal, int key, String previous, String value) {
+        if (journal != null) {
+            journal.append(key, value);
+        }
+        ReminderStore store = this.fileStore;
+        if (previous == ConcurrentReminderTable.REMOVED) {
+            previous = null;
+        } else if (previous == null && store != null) {
+            previous = store.get(key); //the reminder only replaces a saved one
+        }
+        boolean removal = value == ConcurrentReminderTable.REMOVED;
+        this.textIndex.update(key, previous, removal ? null : value);
+        if (previous == null && !removal) {
+            this.size.incrementAndGet();
+        } else if (previous != null && removal) {
+            this.size.decrementAndGet();
+        }
+        this.changeCount.incrementAndGet();
+        return previous;
+    }
+
+    /*
+    applies the records other processes appended to the journal, see ReminderJournal.Merger. historyLock keeps the
+    writers of this process from appending meanwhile. A date this process has records for which aren't written yet
+    keeps its reminder, those records come later in the journal. Merged changes aren't steps of the undo history
+     */
+    private void merge(DateIndexMap records) {
+        DateIndexMap changes = new DateIndexMap();
+        synchronized (this.historyLock) {
+            ReminderJournal journal = this.journal;
+            DateIndexMap pending = journal == null ? new DateIndexMap() : journal.pendingRecords();
+            records.forEach((key, value) -> {
+                if (!pending.containsKey(key)) {
+                    this.store(null, key, value);
+                    changes.put(key, value);
+                }
+            });
+        }
+        MERGED.add(changes.size());
+        this.mergedChanges.add(changes);
+    }
+
+    /*
+    another process compacted the journal into the .rem file, see ReminderJournal.Merger. The table holds every
+    reminder saved since our file store was written, so only the manifest of the new file is read and the reminders
+    are the same as before; reloadChanges() drops the entries of the table which the new store has anyway. If
+    records were missed the file is opened again like in mapRemindersFile(), only the reminders this process hasn't
+    written to the journal yet are kept
+     */
+    private void compacted(boolean missed) throws IOException {
+        Path path = Paths.get(this.snapshotPath);
+        if (!missed) {
+            ReminderStore store = PartitionedReminderStore.open(path, this.partitionBudget);
+            synchronized (this.historyLock) {
+                this.fileStore = store;
+            }
+            this.storeReplaced = true;
+            return;
+        }
+        synchronized (this.historyLock) {
+            DateIndexMap pending = this.journal.pendingRecords();
+            if (!this.mapRemindersFile(this.snapshotPath)) {
+                throw new IOException(Utils.FILE_MAP_ERROR_STR);
+            }
+            pending.forEach((key, value) -> this.store(null, key, value));
+        }
+        this.reloaded = true;
+    }
+
+    /*
+    merges the changes other processes made to the journal and the rules since this process last wrote or reloaded
+    them, called by JournalWatcher. Costs a few system calls if nothing changed
+     */
+    public void reloadChanges() {
+        ReminderJournal journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            journal.catchUp();
+        } catch (IOException e) {
+            System.err.println(Utils.JOURNAL_RELOAD_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.JOURNAL_RELOAD_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+        }
+        if (this.notifyMerged()) {
+            RELOAD_TIME.record(System.nanoTime() - start);
+        }
+        if (this.storeReplaced) {
+            this.storeReplaced = false;
+            this.dropSaved();
+        }
+        RecurrenceIndex before;
+        RecurrenceIndex after;
+        synchronized (this.rulesLock) {
+            before = this.rules;
+            try {
+                this.readRules();
+            } catch (IOException e) {
+                System.err.println(Utils.FILE_READ_ERROR_STR);
+                Utils.showMessageDialog(null, Utils.FILE_READ_ERROR_STR, Utils.FATAL_ERROR);
+                System.exit(Utils.BAD_EXIT);
+            }
+            after = this.rules;
+        }
+        this.notifyRules(before, after);
+    }
+
+    /*
+    tells the listeners about the reminders merged from other processes. Called once the locks merge() ran under
+    were released, returns false if there were none
+     */
+    private boolean notifyMerged() {
+        boolean merged = false;
+        if (this.reloaded) {
+            this.reloaded = false;
+            merged = true;
+            for (ChangeListener listener : this.changeListeners) {
+                listener.reloaded();
+            }
+        }
+        DateIndexMap changes;
+        while ((changes = this.mergedChanges.poll()) != null) {
+            merged = true;
+            for (ChangeListener listener : this.changeListeners) {
+                changes.forEach((key, text) -> listener.reminderChanged(Date.fromKey(key),
+                        text == ConcurrentReminderTable.REMOVED ? null : text));
+            }
+        }
+        return merged;
+    }
+
+    /*
+    drops the entries of the table whose reminder is the same in the file store, e.g. after another process saved
+    them. Like a compaction it only removes the entries which still hold the text compared (see
+    ConcurrentReminderTable.removeSame()), unless the store was replaced again meanwhile
+     */
+    private void dropSaved() {
+        ReminderStore store = this.fileStore;
+        ReminderTrie saved = ReminderTrie.EMPTY;
+        for (ReminderTrie.Cursor cursor = this.reminderTable.range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+             cursor.hasKey(); cursor.next()) {
+            String text = store.get(cursor.key());
+            if (cursor.value() == ConcurrentReminderTable.REMOVED ? text == null : cursor.value().equals(text)) {
+                saved = saved.with(cursor.key(), cursor.value());
+            }
+        }
+        synchronized (this.historyLock) {
+            if (this.fileStore == store) {
+                this.reminderTable.removeSame(saved);
+            }
+        }
+    }
+
+    /*
+    checks if there are changes which haven't been saved to a .rem file yet. With an open journal they are safe
+    in the journal, but still need to be compacted into the .rem file
+     */
+    public boolean isDirty() {
+        return this.changeCount.get() != this.savedChangeCount.get();
+    }
+
+    //getter
+    public SaveMetrics getSaveMetrics() {
+        return this.saveMetrics;
+    }
+
+    /*
+    setter - the heap bytes (estimated) which the loaded years of a partitioned file may take, see
+    PartitionedReminderStore. Applies to files opened or converted from now on
+     */
+    public void setPartitionBudget(long bytes) {
+        this.partitionBudget = bytes;
     }
 
-    //gets the reminder under key
+    /*
+    setter - whether setReminderTable() keeps the texts compressed (see CompressedReminderStore) or as Strings.
+    Off by default, -Dreminders.compress=true turns it on: even long texts only shrink by about a quarter while
+    lookups get several times slower (see TextCompressionBenchmark)
+     */
+    public void setTextCompression(boolean compress) {
+        this.textCompression = compress;
+    }
+
+    //returns the estimated heap bytes of the decoded texts cached for the reminders of setReminderTable()
+    public long getTextCacheBytes() {
+        return this.textCache.getBytes();
+    }
+
+    /*
+    gets the reminder under key. The table is read before the file store: a compaction publishes the new store
+    before it drops the entries it contains from the table, so a reminder is always found in one of them. If there's
+    no reminder for the date itself, the text of the rules which occur on it is returned
+     */
     public String getReminder(Date key) {
-        return this.reminderTable.get(key);
+        ReminderEvents.Get event = new ReminderEvents.Get();
+        event.begin();
+        long start = Metrics.TIMING ? System.nanoTime() : 0;
+        String value = this.reminderTable.get(key.getKey());
+        if (value == null) {
+            ReminderStore store = this.fileStore;
+            if (store != null) {
+                value = store.get(key.getKey());
+            }
+        }
+        if (value == ConcurrentReminderTable.REMOVED) {
+            value = null;
+        }
+        if (value == null) {
+            value = this.rules.get(key.getKey());
+        }
+        if (Metrics.TIMING) {
+            GET_TIME.record(System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.date = key.getKey();
+            event.found = value != null;
+            event.commit();
+        }
+        return value;
+    }
+
+    /*
+    setter. Replaces all reminders, including a file store, and indexes them. With text compression on the reminders
+    become a CompressedReminderStore (like a file store, the table only gets the changes made from now on),
+    otherwise they are copied into the table
+     */
+    public void setReminderTable(DateIndexMap reminderTable) {
+        //in date order, so the dates are appended to the lists of the index instead of being inserted
+        TextIndex index = new TextIndex();
+        for (int key : reminderTable.sortedKeys()) {
+            index.update(key, null, reminderTable.get(key));
+        }
+        this.clearHistory();
+        if (this.textCompression) {
+            this.fileStore = new CompressedReminderStore(reminderTable, this.textCache);
+            this.reminderTable = new ConcurrentReminderTable();
+        } else {
+            this.fileStore = null;
+            this.reminderTable = new ConcurrentReminderTable(reminderTable);
+        }
+        this.textIndex = index;
+        this.size.set(reminderTable.size());
+    }
+
+    /*
+    returns the reminders which contain every word of query (case insensitive) in date order. Like
+    getRemindersBetween() the texts are looked up while iterating
+     */
+    public Iterator<Reminder> search(String query) {
+        int[] keys = this.textIndex.search(query);
+        return new Iterator<Reminder>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < keys.length;
+            }
+
+            @Override
+            public Reminder next() {
+                if (this.next == keys.length) {
+                    throw new NoSuchElementException();
+                }
+                Date date = Date.fromKey(keys[this.next++]);
+                return new Reminder(date, ReminderManager.this.getReminder(date));
+            }
+        };
+    }
+
+    /*
+    returns the reminders from (inclusive) to to (inclusive) in date order, the occurrences of recurring reminders
+    included. The reminders are looked up lazily while iterating, so stopping early costs nothing. The iterator is
+    weakly consistent: reminders saved while iterating may or may not be returned.
+     */
+    public Iterator<Reminder> getRemindersBetween(Date from, Date to) {
+        return new RangeIterator(from.getKey(), to.getKey(), this.rules);
+    }
+
+    //same as getRemindersBetween() but without the occurrences of recurring reminders
+    public Iterator<Reminder> getSingleRemindersBetween(Date from, Date to) {
+        return new RangeIterator(from.getKey(), to.getKey(), RecurrenceIndex.EMPTY);
+    }
+
+    /*
+    returns the first reminder after date (not including date itself) or null if there's none. The next occurrence
+    of every rule is computed, which costs O(rules)
+     */
+    public Reminder nextReminderAfter(Date date) {
+        int from = date.getKey() + 1;
+        while (true) {
+            int key = Math.min(this.reminderTable.ceilingKey(from), this.rules.nextOccurrence(from));
+            ReminderStore store = this.fileStore;
+            if (store != null) {
+                ReminderStore.Cursor cursor = store.ceiling(from);
+                if (cursor.hasKey()) {
+                    key = Math.min(key, cursor.key());
+                }
+            }
+            if (key == Integer.MAX_VALUE) {
+                return null;
+            }
+            Date next = Date.fromKey(key);
+            String text = this.getReminder(next);
+            if (text != null) {
+                return new Reminder(next, text);
+            }
+            from = key + 1; //the reminder was removed
+        }
+    }
+
+    /*
+    memory-maps the .rem file at path instead of reading it onto the heap, or opens it if it's partitioned. Returns
+    false if the file can't be mapped (e.g. an old serialized file or a file without an index block), in which
+    case the caller should fall back to readRemindersFromFile().
+    @param path - absolute path to the .rem file
+     */
+    public boolean mapRemindersFile(String path) {
+        ReminderEvents.Load event = new ReminderEvents.Load();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            Path file = Paths.get(path);
+            //before the file is read, a compaction which replaces it meanwhile changes the generation
+            long generation = ReminderJournal.generation(path + "." + Utils.JOURNAL_FILE_EXTENSION);
+            ReminderStore store;
+            if (PartitionedReminderStore.isManifest(file)) {
+                store = PartitionedReminderStore.open(file, this.partitionBudget);
+            } else {
+                store = new MappedReminderStore(file);
+            }
+            TextIndex index = TextIndex.read(file);
+            if (index == null) {
+                //no index was saved with the file, this is the only time all saved texts are decoded
+                index = new TextIndex();
+                for (ReminderStore.Cursor cursor = store.ceiling(Integer.MIN_VALUE); cursor.hasKey(); cursor.next()) {
+                    index.update(cursor.key(), null, cursor.text());
+                }
+            }
+            RecurrenceIndex rules = RecurrenceIndex.read(file);
+            this.clearHistory();
+            this.reminderTable = new ConcurrentReminderTable();
+            this.fileStore = store;
+            this.storeGeneration = generation;
+            this.rules = rules;
+            this.textIndex = index;
+            this.size.set(store.size());
+            recordLoad(event, start, path, true, store.size());
+            return true;
+        } catch (IOException e) {
+            System.err.println(Utils.FILE_MAP_ERROR_STR);
+            return false;
+        }
+    }
+
+    /*
+    applies the records of the journal which belongs to the .rem file at path on top of the reminders read from it,
+    without writing any file: unlike openJournal() nothing is converted or compacted, no lock is taken and other
+    processes aren't followed afterwards. Used by exports, which mustn't change the file they read. If another
+    process compacts the journal meanwhile the .rem file is opened again and the journal is read again
+    @param path - absolute path to the .rem file, which was opened with mapRemindersFile() or read
+     */
+    public void replayJournal(String path) {
+        String journalPath = path + "." + Utils.JOURNAL_FILE_EXTENSION;
+        try {
+            while (true) {
+                long generation = ReminderJournal.generation(journalPath);
+                if (this.fileStore instanceof PartitionedReminderStore && generation != this.storeGeneration) {
+                    if (!this.mapRemindersFile(path)) {
+                        throw new IOException(Utils.FILE_MAP_ERROR_STR);
+                    }
+                    continue;
+                }
+                DateIndexMap records = ReminderJournal.readRecords(journalPath, generation);
+                if (records != null) {
+                    records.forEach((key, value) -> this.reminderTable.put(key, value, (k, p, v) -> {
+                        this.written(null, k, p, v);
+                    }));
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(Utils.JOURNAL_OPEN_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.JOURNAL_OPEN_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+
+    /*
+    opens the journal which belongs to the .rem file at path. If replay is true the records of the journal are
+    applied on top of the reminders already in the table (the table should already contain the snapshot read by
+    readRemindersFromFile). Otherwise we start from scratch and the old journal (if any) is discarded.
+    If there's no snapshot yet an empty one is written so the .rem file can be chosen in the next session.
+    Once the journal is open the changes other processes make to it are merged, see reloadChanges().
+    @param path - absolute path to the .rem file
+     */
+    public void openJournal(String path, boolean replay) {
+        ReminderEvents.JournalOpen event = new ReminderEvents.JournalOpen();
+        event.begin();
+        long start = System.nanoTime();
+        this.snapshotPath = path;
+        try {
+            String journalPath = path + "." + Utils.JOURNAL_FILE_EXTENSION;
+            ReminderJournal journal = new ReminderJournal(journalPath, new ReminderJournal.Merger() {
+                @Override
+                public void merge(DateIndexMap records) {
+                    ReminderManager.this.merge(records);
+                }
+
+                @Override
+                public void compacted(boolean missed) throws IOException {
+                    ReminderManager.this.compacted(missed);
+                }
+            });
+            long journalBytes = journal.size();
+            if (replay) {
+                journal.compacting(() -> {
+                    //another process may have compacted the journal since the file store was opened, the records
+                    //the store misses are in the new .rem file then
+                    if (this.fileStore instanceof PartitionedReminderStore
+                            && journal.generation() != this.storeGeneration && !this.mapRemindersFile(path)) {
+                        throw new IOException(Utils.FILE_MAP_ERROR_STR);
+                    }
+                    journal.replayInto(this.reminderTable, (key, previous, value) -> {
+                        this.written(null, key, previous, value);
+                    });
+                });
+            } else {
+                journal.truncate();
+            }
+            synchronized (this.rulesLock) {
+                this.rulesModified = rulesModified(Paths.get(path));
+            }
+            this.journal = journal;
+            this.autosave = new AutosaveScheduler(this::autosave, Utils.AUTOSAVE_DELAY_MS,
+                    Utils.AUTOSAVE_MAX_DELAY_MS);
+            //a missing snapshot is created and a snapshot which isn't partitioned yet (e.g. an old serialized one)
+            //is converted
+            Path snapshot = Paths.get(path);
+            if (!replay || !Files.exists(snapshot) || !PartitionedReminderStore.isManifest(snapshot)) {
+                this.compactJournal();
+            }
+            List<Path> shared = Arrays.asList(Paths.get(journalPath),
+                    Paths.get(journalPath + "." + Utils.LOCK_FILE_EXTENSION),
+                    Paths.get(path + "." + Utils.RULES_FILE_EXTENSION));
+            this.watcher = new JournalWatcher(shared, this::reloadChanges, Utils.RELOAD_MIN_INTERVAL_MS,
+                    Utils.RELOAD_POLL_MS);
+            JOURNAL_OPEN_TIME.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = path;
+                event.bytes = journalBytes;
+                event.commit();
+            }
+        } catch (IOException e) {
+            System.err.println(Utils.JOURNAL_OPEN_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.JOURNAL_OPEN_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+
+    /*
+    writes the whole table into the partitioned snapshot and drops the journal records the snapshot contains.
+    Writers are only blocked while the search index is copied: the journal position is taken together with the
+    version of the table which is saved (see ConcurrentReminderTable.snapshot()), so every record before it is in
+    the snapshot and every record after it (written while the snapshot is being saved) stays in the journal. Other
+    processes can't compact the journal meanwhile, and they can't append before that position (see
+    ReminderJournal.checkpoint()), they only wait while the position and the version are taken. Only
+    the years the table has entries for are rewritten, every segment and the manifest are written to a temporary
+    file first (see PartitionedReminderStore), so a crash never leaves a half-written snapshot behind, and replaying
+    records which are already in the snapshot just writes the same reminders again. The entries saved are dropped
+    from the table (the ones written meanwhile stay), the saved reminders are read from the snapshot.
+     */
+    public void compactJournal() throws IOException {
+        synchronized (this.compactionLock) {
+            ReminderJournal journal = this.journal;
+            if (journal == null) {
+                return; //the journal was closed
+            }
+            long[] journalPosition = new long[1];
+            long[] changes = new long[1];
+            TextIndex[] index = new TextIndex[1];
+            ConcurrentReminderTable.Snapshot[] snapshot = new ConcurrentReminderTable.Snapshot[1];
+            journal.compacting(() -> {
+                journal.checkpoint(() -> snapshot[0] = this.reminderTable.snapshot(() -> {
+                    journalPosition[0] = journal.size();
+                    changes[0] = this.changeCount.get();
+                    index[0] = this.textIndex.copy();
+                }));
+
+                Path path = Paths.get(this.snapshotPath);
+                //the new store contains everything in the snapshot, publish it and drop those entries from the table
+                this.fileStore = this.writePartitions(snapshot[0], path);
+                writeIndex(index[0], path);
+                this.reminderTable.removeSame(snapshot[0]);
+                journal.discardBefore(journalPosition[0]);
+            });
+            this.markSaved(changes[0]);
+        }
+    }
+
+    //runs on the thread of this.autosave, see putReminder()
+    private void autosave() {
+        if (!this.isDirty()) {
+            return;
+        }
+        try {
+            this.compactJournal();
+        } catch (IOException e) {
+            System.err.println(Utils.FILE_SAVE_ERROR_STR);
+            Utils.showMessageDialog(null, Utils.FILE_SAVE_ERROR_STR, Utils.FATAL_ERROR);
+            System.exit(Utils.BAD_EXIT);
+        }
+        this.notifyMerged();
     }
 
-    //setter
-    public void setReminderTable(Hashtable<Date, String> reminderTable) {
-        this.reminderTable = reminderTable;
+    /*
+    syncs and closes the journal. All reminders are on the disk once the method returns. If a compaction is
+    running we wait for it to finish first, there's nothing else to write: pending autosaves are dropped, the
+    journal is replayed on top of the .rem file in the next session anyway.
+     */
+    public void closeJournal() {
+        JournalWatcher watcher = this.watcher;
+        if (watcher != null) {
+            try {
+                watcher.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.watcher = null;
+        }
+        AutosaveScheduler autosave = this.autosave;
+        if (autosave != null) {
+            try {
+                //outside of compactionLock, the running save may need it
+                autosave.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.autosave = null;
+        }
+        synchronized (this.compactionLock) {
+            ReminderJournal journal = this.journal;
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println(Utils.JOURNAL_WRITE_ERROR_STR);
+                Utils.showMessageDialog(null, Utils.JOURNAL_WRITE_ERROR_STR, Utils.FATAL_ERROR);
+                System.exit(Utils.BAD_EXIT);
+            }
+            this.journal = null;
+        }
     }
 
     /*
-    reads from a serialized file and returns HashTable<Date, String> object.
-    try-with-resources is used so we don't need to close the file.
+    reads a .rem file (binary or serialized) and returns its reminders. The recurring reminders saved with the file
+    replace the rules of the manager.
     @param path - represents the absolute path to the file which will be read
      */
-    public Hashtable<Date, String> readRemindersFromFile(String path) {
-        String errorMsg; //if errors will be needed to displayed
-        Hashtable<Date, String> reminderTable = null;
-        try(ObjectInputStream input = new ObjectInputStream(Files.newInputStream(Paths.get(path)))) {
+    public DateIndexMap readRemindersFromFile(String path) {
+        return this.readRemindersFromFile(path, null);
+    }
 
-            //we know that the object to be read is an instance of Hashtable<Date, String> hence
-            //the cast is OK
-            reminderTable = (Hashtable<Date, String>) input.readObject();
+    /*
+    same as readRemindersFromFile(path) but reports the percent of the file read so far to progress
+     */
+    public DateIndexMap readRemindersFromFile(String path, IntConsumer progress) {
+        String errorMsg; //if errors will be needed to displayed
+        DateIndexMap reminderTable = null;
+        ReminderEvents.Load event = new ReminderEvents.Load();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            reminderTable = ReminderFileFormat.read(Paths.get(path), progress);
+            this.rules = RecurrenceIndex.read(Paths.get(path));
+            recordLoad(event, start, path, false, reminderTable.size());
 
             //we catch possible exceptions as in the book on page 710-711
         } catch(EOFException e) {
@@ -82,17 +1040,41 @@ public class ReminderManager {
         return reminderTable;
     }
 
+    //records a load which started at start (System.nanoTime())
+    private static void recordLoad(ReminderEvents.Load event, long start, String path, boolean mapped, int entries) {
+        LOAD_TIME.record(System.nanoTime() - start);
+        long bytes = new File(path).length();
+        LOAD_BYTES.add(bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.mapped = mapped;
+            event.bytes = bytes;
+            event.entries = entries;
+            event.commit();
+        }
+    }
+
     /*
-    saves this.reminderTable to file using serialization.
-    try-with-resources is used so we don't need to close the file.
+    saves a snapshot of this.reminderTable to file in the binary .rem format (with an index block) and the rules
+    next to it.
+    If there is a file store, the saved reminders and the ones in this.reminderTable are merged into the new file.
 
     @param path - absolute path to the file which will be saved
      */
     public void saveToFile(String path) {
         String errorMsg; //if errors will be needed to displayed
-        try(ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(Paths.get(path)))) {
-
-            output.writeObject(this.reminderTable);
+        try {
+            long[] changes = new long[1];
+            TextIndex[] index = new TextIndex[1];
+            ConcurrentReminderTable.Snapshot snapshot = this.reminderTable.snapshot(() -> {
+                changes[0] = this.changeCount.get();
+                index[0] = this.textIndex.copy();
+            });
+            this.writeSnapshot(snapshot, Paths.get(path));
+            writeIndex(index[0], Paths.get(path));
+            this.rules.write(Paths.get(path));
+            this.markSaved(changes[0]);
 
             //we catch possible exceptions as in the book on page 698
         } catch (IOException e) {
@@ -107,4 +1089,234 @@ public class ReminderManager {
             System.exit(Utils.BAD_EXIT);
         }
     }
+
+    /*
+    saves index next to the .rem file at path. A missing index is only slower to open (it's rebuilt), so this
+    isn't a fatal error
+     */
+    private static void writeIndex(TextIndex index, Path path) {
+        try {
+            index.write(path);
+        } catch (IOException e) {
+            System.err.println(Utils.INDEX_WRITE_ERROR_STR);
+        }
+    }
+
+    //changes is the value of changeCount when the saved snapshot was taken
+    private void markSaved(long changes) {
+        this.savedChangeCount.accumulateAndGet(changes, Math::max);
+    }
+
+    /*
+    writes snapshot merged with the saved reminders (if any) to path. Both sources are sorted by packed date so
+    a single merge pass is enough. Saved texts are copied as raw bytes, a reminder in the snapshot wins over the
+    saved one with the same date. REMOVED entries of the snapshot aren't written and hide the saved reminder.
+    The new file is written next to path and then renamed over it: a crash never leaves a half-written file
+    behind, and path may be the mapped file itself, which must not be truncated while it's still mapped.
+     */
+    private void writeSnapshot(ConcurrentReminderTable.Snapshot snapshot, Path path) throws IOException {
+        ReminderEvents.Save event = new ReminderEvents.Save();
+        event.begin();
+        long start = System.nanoTime();
+        ReminderStore store = this.fileStore;
+        int size = (store == null ? 0 : store.size()) + snapshot.size();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.valueAt(i) == ConcurrentReminderTable.REMOVED) {
+                size--;
+            }
+            if (store != null && store.contains(snapshot.keyAt(i))) {
+                size--; //the reminder replaces (or removes) a saved one
+            }
+        }
+
+        Path temp = Paths.get(path + "." + Utils.TEMP_FILE_EXTENSION);
+        try (ReminderFileFormat.Writer writer = new ReminderFileFormat.Writer(temp, size, true)) {
+            int j = 0;
+            if (store != null) {
+                for (ReminderStore.Cursor cursor = store.ceiling(Integer.MIN_VALUE); cursor.hasKey(); cursor.next()) {
+                    int savedKey = cursor.key();
+                    while (j < snapshot.size() && snapshot.keyAt(j) <= savedKey) {
+                        addToWriter(writer, snapshot, j++);
+                    }
+                    if (j == 0 || snapshot.keyAt(j - 1) != savedKey) {
+                        byte[] text = cursor.textBytes();
+                        writer.add(savedKey, text, 0, text.length);
+                    }
+                }
+            }
+            while (j < snapshot.size()) {
+                addToWriter(writer, snapshot, j++);
+            }
+        }
+        long bytes = Files.size(temp);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.recordSave(event, start, path, bytes, size);
+    }
+
+    /*
+    writes snapshot on top of the saved reminders into the partitioned file at path and returns the new store. Only
+    the years which changed are rewritten unless the saved reminders aren't partitioned yet, the bytes recorded
+    for the save are the ones rewritten
+     */
+    private PartitionedReminderStore writePartitions(ConcurrentReminderTable.Snapshot snapshot, Path path)
+            throws IOException {
+        ReminderEvents.Save event = new ReminderEvents.Save();
+        event.begin();
+        long start = System.nanoTime();
+        PartitionedReminderStore store = PartitionedReminderStore.write(path, this.fileStore, snapshot,
+                this.partitionBudget);
+        this.recordSave(event, start, path, store.getBytesWritten(), store.size());
+        return store;
+    }
+
+    //records a save which started at start (System.nanoTime())
+    private void recordSave(ReminderEvents.Save event, long start, Path path, long bytes, int entries) {
+        long nanos = System.nanoTime() - start;
+        this.saveMetrics.record(bytes, nanos);
+        SAVE_TIME.record(nanos);
+        SAVE_BYTES.add(bytes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.bytes = bytes;
+            event.entries = entries;
+            event.commit();
+        }
+    }
+
+    //adds the i-th reminder of snapshot to writer unless it's a removal
+    private static void addToWriter(ReminderFileFormat.Writer writer, ConcurrentReminderTable.Snapshot snapshot,
+                                    int i) throws IOException {
+        if (snapshot.valueAt(i) == ConcurrentReminderTable.REMOVED) {
+            return;
+        }
+        byte[] text = snapshot.valueAt(i).getBytes(StandardCharsets.UTF_8);
+        writer.add(snapshot.keyAt(i), text, 0, text.length);
+    }
+
+    /*
+    told about the reminders saved with putReminder() and removed with removeReminder() (text is null then), by this
+    process or another one
+     */
+    public interface ChangeListener {
+        void reminderChanged(Date date, String text);
+
+        //told about the rules added with addRule() and removed with removeRule()
+        default void ruleChanged(RecurrenceRule rule, boolean added) {
+        }
+
+        //the .rem file was opened again because another process changed it, any reminder may have changed
+        default void reloaded() {
+        }
+    }
+
+    /*
+    a step of the undo history: the versions of the table before and after a write. Texts are compared by identity,
+    so every reminder which was written in between differs between the two (see ReminderTrie.differences()).
+    The texts of the dates the table had no entry for are the saved ones, which a compaction may overwrite, so
+    they are kept with the step
+     */
+    private static class Step {
+        private final ReminderTrie before;
+        private final DateIndexMap saved = new DateIndexMap(); //date -> saved text (or REMOVED) before the step
+        private ReminderTrie after;
+
+        Step(ReminderTrie before) {
+            this.before = before;
+        }
+
+        //called for every reminder the step writes, previous is the reminder it replaced (see store())
+        void stored(int key, String previous) {
+            if (this.before.get(key) == null) {
+                this.saved.put(key, previous != null ? previous : ConcurrentReminderTable.REMOVED);
+            }
+        }
+
+        //the text key had before the step, REMOVED if there was none
+        String textBefore(int key) {
+            String text = this.before.get(key);
+            if (text == null) {
+                text = this.saved.get(key);
+            }
+            return text != null ? text : ConcurrentReminderTable.REMOVED;
+        }
+    }
+
+    /*
+    merges the reminders of the table, the saved reminders (which are sorted in the file) and the occurrences of the
+    rules between two packed dates. If the table and the file have a reminder for the same date the table wins,
+    like in getReminder(), and a REMOVED entry of the table hides the saved reminder. The occurrences of a date are
+    only returned if neither has a reminder for it. The iterator stays one reminder ahead, so it knows whether
+    there's a next one after skipping removals.
+     */
+    private class RangeIterator implements Iterator<Reminder> {
+        private int to;
+        private ReminderTrie.Cursor cursor;
+        private ReminderStore.Cursor storeCursor; //over the file store when the iterator was created, may be null
+        private RecurrenceIndex.Occurrences occurrences;
+        private Reminder next; //null once there are no more reminders
+
+        RangeIterator(int from, int to, RecurrenceIndex rules) {
+            this.to = to;
+            this.cursor = ReminderManager.this.reminderTable.range(from, to);
+            ReminderStore store = ReminderManager.this.fileStore;
+            this.storeCursor = store == null ? null : store.ceiling(from);
+            this.occurrences = rules.occurrences(from, to);
+            this.advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public Reminder next() {
+            Reminder next = this.next;
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            this.advance();
+            return next;
+        }
+
+        //finds the next date which has a reminder
+        private void advance() {
+            this.next = null;
+            while (this.next == null) {
+                int tableKey = this.cursor.hasKey() ? this.cursor.key() : Integer.MAX_VALUE;
+                int storeKey = this.storeCursor != null && this.storeCursor.hasKey() ? this.storeCursor.key()
+                        : Integer.MAX_VALUE;
+                int ruleKey = this.occurrences.hasKey() ? this.occurrences.key() : Integer.MAX_VALUE;
+                int key = Math.min(tableKey, Math.min(storeKey, ruleKey));
+                if (key > this.to) {
+                    return;
+                }
+
+                String text = null;
+                if (tableKey == key) {
+                    text = this.cursor.value();
+                    this.cursor.next();
+                }
+                if (storeKey == key) {
+                    if (text == null) {
+                        text = this.storeCursor.text();
+                    }
+                    this.storeCursor.next();
+                }
+                if (text == ConcurrentReminderTable.REMOVED) {
+                    text = null;
+                }
+                if (ruleKey == key) {
+                    if (text == null) {
+                        text = this.occurrences.text();
+                    }
+                    this.occurrences.next();
+                }
+                if (text != null) {
+                    this.next = new Reminder(Date.fromKey(key), text);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,208 @@
+/*
+fires a callback when the date of a reminder arrives.
+
+The reminders are already sorted by packed date in ReminderManager (see getRemindersBetween()), so they form a
+priority queue of their own: the next due reminder is a single lookup (nextReminderAfter()) no matter how many
+reminders lie in the future. The notifier therefore only remembers two dates - the last day it fired the reminders
+of and the next date which has a reminder - and sleeps until the next date starts. Starting the notifier and every
+tick cost O(log n) instead of building a heap of all future reminders.
+
+ReminderManager tells the notifier about every change (see ReminderManager.ChangeListener): a reminder (or a
+recurring reminder) saved for a date before the next due date moves the wake-up time forward, a reminder saved for
+today fires right away, and everything else doesn't matter until its date comes up.
+
+The callback runs on the notifier's thread, a GUI has to hand it over to the EDT itself.
+ */
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class ReminderNotifier implements ReminderManager.ChangeListener {
+
+    private final static int NONE = Integer.MAX_VALUE; //no next due date
+
+    //instance fields
+    private ReminderManager reminderManager;
+    private Clock clock;
+    private Listener listener;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> wakeUp; //guarded by this, like the two dates below
+    private int lastFired; //packed date of the last day whose reminders were fired
+    private int nextDue = NONE; //packed date of the first reminder after lastFired
+
+    /*
+    Constructor
+    @param clock - tells the current day, in the clock's time zone
+     */
+    public ReminderNotifier(ReminderManager reminderManager, Clock clock, Listener listener) {
+        this.reminderManager = reminderManager;
+        this.clock = clock;
+        this.listener = listener;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true); //cancelled wake-ups would pile up in the queue otherwise
+        this.executor = executor;
+    }
+
+    /*
+    starts watching the reminders. The reminders of today are fired right away. Should be called once the
+    reminders are loaded: replacing all reminders (e.g. setReminderTable()) isn't reported to the notifier
+     */
+    public void start() {
+        synchronized (this) {
+            this.lastFired = toKey(LocalDate.now(this.clock).minusDays(1));
+            this.reminderManager.addChangeListener(this);
+        }
+        this.fireDue();
+    }
+
+    //stops watching the reminders, no callbacks are made afterwards
+    public void stop() {
+        this.reminderManager.removeChangeListener(this);
+        synchronized (this) {
+            if (this.wakeUp != null) {
+                this.wakeUp.cancel(false);
+            }
+            this.executor.shutdown();
+        }
+    }
+
+    /*
+    fires the reminders of all days from the day after the last check up to today and schedules the next check.
+    Called by the notifier's thread, but may also be called directly (e.g. after the computer woke up)
+     */
+    public void fireDue() {
+        List<Reminder> due = new ArrayList<>();
+        synchronized (this) {
+            int today = toKey(LocalDate.now(this.clock));
+            if (today > this.lastFired) {
+                Iterator<Reminder> reminders =
+                        this.reminderManager.getRemindersBetween(Date.fromKey(this.lastFired + 1), Date.fromKey(today));
+                while (reminders.hasNext()) {
+                    due.add(reminders.next());
+                }
+                this.lastFired = today;
+            }
+            Reminder next = this.reminderManager.nextReminderAfter(Date.fromKey(this.lastFired));
+            this.nextDue = next == null ? NONE : next.getDate().getKey();
+            this.schedule();
+        }
+        for (Reminder reminder : due) {
+            this.listener.reminderDue(reminder);
+        }
+    }
+
+    /*
+    called by ReminderManager after a reminder was saved (or removed, text is null then). Costs a comparison
+    unless the reminder is due today or comes before the next due date. A removed next due date just wakes the
+    notifier up for nothing, which then looks for the next one
+     */
+    @Override
+    public void reminderChanged(Date date, String text) {
+        int key = date.getKey();
+        if (text == null) {
+            return;
+        }
+        synchronized (this) {
+            if (key < this.lastFired || key >= this.nextDue || this.executor.isShutdown()) {
+                return;
+            }
+            if (key > this.lastFired) {
+                this.nextDue = key;
+                this.schedule();
+                return;
+            }
+        }
+        //the reminders of today have already been fired, fire the new one too
+        this.listener.reminderDue(new Reminder(date, text));
+    }
+
+    /*
+    called by ReminderManager after a recurring reminder was added or removed. Like a saved reminder, an added rule
+    which occurs today fires right away and one which occurs before the next due date moves the wake-up time
+    forward. O(1) apart from computing the next occurrence of the rule
+     */
+    @Override
+    public void ruleChanged(RecurrenceRule rule, boolean added) {
+        int today;
+        synchronized (this) {
+            if (!added || this.executor.isShutdown()) {
+                return;
+            }
+            int next = rule.nextOccurrence(this.lastFired + 1);
+            if (next < this.nextDue) {
+                this.nextDue = next;
+                this.schedule();
+            }
+            today = this.lastFired;
+        }
+        //the reminders of today have already been fired, fire the new one too
+        if (rule.occursOn(today)) {
+            this.listener.reminderDue(new Reminder(Date.fromKey(today), rule.getText()));
+        }
+    }
+
+    /*
+    called by ReminderManager after another process replaced the .rem file, any reminder may have changed. The next
+    due date is looked up again (O(log n)), the reminders of today which came with the file aren't fired
+     */
+    @Override
+    public void reloaded() {
+        synchronized (this) {
+            if (this.executor.isShutdown()) {
+                return;
+            }
+            Reminder next = this.reminderManager.nextReminderAfter(Date.fromKey(this.lastFired));
+            this.nextDue = next == null ? NONE : next.getDate().getKey();
+            this.schedule();
+        }
+    }
+
+    //getter. The packed date the notifier wakes up for next, Integer.MAX_VALUE if there's none
+    public synchronized int getNextDue() {
+        return this.nextDue;
+    }
+
+    /*
+    (re)schedules the wake-up at the start of this.nextDue. Long sleeps are cut into pieces of at most
+    Utils.NOTIFIER_MAX_SLEEP_MS so that a changed system clock or time zone is noticed. Call while holding the lock
+     */
+    private void schedule() {
+        if (this.executor.isShutdown()) {
+            return;
+        }
+        if (this.wakeUp != null) {
+            this.wakeUp.cancel(false);
+            this.wakeUp = null;
+        }
+        if (this.nextDue == NONE) {
+            return;
+        }
+        Date next = Date.fromKey(this.nextDue);
+        LocalDate day = LocalDate.of(next.getYear(), next.getMonth(), next.getDay());
+        long delay = Duration.between(this.clock.instant(), day.atStartOfDay(this.clock.getZone())).toMillis();
+        delay = Math.max(0, Math.min(delay, Utils.NOTIFIER_MAX_SLEEP_MS));
+        this.wakeUp = this.executor.schedule(this::fireDue, delay, TimeUnit.MILLISECONDS);
+    }
+
+    //the packed date of day, see Date.getKey()
+    private static int toKey(LocalDate day) {
+        return new Date(day.getDayOfMonth(), day.getMonthValue(), day.getYear()).getKey();
+    }
+
+    //called for every reminder whose date arrived
+    public interface Listener {
+        void reminderDue(Reminder reminder);
+    }
+}
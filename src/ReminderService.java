@@ -0,0 +1,326 @@
+/*
+headless mode of the app: serves the reminders of a .rem file over a small HTTP API on the loopback interface, so
+other local tools can use them without the GUI. Started with "ReminderMain --serve <file.rem> [port]".
+
+GET    /reminders/yyyy-mm-dd                      the text of the reminder, 404 if there's none
+PUT    /reminders/yyyy-mm-dd                      saves the request body (UTF-8) as the reminder, 204
+DELETE /reminders/yyyy-mm-dd                      removes the reminder, 204 or 404 if there was none
+GET    /reminders?from=yyyy-mm-dd&to=yyyy-mm-dd   the reminders of the period in date order, one per line:
+                                                  yyyy-mm-dd<tab>text, with \, tab and line breaks escaped as
+                                                  \\, \t, \n and \r
+GET    /metrics                                   the metrics of the service as text (see Metrics.dump())
+
+Every request runs on its own virtual thread if the JVM has them (Java 21+). They're looked up by reflection
+because the app is built for Java 17, where a cached pool of daemon threads is used instead.
+Writes go through the journal of the file (see ReminderJournal), whose group commit batches the records of
+concurrent requests into few writes and fsyncs. A PUT or DELETE is answered once its record reached the OS.
+
+stop() (also run by a shutdown hook, e.g. on Ctrl+C) stops accepting requests, lets the running ones finish and
+then flushes and closes the journal.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ReminderService {
+
+    private final static String REMINDERS_PATH = "/reminders";
+    private final static String METRICS_PATH = "/metrics";
+
+    //instance fields
+    private ReminderManager reminderManager;
+    private HttpServer server;
+    private ExecutorService executor; //runs the requests
+    private boolean stopped;
+
+    /*
+    Constructor - loads the .rem file at path (an empty one is created if it doesn't exist) and opens its journal
+    @param port - the port to listen on, 0 picks a free one (see getPort())
+     */
+    public ReminderService(String path, int port) throws IOException {
+        this.reminderManager = new ReminderManager();
+        boolean existing = Files.exists(Paths.get(path));
+        if (existing && !this.reminderManager.mapRemindersFile(path)) {
+            this.reminderManager.setReminderTable(this.reminderManager.readRemindersFromFile(path));
+        }
+        this.reminderManager.openJournal(path, existing);
+
+        this.executor = newRequestExecutor();
+        //small responses would otherwise wait for the delayed ACK of the client (~40 ms) because of Nagle's algorithm.
+        //Read once when the server classes are loaded, so it has no effect on a server created before
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext(REMINDERS_PATH, this::handle);
+        this.server.createContext(METRICS_PATH, ReminderService::metrics);
+        Metrics.gauge("reminders.count", this.reminderManager::size);
+    }
+
+    //starts answering requests
+    public void start() {
+        this.server.start();
+    }
+
+    //getter. The port the service listens on
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    //getter
+    public ReminderManager getReminderManager() {
+        return this.reminderManager;
+    }
+
+    /*
+    stops the service gracefully: new connections are refused, running requests get up to
+    Utils.SERVICE_SHUTDOWN_DELAY_S seconds to finish, then the journal is flushed and closed
+     */
+    public synchronized void stop() {
+        if (this.stopped) {
+            return;
+        }
+        this.stopped = true;
+        this.server.stop(Utils.SERVICE_SHUTDOWN_DELAY_S);
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(Utils.SERVICE_SHUTDOWN_DELAY_S, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.reminderManager.closeJournal();
+    }
+
+    /*
+    one thread per request: a virtual thread if Executors.newVirtualThreadPerTaskExecutor() exists and works,
+    otherwise a cached pool of daemon threads
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            //before Java 21 (or with virtual threads being a disabled preview feature)
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "reminder-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    //dispatches a request by method and path
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals(REMINDERS_PATH) || path.equals(REMINDERS_PATH + "/")) {
+                if (method.equals("GET")) {
+                    this.range(exchange);
+                } else {
+                    send(exchange, 405, Utils.METHOD_NOT_ALLOWED_STR);
+                }
+                return;
+            }
+            if (!path.startsWith(REMINDERS_PATH + "/")) {
+                send(exchange, 404, Utils.NOT_FOUND_STR);
+                return;
+            }
+            Date date = parseDate(path.substring(REMINDERS_PATH.length() + 1));
+            switch (method) {
+                case "GET":
+                    String reminder = this.reminderManager.getReminder(date);
+                    if (reminder == null) {
+                        send(exchange, 404, Utils.NOT_FOUND_STR);
+                    } else {
+                        send(exchange, 200, reminder);
+                    }
+                    break;
+                case "PUT":
+                    byte[] body = readBody(exchange.getRequestBody());
+                    if (body == null) {
+                        send(exchange, 413, Utils.REQUEST_TOO_LARGE_STR);
+                        break;
+                    }
+                    this.reminderManager.putReminder(date, new String(body, StandardCharsets.UTF_8));
+                    send(exchange, 204, null);
+                    break;
+                case "DELETE":
+                    if (this.reminderManager.removeReminder(date)) {
+                        send(exchange, 204, null);
+                    } else {
+                        send(exchange, 404, Utils.NOT_FOUND_STR);
+                    }
+                    break;
+                default:
+                    send(exchange, 405, Utils.METHOD_NOT_ALLOWED_STR);
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    //GET /metrics
+    private static void metrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals(METRICS_PATH)) {
+                send(exchange, 404, Utils.NOT_FOUND_STR);
+            } else if (exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 200, Metrics.dump());
+            } else {
+                send(exchange, 405, Utils.METHOD_NOT_ALLOWED_STR);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    //GET /reminders?from=...&to=...
+    private void range(HttpExchange exchange) throws IOException {
+        String from = null;
+        String to = null;
+        String query = exchange.getRequestURI().getRawQuery();
+        for (String parameter : query == null ? new String[0] : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1),
+                    StandardCharsets.UTF_8);
+            if (name.equals("from")) {
+                from = value;
+            } else if (name.equals("to")) {
+                to = value;
+            }
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException(Utils.RANGE_PARAMETERS_ERROR_STR);
+        }
+
+        Iterator<Reminder> reminders = this.reminderManager.getRemindersBetween(parseDate(from), parseDate(to));
+        //the lines are streamed as they're read (chunked, length 0), so a long period isn't held in memory
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                StandardCharsets.UTF_8))) {
+            while (reminders.hasNext()) {
+                Reminder reminder = reminders.next();
+                Date date = reminder.getDate();
+                out.write(String.format("%04d-%02d-%02d", date.getYear(), date.getMonth(), date.getDay()));
+                out.write('\t');
+                escape(reminder.getText(), out);
+                out.write('\n');
+            }
+        }
+    }
+
+    /*
+    parses yyyy-mm-dd, throws IllegalArgumentException (answered with 400) if it isn't a valid date. LocalDate also
+    accepts years like +10000 and -1, which don't fit the packed date (see Date.getKey()), so they're invalid too
+     */
+    private static Date parseDate(String text) {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(Utils.INVALID_DATE_ERROR_STR + text);
+        }
+        if (date.getYear() < 0 || date.getYear() > Utils.SERVICE_MAX_YEAR) {
+            throw new IllegalArgumentException(Utils.INVALID_DATE_ERROR_STR + text);
+        }
+        return new Date(date.getDayOfMonth(), date.getMonthValue(), date.getYear());
+    }
+
+    //writes text to out with \, tab and line breaks escaped so that every reminder stays on one line
+    private static void escape(String text, Writer out) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                default:
+                    out.write(c);
+            }
+        }
+    }
+
+    //reads the request body, null if it's larger than Utils.SERVICE_MAX_BODY_SIZE
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            body.write(buffer, 0, read);
+            if (body.size() > Utils.SERVICE_MAX_BODY_SIZE) {
+                return null;
+            }
+        }
+        return body.toByteArray();
+    }
+
+    //sends status with text (UTF-8 plain text) as the body, or without a body if text is null
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        if (text == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /*
+    runs the service until the process is stopped
+    @param args - the .rem file and optionally the port (Utils.SERVICE_DEFAULT_PORT otherwise)
+     */
+    public static void run(String[] args) {
+        if (args.length < 1) {
+            System.err.println(Utils.SERVICE_USAGE_STR);
+            System.exit(Utils.BAD_EXIT);
+        }
+        System.setProperty("java.awt.headless", "true"); //errors are only printed, see Utils.showMessageDialog()
+        try {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : Utils.SERVICE_DEFAULT_PORT;
+            ReminderService service = new ReminderService(args[0], port);
+            Runtime.getRuntime().addShutdownHook(new Thread(service::stop, "reminder-service-shutdown"));
+            service.start();
+            System.out.println(Utils.SERVICE_STARTED_MESSAGE + service.getPort());
+        } catch (IOException | NumberFormatException e) {
+            System.err.println(Utils.SERVICE_START_ERROR_STR);
+            System.exit(Utils.BAD_EXIT);
+        }
+    }
+}
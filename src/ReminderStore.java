@@ -0,0 +1,41 @@
+/*
+the reminders saved in a .rem file which ReminderManager reads on demand instead of loading them onto the heap:
+a single memory-mapped file (MappedReminderStore) or a file split into one segment per year
+(PartitionedReminderStore). Stores are read-only, a save replaces the store with a new one.
+ */
+
+public interface ReminderStore {
+
+    //returns the amount of reminders in the store
+    int size();
+
+    //returns the text stored under the packed date key or null if there's none
+    String get(int key);
+
+    //checks if there's a reminder under the packed date key without decoding its text
+    boolean contains(int key);
+
+    //returns a cursor which starts at the first date >= key and walks the dates in ascending order
+    Cursor ceiling(int key);
+
+    /*
+    walks the reminders of a store in date order
+     */
+    interface Cursor {
+
+        //checks if the cursor points to a reminder
+        boolean hasKey();
+
+        //the packed date of the current reminder. Call hasKey() first
+        int key();
+
+        //the text of the current reminder
+        String text();
+
+        //the raw UTF-8 text of the current reminder, used to copy reminders without decoding them
+        byte[] textBytes();
+
+        //moves to the next reminder
+        void next();
+    }
+}
@@ -0,0 +1,394 @@
+/*
+persistent (immutable) map from packed date (see Date.getKey()) to reminder text, every version of
+ConcurrentReminderTable is one. It's a bitwise trie on the key: every level of nodes uses BITS bits of the key, from
+the highest to the lowest, so a key is found after at most LEVELS nodes and walking the trie from left to right
+returns the dates in order. with() and without() copy only the nodes on the path to the key and return a new trie,
+every other node is shared with the old one, which stays as it is. So a version costs about LEVELS small arrays
+per change, and a version can be read by any number of threads without locking: nothing in it ever changes.
+
+A node is an array of its 32 children, null where there's none, so going down a level is a single array read.
+(Packing only the existing children behind a bitmap, like a hash array mapped trie, takes less memory for sparse
+nodes but costs another dependent read on every level, which made lookups twice as slow.) The children of the
+last level are the texts. The root is the lowest node which has all keys below it, the levels above it would only
+have a single child (the dates of a few centuries share their highest bits), so lookups skip them. The bits the
+keys share above the root are the prefix of the trie.
+
+The sign bit of the keys is flipped before they're split (see bits()), so that negative keys come first like in
+signed order.
+ */
+
+import java.util.function.IntConsumer;
+
+public class ReminderTrie {
+
+    private final static int BITS = 5;
+    private final static int WIDTH = 1 << BITS; //children of a node
+    private final static int MASK = WIDTH - 1;
+    private final static int LEVELS = 7; //the first level only uses the 2 highest bits
+
+    public final static ReminderTrie EMPTY = new ReminderTrie(null, 0, 0, 0);
+
+    //instance fields
+    private final Object[] root; //null if the trie is empty
+    private final int shift; //of the level of the root
+    private final int prefix; //the bits above the level of the root, see bits()
+    private final int size;
+
+    private ReminderTrie(Object[] root, int shift, int prefix, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.prefix = prefix;
+        this.size = size;
+    }
+
+    /*
+    returns a trie of the entries of table. Built from the bottom up in one pass over the sorted keys, which is
+    much cheaper than a with() per entry
+     */
+    public static ReminderTrie of(DateIndexMap table) {
+        int[] keys = table.sortedKeys();
+        if (keys.length == 0) {
+            return EMPTY;
+        }
+        int[] bits = new int[keys.length];
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            bits[i] = bits(keys[i]);
+            values[i] = table.get(keys[i]);
+        }
+        int shift = rootShift(bits[0], bits[bits.length - 1], 0);
+        return new ReminderTrie(build(bits, values, 0, keys.length, shift), shift, high(bits[0], shift),
+                keys.length);
+    }
+
+    //returns the amount of entries
+    public int size() {
+        return this.size;
+    }
+
+    //returns the text stored under key or null
+    public String get(int key) {
+        int bits = bits(key);
+        if (this.root == null || high(bits, this.shift) != this.prefix) {
+            return null;
+        }
+        Object[] node = this.root;
+        for (int shift = this.shift; ; shift -= BITS) {
+            Object child = node[(bits >>> shift) & MASK];
+            if (shift == 0 || child == null) {
+                return (String) child;
+            }
+            node = (Object[]) child;
+        }
+    }
+
+    //returns a trie which has value under key, this one if it's there already (the same object)
+    public ReminderTrie with(int key, String value) {
+        String previous = this.get(key);
+        if (previous == value) {
+            return this;
+        }
+        int bits = bits(key);
+        int size = previous == null ? this.size + 1 : this.size;
+        if (this.root == null) {
+            return new ReminderTrie(put(null, 0, bits, value), 0, high(bits, 0), size);
+        }
+        ReminderTrie trie = this.raised(rootShift(bits, this.prefix, this.shift));
+        return new ReminderTrie(put(trie.root, trie.shift, bits, value), trie.shift, trie.prefix, size);
+    }
+
+    //returns a trie without key, this one if there's no such key
+    public ReminderTrie without(int key) {
+        if (this.get(key) == null) {
+            return this;
+        }
+        Object[] root = remove(this.root, this.shift, bits(key));
+        return root == null ? EMPTY : new ReminderTrie(root, this.shift, this.prefix, this.size - 1);
+    }
+
+    /*
+    returns a trie without the entries which have the very same text (compared by identity) in other, e.g. the
+    entries of an older version which were saved meanwhile. Subtrees the two tries share are dropped as a whole,
+    so it costs about the changes made since other was this trie, not the size of the trie
+     */
+    public ReminderTrie withoutSame(ReminderTrie other) {
+        if (this.root == null || other.root == null) {
+            return this;
+        }
+        int shift = rootShift(this.prefix, other.prefix, Math.max(this.shift, other.shift));
+        ReminderTrie trie = this.raised(shift);
+        int[] removed = new int[1];
+        Object[] root = removeSame(trie.root, other.raised(shift).root, shift, removed);
+        if (removed[0] == 0) {
+            return this;
+        }
+        return root == null ? EMPTY : new ReminderTrie(root, shift, trie.prefix, this.size - removed[0]);
+    }
+
+    /*
+    tells consumer every key whose text differs (by identity) between the tries a and b, in date order, including
+    the keys only one of them has. Subtrees the two share are skipped, so two versions which are a few changes apart
+    are compared in about those few changes
+     */
+    public static void differences(ReminderTrie a, ReminderTrie b, IntConsumer consumer) {
+        if (a.root == null || b.root == null) {
+            ReminderTrie trie = a.root == null ? b : a;
+            differences(a.root, b.root, trie.shift, trie.prefix, consumer);
+            return;
+        }
+        int shift = rootShift(a.prefix, b.prefix, Math.max(a.shift, b.shift));
+        differences(a.raised(shift).root, b.raised(shift).root, shift, high(a.prefix, shift), consumer);
+    }
+
+    //returns the first key >= key or Integer.MAX_VALUE if there's none
+    public int ceilingKey(int key) {
+        Cursor cursor = this.range(key, Integer.MAX_VALUE);
+        return cursor.hasKey() ? cursor.key() : Integer.MAX_VALUE;
+    }
+
+    //returns a cursor over the keys from (inclusive) to to (inclusive) in ascending order
+    public Cursor range(int from, int to) {
+        return new Cursor(from, to);
+    }
+
+    //the key with its sign bit flipped, so the bits of keys are in the same order as the keys (as unsigned ints)
+    private static int bits(int key) {
+        return key ^ Integer.MIN_VALUE;
+    }
+
+    //the bits above the level at shift
+    private static int high(int bits, int shift) {
+        return shift + BITS >= Integer.SIZE ? 0 : bits & (-1 << (shift + BITS));
+    }
+
+    //the lowest level (at least the one at shift) whose nodes have both a and b below them
+    private static int rootShift(int a, int b, int shift) {
+        while (high(a, shift) != high(b, shift)) {
+            shift += BITS;
+        }
+        return shift;
+    }
+
+    //returns the same trie with its root at the level at shift (or this one if it's there already)
+    private ReminderTrie raised(int shift) {
+        Object[] root = this.root;
+        for (int level = this.shift + BITS; level <= shift; level += BITS) {
+            Object[] parent = new Object[WIDTH];
+            parent[(this.prefix >>> level) & MASK] = root;
+            root = parent;
+        }
+        return root == this.root ? this : new ReminderTrie(root, shift, high(this.prefix, shift), this.size);
+    }
+
+    private static Object[] build(int[] bits, String[] values, int from, int to, int shift) {
+        Object[] node = new Object[WIDTH];
+        int start = from;
+        while (start < to) {
+            int index = (bits[start] >>> shift) & MASK;
+            int end = start + 1;
+            while (end < to && ((bits[end] >>> shift) & MASK) == index) {
+                end++;
+            }
+            node[index] = shift == 0 ? values[start] : build(bits, values, start, end, shift - BITS);
+            start = end;
+        }
+        return node;
+    }
+
+    //returns a copy of node (a new node if it's null) with value under bits
+    private static Object[] put(Object[] node, int shift, int bits, String value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = (bits >>> shift) & MASK;
+        copy[index] = shift == 0 ? value : put((Object[]) copy[index], shift - BITS, bits, value);
+        return copy;
+    }
+
+    //returns a copy of node without bits (which it has), null if nothing is left
+    private static Object[] remove(Object[] node, int shift, int bits) {
+        Object[] copy = node.clone();
+        int index = (bits >>> shift) & MASK;
+        copy[index] = shift == 0 ? null : remove((Object[]) copy[index], shift - BITS, bits);
+        return isEmpty(copy) ? null : copy;
+    }
+
+    /*
+    returns node without the children which are the same in other, node itself if there are none. The entries
+    removed are counted in removed[0]
+     */
+    private static Object[] removeSame(Object[] node, Object[] other, int shift, int[] removed) {
+        if (node == other) {
+            removed[0] += count(node, shift);
+            return null;
+        }
+        Object[] copy = null;
+        for (int index = 0; index < WIDTH; index++) {
+            Object child = node[index];
+            if (child == null || other[index] == null) {
+                continue;
+            }
+            Object kept;
+            if (shift == 0) {
+                kept = child == other[index] ? null : child;
+                removed[0] += kept == null ? 1 : 0;
+            } else {
+                kept = removeSame((Object[]) child, (Object[]) other[index], shift - BITS, removed);
+            }
+            if (kept != child) {
+                if (copy == null) {
+                    copy = node.clone();
+                }
+                copy[index] = kept;
+            }
+        }
+        if (copy == null) {
+            return node;
+        }
+        return isEmpty(copy) ? null : copy;
+    }
+
+    //prefix holds the bits of the levels above shift
+    private static void differences(Object[] a, Object[] b, int shift, int prefix, IntConsumer consumer) {
+        if (a == b) {
+            return;
+        }
+        for (int index = 0; index < WIDTH; index++) {
+            Object childA = a == null ? null : a[index];
+            Object childB = b == null ? null : b[index];
+            int bits = prefix | (index << shift);
+            if (childA == childB) {
+                continue;
+            }
+            if (shift == 0) {
+                consumer.accept(bits ^ Integer.MIN_VALUE);
+            } else {
+                differences((Object[]) childA, (Object[]) childB, shift - BITS, bits, consumer);
+            }
+        }
+    }
+
+    //the amount of entries below node
+    private static int count(Object[] node, int shift) {
+        int count = 0;
+        for (Object child : node) {
+            if (child != null) {
+                count += shift == 0 ? 1 : count((Object[]) child, shift - BITS);
+            }
+        }
+        return count;
+    }
+
+    private static boolean isEmpty(Object[] node) {
+        for (Object child : node) {
+            if (child != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    walks the keys of a range in ascending order. It keeps the path from the root to the current key (level 0 is
+    the root), next() moves to the next child of the deepest node which has one and then down to its first key
+     */
+    public class Cursor {
+        private final int to; //see bits()
+        private final int leaf; //the level of the texts
+        private final Object[][] nodes = new Object[LEVELS][];
+        private final int[] indices = new int[LEVELS]; //of the child on the path in every node
+        private boolean hasKey;
+
+        private Cursor(int from, int to) {
+            ReminderTrie trie = ReminderTrie.this;
+            this.to = bits(to);
+            this.leaf = trie.shift / BITS;
+            if (trie.root == null) {
+                return;
+            }
+            int high = high(bits(from), trie.shift);
+            if (high == trie.prefix) {
+                this.seek(bits(from));
+            } else if (Integer.compareUnsigned(high, trie.prefix) < 0) {
+                this.nodes[0] = trie.root;
+                this.indices[0] = -1;
+                this.advance(0); //every key is greater than from
+            }
+        }
+
+        //checks if the cursor points to a key
+        public boolean hasKey() {
+            return this.hasKey;
+        }
+
+        //the current key. Call hasKey() first
+        public int key() {
+            int bits = ReminderTrie.this.prefix;
+            for (int level = 0; level <= this.leaf; level++) {
+                bits |= this.indices[level] << ((this.leaf - level) * BITS);
+            }
+            return bits ^ Integer.MIN_VALUE;
+        }
+
+        //the text stored under the current key
+        public String value() {
+            return (String) this.nodes[this.leaf][this.indices[this.leaf]];
+        }
+
+        //moves to the next key
+        public void next() {
+            this.advance(this.leaf);
+        }
+
+        //goes down to the first key >= bits, which has the prefix of the trie
+        private void seek(int bits) {
+            Object[] node = ReminderTrie.this.root;
+            for (int level = 0; level <= this.leaf; level++) {
+                int index = (bits >>> ((this.leaf - level) * BITS)) & MASK;
+                this.nodes[level] = node;
+                this.indices[level] = index;
+                if (node[index] == null) {
+                    this.advance(level); //every key below the next child is greater
+                    return;
+                }
+                if (level < this.leaf) {
+                    node = (Object[]) node[index];
+                }
+            }
+            this.found();
+        }
+
+        //moves to the next child of the node at level (to the first key below it), or further up if it has none
+        private void advance(int level) {
+            for (; level >= 0; level--) {
+                Object[] node = this.nodes[level];
+                int index = this.indices[level] + 1;
+                while (index < WIDTH && node[index] == null) {
+                    index++;
+                }
+                if (index < WIDTH) {
+                    this.indices[level] = index;
+                    this.first(level);
+                    return;
+                }
+            }
+            this.hasKey = false;
+        }
+
+        //goes down from the child on the path at level to the first key below it
+        private void first(int level) {
+            for (level++; level <= this.leaf; level++) {
+                Object[] node = (Object[]) this.nodes[level - 1][this.indices[level - 1]];
+                int index = 0;
+                while (node[index] == null) {
+                    index++;
+                }
+                this.nodes[level] = node;
+                this.indices[level] = index;
+            }
+            this.found();
+        }
+
+        private void found() {
+            this.hasKey = Integer.compareUnsigned(bits(this.key()), this.to) <= 0;
+        }
+    }
+}
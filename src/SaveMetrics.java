@@ -0,0 +1,55 @@
+/*
+counts how often the reminders were written to a .rem file, how many bytes were written and how long it took.
+Updated by ReminderManager after every save (autosaves, compactions and saveToFile()), may be read from any thread.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SaveMetrics {
+
+    //instance fields
+    private LongAdder saveCount = new LongAdder();
+    private LongAdder bytesWritten = new LongAdder();
+    private LongAdder totalNanos = new LongAdder();
+    private AtomicLong lastNanos = new AtomicLong();
+    private AtomicLong lastBytes = new AtomicLong();
+
+    //records one save of bytes bytes which took nanos nanoseconds
+    public void record(long bytes, long nanos) {
+        this.saveCount.increment();
+        this.bytesWritten.add(bytes);
+        this.totalNanos.add(nanos);
+        this.lastNanos.set(nanos);
+        this.lastBytes.set(bytes);
+    }
+
+    //getters
+    public long getSaveCount() {
+        return this.saveCount.sum();
+    }
+
+    public long getBytesWritten() {
+        return this.bytesWritten.sum();
+    }
+
+    public long getLastSaveBytes() {
+        return this.lastBytes.get();
+    }
+
+    public double getLastSaveMillis() {
+        return this.lastNanos.get() / 1e6;
+    }
+
+    public double getAverageSaveMillis() {
+        long count = this.saveCount.sum();
+        return count == 0 ? 0 : this.totalNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public String toString() {
+        return "saves: " + this.getSaveCount() + ", bytes written: " + this.getBytesWritten()
+                + ", last save: " + this.getLastSaveBytes() + " bytes in " + this.getLastSaveMillis() + " ms"
+                + ", average save: " + this.getAverageSaveMillis() + " ms";
+    }
+}
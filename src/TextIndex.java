@@ -0,0 +1,288 @@
+/*
+inverted index over the reminder texts: every term (a run of letters and digits, lower case) maps to the sorted
+list of packed dates (see Date.getKey()) whose reminder contains the term. A query is answered by intersecting
+the lists of its terms, starting with the shortest one, so its cost depends on how many reminders match and not on
+how many reminders there are.
+
+ReminderManager keeps the index up to date on every change (see ReminderManager.putReminder()) and saves it next to
+the .rem file it belongs to, see write() and read(). The file remembers the size and modification time of the
+.rem file so an index which doesn't belong to the current .rem file is rebuilt instead of being used.
+
+The class is thread-safe: searches share a read lock, changes take the write lock.
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+public class TextIndex {
+
+    private final static int MAGIC = 0x52454D49; //"REMI"
+    private final static int VERSION = 2; //1 wrote the terms with writeUTF(), which fails for terms over 64 KB
+    private final static int[] NO_DATES = new int[0];
+
+    //instance fields
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /*
+    splits text into its terms: runs of letters and digits in lower case. A term appears once even if the text
+    contains it several times
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean partOfTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (partOfTerm && start < 0) {
+                start = i;
+            } else if (!partOfTerm && start >= 0) {
+                String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!terms.contains(term)) {
+                    terms.add(term);
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /*
+    records that the reminder under key changed from previous to value (either may be null)
+     */
+    public void update(int key, String previous, String value) {
+        List<String> removed = previous == null ? List.of() : terms(previous);
+        List<String> added = value == null ? List.of() : terms(value);
+        long stamp = this.lock.writeLock();
+        try {
+            for (String term : removed) {
+                if (!added.contains(term)) {
+                    Postings dates = this.postings.get(term);
+                    if (dates != null && dates.remove(key) && dates.size == 0) {
+                        this.postings.remove(term);
+                    }
+                }
+            }
+            for (String term : added) {
+                this.postings.computeIfAbsent(term, t -> new Postings()).add(key);
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+    returns the sorted packed dates whose reminders contain every term of query, an empty array if query has
+    no terms
+     */
+    public int[] search(String query) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return NO_DATES;
+        }
+        long stamp = this.lock.readLock();
+        try {
+            Postings[] lists = new Postings[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = this.postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return NO_DATES;
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            int[] result = Arrays.copyOf(lists[0].dates, lists[0].size);
+            int size = result.length;
+            for (int i = 1; i < lists.length && size > 0; i++) {
+                size = lists[i].retainAll(result, size);
+            }
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    //returns the amount of distinct terms
+    public int termCount() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.postings.size();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /*
+    returns a copy of the index. Taken while the reminder table is locked (see ReminderManager.compactJournal())
+    so that the saved index matches the saved .rem file exactly
+     */
+    public TextIndex copy() {
+        TextIndex copy = new TextIndex();
+        long stamp = this.lock.readLock();
+        try {
+            for (Map.Entry<String, Postings> entry : this.postings.entrySet()) {
+                Postings dates = new Postings();
+                dates.dates = Arrays.copyOf(entry.getValue().dates, entry.getValue().size);
+                dates.size = dates.dates.length;
+                copy.postings.put(entry.getKey(), dates);
+            }
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+        return copy;
+    }
+
+    /*
+    saves the index next to the .rem file at remPath (which must already be written). The index is written to a
+    temporary file first and then renamed, like the .rem file itself
+     */
+    public void write(Path remPath) throws IOException {
+        Path path = indexPath(remPath);
+        Path temp = Paths.get(path + "." + Utils.TEMP_FILE_EXTENSION);
+        long stamp = this.lock.readLock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(remPath));
+            out.writeLong(Files.getLastModifiedTime(remPath).toMillis());
+            out.writeInt(this.postings.size());
+            for (Map.Entry<String, Postings> entry : this.postings.entrySet()) {
+                Postings dates = entry.getValue();
+                //[int length][UTF-8 bytes], a term may be as long as a reminder
+                byte[] term = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(term.length);
+                out.write(term);
+                out.writeInt(dates.size);
+                for (int i = 0; i < dates.size; i++) {
+                    out.writeInt(dates.dates[i]);
+                }
+            }
+            out.writeInt(MAGIC); //a truncated file is detected by the missing trailer
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+    reads the index saved next to the .rem file at remPath. Returns null if there's none, it can't be read or it
+    was saved for a different version of the .rem file, in which case the index has to be rebuilt
+     */
+    public static TextIndex read(Path remPath) {
+        Path path = indexPath(remPath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != Files.size(remPath)
+                    || in.readLong() != Files.getLastModifiedTime(remPath).toMillis()) {
+                return null;
+            }
+            TextIndex index = new TextIndex();
+            long fileSize = Files.size(path);
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                int length = in.readInt();
+                if (length < 0 || length > fileSize) {
+                    return null; //corrupted
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                String term = new String(bytes, StandardCharsets.UTF_8);
+                Postings dates = new Postings();
+                dates.size = in.readInt();
+                dates.dates = new int[dates.size];
+                for (int j = 0; j < dates.size; j++) {
+                    dates.dates[j] = in.readInt();
+                }
+                index.postings.put(term, dates);
+            }
+            return in.readInt() == MAGIC ? index : null;
+        } catch (IOException e) {
+            System.err.println(Utils.INDEX_READ_ERROR_STR);
+            return null;
+        }
+    }
+
+    //the index of foo.rem is foo.rem.idx
+    private static Path indexPath(Path remPath) {
+        return Paths.get(remPath + "." + Utils.INDEX_FILE_EXTENSION);
+    }
+
+    /*
+    the sorted dates of one term. Dates are usually added in ascending order (a file is indexed in date order,
+    new reminders are mostly for upcoming dates), which only appends
+     */
+    private static class Postings {
+        private int[] dates = new int[2];
+        private int size;
+
+        void add(int key) {
+            if (this.size > 0 && this.dates[this.size - 1] >= key) {
+                int position = Arrays.binarySearch(this.dates, 0, this.size, key);
+                if (position >= 0) {
+                    return;
+                }
+                position = -position - 1;
+                this.grow();
+                System.arraycopy(this.dates, position, this.dates, position + 1, this.size - position);
+                this.dates[position] = key;
+            } else {
+                this.grow();
+                this.dates[this.size] = key;
+            }
+            this.size++;
+        }
+
+        boolean remove(int key) {
+            int position = Arrays.binarySearch(this.dates, 0, this.size, key);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(this.dates, position + 1, this.dates, position, this.size - position - 1);
+            this.size--;
+            return true;
+        }
+
+        /*
+        keeps the first size dates of result which are in this list, returns how many were kept. Both are sorted,
+        so every date is searched for after the previous one: a galloping search first doubles its step until it
+        passes the date and then searches the last step. That's a linear merge if both lists have about the same
+        length and a binary search per date if result is much shorter
+         */
+        int retainAll(int[] result, int size) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < size && from < this.size; i++) {
+                int step = 1;
+                while (from + step < this.size && this.dates[from + step] < result[i]) {
+                    step <<= 1;
+                }
+                int position = Arrays.binarySearch(this.dates, from, Math.min(from + step + 1, this.size), result[i]);
+                if (position >= 0) {
+                    result[kept++] = result[i];
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            return kept;
+        }
+
+        private void grow() {
+            if (this.size == this.dates.length) {
+                this.dates = Arrays.copyOf(this.dates, this.size * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+the file formats reminders can be imported from and exported to (see ReminderImporter and ReminderExporter):
+
+CSV - one reminder per row: date (yyyy-mm-dd), text. Fields may be quoted with "", quoted fields may contain
+      commas, line breaks and doubled quotes (RFC 4180). An optional first row "date,text" is skipped.
+ICS - iCalendar (RFC 5545). Every VEVENT becomes a reminder on the day of its DTSTART, the text is its SUMMARY
+      followed by its DESCRIPTION (if any) on a new line.
+ */
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum TransferFormat {
+    CSV, ICS;
+
+    /*
+    returns the format matching the extension of path, throws IllegalArgumentException for other extensions
+     */
+    public static TransferFormat of(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        } else if (name.endsWith(".ics")) {
+            return ICS;
+        }
+        throw new IllegalArgumentException(Utils.UNKNOWN_TRANSFER_FORMAT_ERROR + path);
+    }
+}
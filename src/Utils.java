@@ -3,6 +3,7 @@ the class contains constants and dialog utility methods.
  */
 
 import javax.swing.*;
+import java.awt.GraphicsEnvironment;
 
 public class Utils {
     //CONSTANTS
@@ -11,11 +12,25 @@ public class Utils {
     public final static int TEN = 10; //needed for Date
     public final static String ZERO_STR = "0"; //needed for Date
     public final static String APP_NAME = "Reminders App"; //the name of the app
-    public final static int FRAME_WIDTH = 500;
-    public final static int FRAME_HEIGHT = 300;
+    public final static int FRAME_WIDTH = 900;
+    public final static int FRAME_HEIGHT = 500;
     public final static String GET_REMINDER_BUTTON = "Get reminder";
     public final static String SAVE_BUTTON = "Save reminder";
+    public final static String SEARCH_BUTTON = "Search";
+    public final static String UNDO_BUTTON = "Undo";
+    public final static String REDO_BUTTON = "Redo";
+    public final static int SEARCH_FIELD_COLUMNS = 15;
+    public final static int MAX_SEARCH_RESULTS = 50; //more results are cut off in the results dialog
+    public final static String TODAY_BUTTON = "Today";
+    public final static String[] CALENDAR_DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    public final static int CALENDAR_FIRST_YEAR = 1900; //the calendar panel shows the weeks of these years
+    public final static int CALENDAR_LAST_YEAR = 2199;
+    public final static int CALENDAR_ROW_HEIGHT = 36;
+    public final static int CALENDAR_PAGE_WEEKS = 8; //weeks the calendar reads from the ReminderManager at once
+    public final static int CALENDAR_CACHED_PAGES = 16; //pages of weeks the calendar keeps, about a few screens
     public final static String TEXT_AREA_DEFAULT_TEXT = "Enter reminder here";
+    public final static String LOADING_MESSAGE = "Loading reminders...";
+    public final static String SAVING_MESSAGE = "Saving reminders...";
     public final static String[] MONTHS = {"January", "February", "March", "April", "May", "June", "July", "August", "September",
             "October", "November", "December"};
     public final static String[] MONTHS_OF_30_DAYS = {"April", "June", "September", "November" };
@@ -26,9 +41,49 @@ public class Utils {
     public final static String EMPTY_STR = "";
     public final static int LOOKUP_ERROR = -1; //used in methods which can't find a value in a range
     public final static String FILE_DIALOG_STR = "Please choose a .rem file";
+    public final static String JOURNAL_FILE_EXTENSION = "log"; //the journal of foo.rem is foo.rem.log
+    public final static String LOCK_FILE_EXTENSION = "lock"; //processes sharing foo.rem.log lock foo.rem.log.lock
+    public final static String INDEX_FILE_EXTENSION = "idx"; //the search index of foo.rem is foo.rem.idx
+    public final static String TEMP_FILE_EXTENSION = "tmp"; //snapshots are written to foo.rem.tmp first
+    public final static String RULES_FILE_EXTENSION = "rules"; //recurring reminders of foo.rem are in foo.rem.rules
+    public final static String PARTITIONS_DIRECTORY_EXTENSION = "parts"; //the years of foo.rem are in foo.rem.parts/
+    public final static String PARTITION_BUDGET_PROPERTY = "reminders.partition.budget"; //overrides the budget below
+    public final static long PARTITION_MEMORY_BUDGET = 64 * 1024 * 1024; //heap bytes of the years loaded at once
+    public final static String TEXT_COMPRESSION_PROPERTY = "reminders.compress"; //true compresses texts
+    public final static int TEXT_BLOCK_ENTRIES = 16; //reminder texts compressed together, see CompressedTexts
+    public final static int TEXT_DICTIONARY_SIZE = 4 * 1024; //sample of texts all blocks are compressed against
+    public final static String TEXT_CACHE_PROPERTY = "reminders.text.cache"; //overrides the budget below
+    public final static long TEXT_CACHE_BUDGET = 8 * 1024 * 1024; //heap bytes of decoded texts kept
+    public final static int UNDO_HISTORY = 100; //steps ReminderManager.undo() can go back
+    public final static int JOURNAL_SYNC_BATCH = 64; //max records appended to the journal between two fsyncs
+    public final static long JOURNAL_SYNC_INTERVAL_MS = 1000; //max time a written journal record waits for its fsync
+    public final static long JOURNAL_COMPACT_SIZE = 4 * 1024 * 1024; //journal size which triggers compaction
+    public final static long JOURNAL_LOCK_POLL_MS = 10; //a compaction waiting for another process checks that often
+    public final static long AUTOSAVE_DELAY_MS = 2000; //quiet time after the last change before autosaving
+    public final static long AUTOSAVE_MAX_DELAY_MS = 30000; //max time a change waits for an autosave
+    public final static long RELOAD_MIN_INTERVAL_MS = 1; //a burst of writes wakes up the watcher at most that often
+    public final static long RELOAD_POLL_MS = 1000; //changes of other processes are looked for at least that often
+    public final static int SERVICE_DEFAULT_PORT = 8765;
+    public final static int SERVICE_SHUTDOWN_DELAY_S = 5; //how long running requests may take once stop() is called
+    public final static int SERVICE_MAX_BODY_SIZE = 1024 * 1024; //larger reminders are refused
+    public final static int SERVICE_MAX_YEAR = 9999; //years 0 to this one fit the yyyymmdd key of Date.getKey()
+    public final static String SERVICE_ARG = "--serve"; //ReminderMain --serve <file.rem> [port]
+    public final static int IMPORT_CHUNK_SIZE = 4 * 1024 * 1024; //bytes handed to one import parser at a time
+    public final static int IMPORT_BATCH_SIZE = 8192; //reminders inserted and journaled as one group commit
+    public final static int IMPORT_MAX_ERRORS = 20; //malformed rows described in an import result
+    public final static String IMPORT_ARG = "--import"; //ReminderMain --import <file.rem> <file.csv|file.ics>
+    public final static String EXPORT_ARG = "--export"; //ReminderMain --export <file.rem> <file.csv|file.ics>
+    public final static String METRICS_PROPERTY = "reminders.metrics"; //-Dreminders.metrics=true times get/put too
+    public final static String METRICS_FILE_PROPERTY = "reminders.metrics.file"; //metrics are dumped there at exit
+    public final static String METRICS_FILE_EXTENSION = "metrics"; //Ctrl+Shift+M dumps the metrics to foo.rem.metrics
+    public final static long NOTIFIER_MAX_SLEEP_MS = 60 * 60 * 1000; //the notifier checks the clock at least hourly
 
     //---MESSAGES for showMessageDialog()
     public final static String FATAL_ERROR = "Critical Error";
+    public final static String REMINDER_DUE_TITLE = "Reminder for ";
+    public final static String SEARCH_RESULTS_TITLE = "Search results";
+    public final static String NO_SEARCH_RESULTS_MESSAGE = "No reminder contains these words";
+    public final static String MORE_SEARCH_RESULTS_MESSAGE = "... and more";
     public final static String MONTH_NOT_FOUND_MESSAGE = "Couldn't find the month\nExiting the program\n";
     public final static String OUTPUT_FILE_NAME_MESSAGE = "Please enter the name for the output file:\n" +
             "(if file name will not be provided then the file will be named \"reminders.rem\")";
@@ -45,9 +100,51 @@ public class Utils {
     public final static String FILE_SAVE_ERROR_STR = "Error saving file. Exiting program";
     public final static String INVALID_OBJECT_ERROR = "Invalid object type. Exiting the app";
     public final static String INVALID_INPUT_ERROR = "Invalid input. Exiting the app";
+    public final static String INVALID_FILE_FORMAT_ERROR = "The file is not a .rem file";
+    public final static String UNSUPPORTED_FILE_VERSION_ERROR = "The .rem file was written by a newer version of the app";
+    public final static String TOO_MANY_ENTRIES_ERROR = "More entries than declared in the .rem header";
+    public final static String TOO_FEW_ENTRIES_ERROR = "Fewer entries than declared in the .rem header";
+    public final static String MISSING_INDEX_ERROR = "The .rem file has no index block";
+    public final static String FILE_MAP_ERROR_STR = "The file can't be memory-mapped, loading it instead";
+    public final static String INDEX_READ_ERROR_STR = "The search index can't be read, rebuilding it";
+    public final static String INDEX_WRITE_ERROR_STR = "The search index can't be saved";
+    public final static String JOURNAL_OPEN_ERROR_STR = "Error opening the journal file. Exiting program";
+    public final static String JOURNAL_WRITE_ERROR_STR = "Error writing to the journal file. Exiting program";
+    public final static String JOURNAL_READ_ERROR_STR = "Unexpected end of the journal file";
+    public final static String JOURNAL_RELOAD_ERROR_STR = "Error reading the changes of other processes from the " +
+            "journal file. Exiting program";
+    public final static String WATCH_ERROR_STR = "The journal file can't be watched, changes of other processes " +
+            "are polled for";
+    public final static String SERVICE_USAGE_STR = "usage: ReminderMain --serve <file.rem> [port]";
+    public final static String SERVICE_START_ERROR_STR = "Error starting the reminder service. Exiting program";
+    public final static String SERVICE_STARTED_MESSAGE = "Serving reminders on http://localhost:";
+    public final static String NOT_FOUND_STR = "Not found";
+    public final static String METHOD_NOT_ALLOWED_STR = "Method not allowed";
+    public final static String REQUEST_TOO_LARGE_STR = "The reminder is too large";
+    public final static String INVALID_DATE_ERROR_STR = "Expected a date like 2024-12-31 but got ";
+    public final static String RANGE_PARAMETERS_ERROR_STR = "Expected the parameters from and to";
+    public final static String UNKNOWN_TRANSFER_FORMAT_ERROR = "Expected a .csv or .ics file but got ";
+    public final static String TRANSFER_USAGE_STR = "usage: ReminderMain --import|--export <file.rem> <file.csv|file.ics>";
+    public final static String IMPORT_ERROR_STR = "Error importing reminders. Exiting program";
+    public final static String EXPORT_ERROR_STR = "Error exporting reminders. Exiting program";
+    public final static String EXPORTED_MESSAGE = " reminders exported to ";
+    public final static String LINE_STR = "line ";
+    public final static String UNTERMINATED_QUOTE_ERROR = "The quoted field isn't closed";
+    public final static String TEXT_AFTER_QUOTE_ERROR = "Unexpected text after a quoted field";
+    public final static String CSV_COLUMNS_ERROR = "Expected the columns date and text but got columns: ";
+    public final static String MISSING_DTSTART_ERROR = "The event has no DTSTART";
+    public final static String UNTERMINATED_EVENT_ERROR = "The event has no END:VEVENT";
+    public final static String METRICS_WRITE_ERROR_STR = "The metrics can't be saved";
+    public final static String METRICS_DUMPED_MESSAGE = "Metrics saved to ";
+    public final static String INVALID_RULE_ERROR = "A rule needs an interval of at least 1 and an end after its start";
+    public final static String JOURNAL_TORN_RECORD_MESSAGE = "The journal ends with an incomplete record, " +
+            "the record is discarded";
 
-    //wrapper method
+    //wrapper method. Does nothing without a display (e.g. in the headless ReminderService), callers print the message
     public static void showMessageDialog(JFrame frame, String message, String title) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return;
+        }
         String[] options = {"OK"};
         JOptionPane.showOptionDialog(frame, message, title, JOptionPane.DEFAULT_OPTION,
                 JOptionPane.INFORMATION_MESSAGE,null, options, options[0]);
@@ -0,0 +1,183 @@
+/*
+checks that two processes (child JVMs) which save reminders to the same .rem file at the same time lose no update:
+each process saves reminders for dates of its own and for dates both of them use, and compacts the journal halfway.
+Afterwards both processes and a fresh process opened on the file have to see every reminder of both processes, and
+the same reminder for every shared date. The workload is small and fixed; the processes don't rely on the
+JournalWatcher but reload the changes of the other one themselves, so the test doesn't depend on timing.
+Exits with 1 if the check fails.
+
+usage: java -cp <classes> MultiProcessTest
+ */
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MultiProcessTest {
+
+    private final static String CHILD_ARG = "--child";
+    private final static int PROCESSES = 2;
+    private final static int PUTS = 2000; //reminders of its own every process saves
+    private final static int SHARED_DATES = 20; //dates both processes save reminders for
+    private final static int SHARED_EVERY = 10; //every 10th put also goes to a shared date
+    private final static int SHARED_YEAR = 9000;
+    private final static int READY_YEAR = 9900; //each process saves a reminder there once its journal is open
+    private final static int DONE_YEAR = 9990; //each process saves a reminder there once all its puts are done
+    private final static long RELOAD_PAUSE_MS = 5;
+    private final static long TIMEOUT_MINUTES = 5; //only a hung process takes that long
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD_ARG)) {
+            System.exit(child(args[1], Integer.parseInt(args[2])));
+        }
+        Path dir = Files.createTempDirectory("multi-process-test");
+        String path = dir.resolve("test.rem").toString();
+
+        //an empty .rem file both processes open
+        ReminderManager manager = new ReminderManager();
+        manager.openJournal(path, false);
+        manager.closeJournal();
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> children = new ArrayList<>();
+        for (int id = 0; id < PROCESSES; id++) {
+            children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    MultiProcessTest.class.getName(), CHILD_ARG, path, Integer.toString(id))
+                    .redirectErrorStream(true).start());
+        }
+        List<String> failures = new ArrayList<>();
+        List<String> checksums = new ArrayList<>();
+        for (int id = 0; id < PROCESSES; id++) {
+            Process child = children.get(id);
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    if (line.startsWith("checksum ")) {
+                        checksums.add(line.substring("checksum ".length()));
+                    } else {
+                        System.out.println("process " + id + ": " + line);
+                    }
+                }
+            }
+            if (!child.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                child.destroyForcibly();
+                failures.add("process " + id + " didn't finish");
+            } else if (child.exitValue() != 0) {
+                failures.add("process " + id + " lost updates or failed");
+            }
+        }
+
+        //a process which opens the file afterwards sees everything too
+        ReminderManager fresh = new ReminderManager();
+        if (!fresh.mapRemindersFile(path)) {
+            fresh.setReminderTable(fresh.readRemindersFromFile(path));
+        }
+        fresh.openJournal(path, true);
+        int lost = countLost(fresh);
+        String checksum = Long.toString(sharedChecksum(fresh));
+        fresh.closeJournal();
+        if (lost > 0) {
+            failures.add("a fresh process misses " + lost + " reminders");
+        }
+        if (checksums.size() != PROCESSES) {
+            failures.add("expected a checksum of the shared dates from every process but got " + checksums);
+        }
+        for (String childChecksum : checksums) {
+            if (!childChecksum.equals(checksum)) {
+                failures.add("the shared dates differ: " + checksums + " in the processes, " + checksum + " fresh");
+                break;
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("FAILED: " + failure));
+            System.exit(Utils.BAD_EXIT);
+        }
+        System.out.println("OK: " + PROCESSES + " processes, " + PROCESSES * PUTS + " reminders, 0 lost");
+    }
+
+    //returns the exit code of the child: 0 if it sees every reminder of both processes
+    private static int child(String path, int id) throws Exception {
+        ReminderManager manager = new ReminderManager();
+        if (!manager.mapRemindersFile(path)) {
+            manager.setReminderTable(manager.readRemindersFromFile(path));
+        }
+        manager.openJournal(path, true);
+
+        //both processes start putting once both journals are open, so the puts overlap
+        manager.putReminder(day(READY_YEAR, id), "ready");
+        awaitAll(manager, READY_YEAR);
+        for (int i = 0; i < PUTS; i++) {
+            manager.putReminder(ownDate(id, i), text(id, i));
+            if (i % SHARED_EVERY == 0) {
+                manager.putReminder(sharedDate(i / SHARED_EVERY % SHARED_DATES), "process " + id + " shared " + i);
+            }
+            if (i == PUTS / 2) {
+                manager.compactJournal();
+            }
+        }
+        //every put of the other process comes before its done reminder in the journal
+        manager.putReminder(day(DONE_YEAR, id), "done");
+        awaitAll(manager, DONE_YEAR);
+
+        int lost = countLost(manager);
+        System.out.println(lost + " reminders lost");
+        System.out.println("checksum " + sharedChecksum(manager));
+        manager.closeJournal();
+        return lost > 0 ? Utils.BAD_EXIT : Utils.NORMAL_EXIT;
+    }
+
+    //reloads the changes of the other processes until every process saved its reminder in year
+    private static void awaitAll(ReminderManager manager, int year) throws InterruptedException {
+        for (int id = 0; id < PROCESSES; id++) {
+            while (manager.getReminder(day(year, id)) == null) {
+                Thread.sleep(RELOAD_PAUSE_MS);
+                manager.reloadChanges();
+            }
+        }
+    }
+
+    private static int countLost(ReminderManager manager) {
+        int lost = 0;
+        for (int id = 0; id < PROCESSES; id++) {
+            for (int i = 0; i < PUTS; i++) {
+                if (!text(id, i).equals(manager.getReminder(ownDate(id, i)))) {
+                    lost++;
+                }
+            }
+        }
+        return lost;
+    }
+
+    //nobody writes the shared dates anymore, so every process has to hold the last write of the journal
+    private static long sharedChecksum(ReminderManager manager) {
+        long checksum = 0;
+        for (int i = 0; i < SHARED_DATES; i++) {
+            checksum = checksum * 31 + String.valueOf(manager.getReminder(sharedDate(i))).hashCode();
+        }
+        return checksum;
+    }
+
+    private static String text(int id, int i) {
+        return "process " + id + " reminder " + i;
+    }
+
+    //each process saves its reminders to its own 1000 years
+    private static Date ownDate(int id, int i) {
+        return day(1000 + id * 1000, i);
+    }
+
+    private static Date sharedDate(int i) {
+        return day(SHARED_YEAR, i);
+    }
+
+    //the i-th date from the first of January of year on, only using the days every month has
+    private static Date day(int year, int i) {
+        return new Date(1 + i % 28, 1 + i / 28 % 12, year + i / (28 * 12));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+checks that the years loaded from a partitioned .rem file stay within the memory budget while the app visits many
+years, like scrolling the calendar over them: the decoded texts cached for a year must not keep the year on the heap
+once it's evicted. The file has YEARS years of reminders which take several times the budgets when all of them are
+loaded; after every year was visited the heap may only have grown by the partition budget plus the budget of the
+decoded texts (and some slack for the garbage collector's estimates).
+Exits with 1 if the check fails.
+
+usage: java -cp <classes> PartitionMemoryTest
+ */
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class PartitionMemoryTest {
+
+    private final static int YEARS = 600;
+    private final static int FIRST_YEAR = 1600;
+    private final static int DAYS_PER_YEAR = 28 * 12; //only day 1-28 of every month
+    private final static int TEXT_LENGTH = 200;
+    private final static int VOCABULARY = 5000;
+    private final static long PARTITION_BUDGET = 2 * 1024 * 1024;
+    private final static long TEXT_CACHE_BUDGET = 2 * 1024 * 1024;
+    private final static long SLACK = 4 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        //read when the first partitioned store is opened
+        System.setProperty(Utils.TEXT_CACHE_PROPERTY, Long.toString(TEXT_CACHE_BUDGET));
+        System.setProperty(Utils.PARTITION_BUDGET_PROPERTY, Long.toString(PARTITION_BUDGET));
+        Path dir = Files.createTempDirectory("partition-memory-test");
+        String path = dir.resolve("test.rem").toString();
+        writePartitionedFile(path);
+
+        ReminderManager manager = new ReminderManager();
+        if (!manager.mapRemindersFile(path)) {
+            System.out.println("FAILED: the partitioned file can't be opened");
+            System.exit(Utils.BAD_EXIT);
+        }
+        long before = usedHeap();
+        long texts = 0;
+        //a date of every year, which decodes a single block of texts: the most years for the cached texts to keep
+        for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++) {
+            texts += manager.getReminder(new Date(15, 6, year)).length();
+        }
+        long grown = usedHeap() - before;
+        long allowed = PARTITION_BUDGET + TEXT_CACHE_BUDGET + SLACK;
+        System.out.printf("visited %d years (%d characters read), heap grew by %.1f MB, allowed %.1f MB%n", YEARS,
+                texts, grown / (1024.0 * 1024.0), allowed / (1024.0 * 1024.0));
+        if (texts == 0 || grown > allowed) {
+            System.out.println("FAILED: the loaded years take more memory than the budgets allow");
+            System.exit(Utils.BAD_EXIT);
+        }
+        //keeps the manager reachable until the heap was measured
+        System.out.println("OK: " + manager.size() + " reminders");
+    }
+
+    //writes YEARS years with a reminder on every day and converts them into a partitioned file
+    private static void writePartitionedFile(String path) {
+        Random random = new Random(1);
+        DateIndexMap table = new DateIndexMap(YEARS * DAYS_PER_YEAR);
+        for (int day = 0; day < YEARS * DAYS_PER_YEAR; day++) {
+            StringBuilder text = new StringBuilder(TEXT_LENGTH + 8);
+            while (text.length() < TEXT_LENGTH) {
+                text.append('w').append(Integer.toString(random.nextInt(VOCABULARY), 36)).append(' ');
+            }
+            table.put(new Date(1 + day % 28, 1 + day / 28 % 12, FIRST_YEAR + day / DAYS_PER_YEAR).getKey(),
+                    text.toString());
+        }
+        ReminderManager writer = new ReminderManager();
+        writer.setReminderTable(table);
+        writer.saveToFile(path);
+        ReminderManager converter = new ReminderManager();
+        converter.mapRemindersFile(path);
+        converter.openJournal(path, true); //converts the file
+        converter.closeJournal();
+    }
+
+    //the heap in use after collecting the garbage
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}